@@ -0,0 +1,56 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the same command line options as
+ * {@code org.openjdk.jmh.Main}, except that the {@link GCProfiler} is always enabled so that every
+ * run reports allocation rate ({@code gc.alloc.rate.norm}) next to the timing numbers.
+ *
+ * <p>For example, to run the {@code Substring} benchmarks with only the largest input:
+ *
+ * <pre>
+ *   mvn -pl mug,mug-benchmarks -am package
+ *   java -jar mug-benchmarks/target/benchmarks.jar SubstringBenchmark -p size=100000
+ * </pre>
+ */
+public final class BenchmarkMain {
+  public static void main(String[] args)
+      throws IOException, RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.shouldHelp()) {
+      commandLine.showHelp();
+      return;
+    }
+    Runner runner =
+        new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build());
+    if (commandLine.shouldList()) {
+      runner.list();
+      return;
+    }
+    runner.run();
+  }
+
+  private BenchmarkMain() {}
+}
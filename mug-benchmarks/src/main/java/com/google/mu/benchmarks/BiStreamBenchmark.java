@@ -0,0 +1,342 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.stream.BiCollection.toBiCollection;
+import static com.google.mu.util.stream.BiCollectors.countingBy;
+import static com.google.mu.util.stream.BiCollectors.countingByConcurrent;
+import static com.google.mu.util.stream.BiCollectors.summingLongBy;
+import static com.google.mu.util.stream.BiCollectors.toConcurrentMap;
+import static com.google.mu.util.stream.BiCollectors.toMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.stream.BiCollection;
+import com.google.mu.util.stream.BiCollectors;
+import com.google.mu.util.stream.BiStream;
+import com.google.mu.util.stream.DistinctMemory;
+import com.google.mu.util.stream.ExternalSorter;
+import com.google.mu.util.stream.ExternalSorter.Codec;
+
+/** Benchmarks for the commonly used {@link BiStream} sources and operations. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BiStreamBenchmark {
+  @Param({"100", "10000", "1000000"})
+  int size;
+
+  private Map<String, Integer> map;
+  private List<String> keys;
+  private List<Integer> values;
+  private BiCollection<String, Integer> pairs;
+
+  @Setup public void setUp() {
+    map = new LinkedHashMap<>();
+    keys = new ArrayList<>(size);
+    values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String key = "k" + i;
+      map.put(key, i);
+      keys.add(key);
+      values.add(i);
+    }
+    pairs = BiStream.zip(keys, values).collect(BiCollection::toBiCollection);
+  }
+
+  private BiStream<Integer, Integer> evenPairs() {
+    return BiStream.from(values.stream(), v -> v * 2, v -> v);
+  }
+
+  private BiStream<Integer, Integer> oddPairs() {
+    return BiStream.from(values.stream(), v -> v * 2 + 1, v -> v);
+  }
+
+  @Benchmark public Map<String, Integer> fromMap_collect() {
+    return BiStream.from(map).collect(toMap());
+  }
+
+  @Benchmark public Map<String, Integer> fromMap_filter_mapValues_collect() {
+    return BiStream.from(map)
+        .filter((k, v) -> (v & 1) == 0)
+        .mapValues(v -> v + 1)
+        .collect(toMap());
+  }
+
+  @Benchmark public Map<String, Integer> fromMap_mapValues_filter_collect() {
+    return BiStream.from(map)
+        .mapValues(v -> v + 1)
+        .filter((k, v) -> (v & 1) == 0)
+        .collect(toMap());
+  }
+
+  @Benchmark public long fromMap_filter_mapValues_peek_forEach() {
+    long[] sum = new long[1];
+    BiStream.from(map)
+        .mapValues(v -> v + 1)
+        .filter((k, v) -> (v & 1) == 0)
+        .peek((k, v) -> sum[0]++)
+        .mapKeys(String::length)
+        .forEach((k, v) -> sum[0] += k + v);
+    return sum[0];
+  }
+
+  @Benchmark public long fromMap_mapValues_filterValues_sum_boxed() {
+    return BiStream.from(map)
+        .mapValues(v -> v * 3L)
+        .filterValues(v -> (v & 1) == 0)
+        .mapToLong((k, v) -> v)
+        .sum();
+  }
+
+  @Benchmark public long fromMap_mapValuesToLong_filterValues_sum() {
+    return BiStream.from(map)
+        .mapValuesToLong(v -> v * 3L)
+        .filterValues(v -> (v & 1) == 0)
+        .sum();
+  }
+
+  @Benchmark public Map<String, Long> fromMap_countByKey_boxed() {
+    return BiStream.from(map).collect(toMap(Collectors.counting()));
+  }
+
+  @Benchmark public Map<String, Long> fromMap_countingBy() {
+    return BiStream.from(map).collect(countingBy(k -> k));
+  }
+
+  /** Groups into 100 hot keys, so threads of the parallel stream contend on the same counters. */
+  @Benchmark public Map<Integer, Long> zip_parallel_countingBy() {
+    return BiStream.zip(values, keys).parallel().collect(countingBy(v -> v % 100));
+  }
+
+  @Benchmark public Map<Integer, Long> zip_parallel_countingByConcurrent() {
+    return BiStream.zip(values, keys).parallel().collect(countingByConcurrent(v -> v % 100));
+  }
+
+  @Benchmark public Map<Integer, String> zip_parallel_toMap() {
+    return BiStream.zip(values, keys).parallel().collect(toMap());
+  }
+
+  @Benchmark public Map<Integer, String> zip_parallel_toConcurrentMap() {
+    return BiStream.zip(values, keys).parallel().collect(toConcurrentMap());
+  }
+
+  @Benchmark public Map<String, Long> fromMap_summingLongBy() {
+    return BiStream.from(map).collect(summingLongBy(k -> k, v -> v));
+  }
+
+  @Benchmark public long fromMap_innerJoin_sum() {
+    return BiStream.from(map)
+        .innerJoin(BiStream.zip(keys, values).filterValues(v -> v % 10 == 0), Integer::sum)
+        .mapToLong((k, v) -> v)
+        .sum();
+  }
+
+  @Benchmark public long fromMap_innerJoin_map_sum() {
+    return BiStream.from(map).innerJoin(map, Integer::sum).mapToLong((k, v) -> v).sum();
+  }
+
+  @Benchmark public Map<Integer, Integer> fromMap_mapKeys_collect() {
+    return BiStream.from(map).mapKeys(String::length).collect(toMap(Integer::sum));
+  }
+
+  @Benchmark public long fromMap_forEach() {
+    long[] sum = new long[1];
+    BiStream.from(map).forEach((k, v) -> sum[0] += k.length() + v);
+    return sum[0];
+  }
+
+  @Benchmark public Map<String, Integer> zipCollections_collect() {
+    return BiStream.zip(keys, values).collect(toMap());
+  }
+
+  @Benchmark public long zipCollections_sum() {
+    return BiStream.zip(keys, values).mapToLong((k, v) -> k.length() + v).sum();
+  }
+
+  @Benchmark public long zipCollections_parallel_sum() {
+    return BiStream.zip(keys, values).parallel().mapToLong((k, v) -> k.length() + v).sum();
+  }
+
+  @Benchmark public long zipStreams_parallel_sum() {
+    return BiStream.zip(keys.stream(), values.stream())
+        .parallel()
+        .mapToLong((k, v) -> k.length() + v)
+        .sum();
+  }
+
+  @Benchmark public Map<String, Integer> zipStreams_mapKeys_collect() {
+    return BiStream.zip(keys.stream(), values.stream()).mapKeys(String::trim).collect(toMap());
+  }
+
+  @Benchmark public Map<String, Integer> builder_collect() {
+    BiStream.Builder<String, Integer> builder = BiStream.builder();
+    for (int i = 0; i < size; i++) {
+      builder.add(keys.get(i), values.get(i));
+    }
+    return builder.build().collect(toMap());
+  }
+
+  @Benchmark public long builder_parallel_sum() {
+    BiStream.Builder<String, Integer> builder = BiStream.builder();
+    for (int i = 0; i < size; i++) {
+      builder.add(keys.get(i), values.get(i));
+    }
+    return builder.build().parallel().mapToLong((k, v) -> v).sum();
+  }
+
+  @Benchmark public long toBiCollection_stream_sum() {
+    BiCollection<String, Integer> pairs =
+        map.entrySet().stream().collect(toBiCollection(Map.Entry::getKey, Map.Entry::getValue));
+    return pairs.stream().mapToLong((k, v) -> v).sum();
+  }
+
+  /** Looks up 10 keys, the index is built by the first call and reused afterwards. */
+  @Benchmark public long biCollection_get_sum() {
+    long sum = 0;
+    for (int i = 0; i < size; i += Math.max(1, size / 10)) {
+      for (int v : pairs.get(keys.get(i))) {
+        sum += v;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark public long biCollection_filterKeys_sum() {
+    long sum = 0;
+    for (int i = 0; i < size; i += Math.max(1, size / 10)) {
+      String key = keys.get(i);
+      sum += pairs.stream().filterKeys(key::equals).mapToLong((k, v) -> v).sum();
+    }
+    return sum;
+  }
+
+  @Benchmark public Map<String, Integer> sortedByKeys_collect() {
+    return BiStream.from(map).sortedByKeys(String::compareTo).limit(100).collect(toMap());
+  }
+
+  @Benchmark public long concat_sortedByKeys_sum() {
+    return BiStream.concat(evenPairs(), oddPairs())
+        .sortedByKeys(Comparator.naturalOrder())
+        .mapToLong((k, v) -> v)
+        .sum();
+  }
+
+  @Benchmark public long mergeSorted_sum() {
+    return BiStream.mergeSorted(Comparator.naturalOrder(), evenPairs(), oddPairs())
+        .mapToLong((k, v) -> v)
+        .sum();
+  }
+
+  @Benchmark public long consecutiveRunsFrom_count() {
+    return BiStream.consecutiveRunsFrom(values.stream(), v -> v / 10, Collectors.counting())
+        .count();
+  }
+
+  @Benchmark public long consecutiveRunsFrom_parallel_count() {
+    return BiStream.consecutiveRunsFrom(
+            values.parallelStream(), v -> v / 10, Collectors.counting())
+        .count();
+  }
+
+  @Benchmark public long toAdjacentPairs_sum() {
+    return values.stream()
+        .collect(BiStream.toAdjacentPairs())
+        .mapToLong((prev, next) -> next - prev)
+        .sum();
+  }
+
+  @Benchmark public long adjacentPairsFrom_sum() {
+    return BiStream.adjacentPairsFrom(values.stream()).mapToLong((prev, next) -> next - prev).sum();
+  }
+
+  @Benchmark public double fromMap_sliding_average() {
+    return BiStream.from(map)
+        .sliding(10, BiCollectors.averagingInt((k, v) -> v))
+        .mapToDouble(Double::doubleValue)
+        .sum();
+  }
+
+  @Benchmark public long fromMap_tumbling_sum() {
+    return BiStream.from(map)
+        .tumbling(10, BiCollectors.summingLong((k, v) -> v))
+        .mapToLong(Long::longValue)
+        .sum();
+  }
+
+  @Benchmark public Map<String, Integer> sortedByValues_limit_collect() {
+    return BiStream.from(map)
+        .sortedByValues(Comparator.reverseOrder())
+        .limit(100)
+        .collect(toMap());
+  }
+
+  @Benchmark public Map<String, Integer> topKByValues_collect() {
+    return BiStream.from(map).topKByValues(100, Comparator.reverseOrder()).collect(toMap());
+  }
+
+  @Benchmark public long zip_distinct_count() {
+    return BiStream.zip(values, keys).mapKeys(v -> v % 1000).distinct().count();
+  }
+
+  @Benchmark public long zip_distinctKeys_count() {
+    return BiStream.zip(values, keys).mapKeys(v -> v % 1000).distinctKeys().count();
+  }
+
+  @Benchmark public long zip_distinctKeys_recent_count() {
+    return BiStream.zip(values, keys)
+        .mapKeys(v -> v % 1000)
+        .distinctBy((k, v) -> k, DistinctMemory.recent(1000))
+        .count();
+  }
+
+  @Benchmark public long zip_distinctKeys_approximate_count() {
+    return BiStream.zip(values, keys)
+        .mapKeys(v -> v % 1000)
+        .distinctBy((k, v) -> k, DistinctMemory.approximate(1000, 0.01))
+        .count();
+  }
+
+  /** Spills a quarter of the input per run, so every size goes through the disk merge. */
+  @Benchmark public Map<String, Integer> externalSortedByKeys_collect() {
+    try (BiStream<String, Integer> sorted =
+        ExternalSorter.using(Codec.strings(), Codec.ints())
+            .withMaxPairsInMemory(Math.max(1, size / 4))
+            .sortedByKeys(BiStream.from(map), String::compareTo)) {
+      return sorted.limit(100).collect(toMap());
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.concurrent.Parallelizer;
+import com.google.mu.util.concurrent.Retryer;
+import com.google.mu.util.concurrent.Retryer.Delay;
+
+/**
+ * Benchmarks for the fan-out overhead of {@link Parallelizer} and the bookkeeping overhead of
+ * {@link Retryer}. Tasks and delays are deliberately trivial so that the library cost dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrencyBenchmark {
+  @Param({"100", "10000"})
+  int tasks;
+
+  @Param({"1", "4", "16"})
+  int maxInFlight;
+
+  private ExecutorService executor;
+  private Retryer retryer;
+
+  @Setup public void setUp() {
+    executor = Executors.newFixedThreadPool(maxInFlight);
+    retryer = new Retryer().upon(IOException.class, Delay.ofMillis(0).exponentialBackoff(1, 3));
+  }
+
+  @TearDown public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark public long parallelize() throws InterruptedException {
+    AtomicLong sum = new AtomicLong();
+    new Parallelizer(executor, maxInFlight)
+        .parallelize(IntStream.range(0, tasks).boxed(), i -> sum.addAndGet(i));
+    return sum.get();
+  }
+
+  @Benchmark public long retryBlockingly_noFailure() throws IOException {
+    long sum = 0;
+    for (int i = 0; i < tasks; i++) {
+      int n = i;
+      sum += retryer.retryBlockingly(() -> n);
+    }
+    return sum;
+  }
+
+  @Benchmark public long retryBlockingly_failTwice() throws IOException {
+    long sum = 0;
+    for (int i = 0; i < tasks; i++) {
+      int[] attempts = {0};
+      sum += retryer.retryBlockingly(() -> {
+        if (attempts[0]++ < 2) throw new IOException();
+        return attempts[0];
+      });
+    }
+    return sum;
+  }
+}
@@ -16,20 +16,30 @@ package com.google.mu.benchmarks;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
 
-import com.google.caliper.Benchmark;
 import com.google.common.testing.SerializableTester;
 import com.google.common.util.concurrent.Futures;
 import com.google.mu.util.Maybe;
 
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ExceptionWrappingBenchmark.N)
 public class ExceptionWrappingBenchmark {
+  static final int N = 100;
 
   @Benchmark
-  void futuresGetChecked(int n) {
+  public void futuresGetChecked() {
     IOException exception = new IOException();
     CompletableFuture<?> future = new CompletableFuture<>();
     future.completeExceptionally(exception);
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       try {
         Futures.getChecked(future, IOException.class);
         throw new AssertionError();
@@ -38,9 +48,9 @@ public class ExceptionWrappingBenchmark {
   }
 
   @Benchmark
-  void maybeGet(int n) {
+  public void maybeGet() {
     IOException exception = new IOException();
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       try {
         Maybe.except(exception).orElseThrow();
         throw new AssertionError();
@@ -49,25 +59,25 @@ public class ExceptionWrappingBenchmark {
   }
 
   @Benchmark
-  void reserializeException(int n) {
+  public void reserializeException() {
     IOException exception = new IOException();
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       SerializableTester.reserialize(exception);
     }
   }
 
   @Benchmark
-  void reserializeString(int n) {
+  public void reserializeString() {
     String string = new String("abc");
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       SerializableTester.reserialize(string);
     }
   }
 
   @Benchmark
-  void manualWrapper(int n) {
+  public void manualWrapper() {
     IOException exception = new IOException();
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       try {
         Maybe.except(exception).orElseThrow(IOException::new);
         throw new AssertionError();
@@ -76,9 +86,9 @@ public class ExceptionWrappingBenchmark {
   }
 
   @Benchmark
-  void noWrapper(int n) {
+  public void noWrapper() {
     IOException exception = new IOException();
-    for (int i = 0; i < n; i++) {
+    for (int i = 0; i < N; i++) {
       try {
         Maybe.except(exception).orElseThrow(e -> e);
         throw new AssertionError();
@@ -0,0 +1,124 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.graph.ShortestPath.shortestPathsFrom;
+import static com.google.mu.util.graph.ShortestPath.unweightedShortestPathsFrom;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.graph.GraphWalker;
+import com.google.mu.util.graph.ShortestPath;
+import com.google.mu.util.graph.Walker;
+import com.google.mu.util.stream.BiStream;
+
+/**
+ * Benchmarks for {@link Walker}, {@link GraphWalker} and {@link ShortestPath} over a square grid of
+ * {@code width * width} nodes, where each node is connected to its right and lower neighbors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+  @Param({"10", "100", "500"})
+  int width;
+
+  private int nodes;
+
+  @Setup public void setUp() {
+    nodes = width * width;
+  }
+
+  @Benchmark public long tree_preOrder() {
+    return Walker.<Integer>inTree(this::binaryChildren).preOrderFrom(0).count();
+  }
+
+  @Benchmark public long tree_postOrder() {
+    return Walker.<Integer>inTree(this::binaryChildren).postOrderFrom(0).count();
+  }
+
+  @Benchmark public long tree_breadthFirst() {
+    return Walker.<Integer>inTree(this::binaryChildren).breadthFirstFrom(0).count();
+  }
+
+  @Benchmark public long graph_preOrder() {
+    return Walker.<Integer>inGraph(this::gridNeighbors).preOrderFrom(0).count();
+  }
+
+  @Benchmark public long graph_breadthFirst() {
+    return Walker.<Integer>inGraph(this::gridNeighbors).breadthFirstFrom(0).count();
+  }
+
+  @Benchmark public List<Integer> graph_topologicalOrder() {
+    return Walker.<Integer>inGraph(this::gridNeighbors).topologicalOrderFrom(0);
+  }
+
+  @Benchmark public long graph_stronglyConnectedComponents() {
+    return Walker.<Integer>inGraph(this::gridNeighbors).stronglyConnectedComponentsFrom(0).count();
+  }
+
+  @Benchmark public double shortestPath_weighted() {
+    return shortestPathsFrom(0, this::weightedGridNeighbors)
+        .reduce((a, b) -> b)
+        .get()
+        .distance();
+  }
+
+  @Benchmark public double shortestPath_unweighted() {
+    return unweightedShortestPathsFrom(0, this::gridNeighbors)
+        .reduce((a, b) -> b)
+        .get()
+        .distance();
+  }
+
+  private Stream<Integer> binaryChildren(int node) {
+    int left = node * 2 + 1;
+    if (left >= nodes) return null;
+    return left + 1 < nodes ? Stream.of(left, left + 1) : Stream.of(left);
+  }
+
+  private Stream<Integer> gridNeighbors(int node) {
+    boolean hasRight = node % width < width - 1;
+    boolean hasDown = node + width < nodes;
+    if (hasRight && hasDown) return Stream.of(node + 1, node + width);
+    if (hasRight) return Stream.of(node + 1);
+    if (hasDown) return Stream.of(node + width);
+    return null;
+  }
+
+  private BiStream<Integer, Double> weightedGridNeighbors(int node) {
+    Stream<Integer> neighbors = gridNeighbors(node);
+    return neighbors == null
+        ? null
+        : BiStream.from(neighbors, n -> n, n -> (double) (n % 7 + 1));
+  }
+}
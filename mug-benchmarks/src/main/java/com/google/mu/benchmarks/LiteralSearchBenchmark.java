@@ -0,0 +1,98 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.first;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.Substring;
+
+/**
+ * Compares {@link Substring#first(String)} against plain {@link String#indexOf(String, int)} for
+ * literals of increasing length, searching a multipart-like body for its boundary.
+ *
+ * <p>Short literals are delegated to {@code indexOf} so both sides should be on par; from the
+ * skip-table threshold upwards, the difference is the crossover between the two algorithms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralSearchBenchmark {
+  private static final String[] WORDS = {
+    "content", "type", "boundary", "form", "data", "name", "value", "--", "\r\n"
+  };
+
+  @Param({"8", "16", "32", "48", "64", "96", "128"})
+  int needleLength;
+
+  private String needle;
+  private String body;
+  private Substring.Pattern pattern;
+
+  @Setup public void setUp() {
+    Random random = new Random(1);
+    StringBuilder boundary = new StringBuilder("--boundary");
+    while (boundary.length() < needleLength) {
+      boundary.append((char) ('a' + random.nextInt(26)));
+    }
+    needle = boundary.substring(0, needleLength);
+    StringBuilder builder = new StringBuilder();
+    for (int part = 0; part < 4; part++) {
+      while (builder.length() < (part + 1) * 16 * 1024) {
+        builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+      }
+      builder.append(needle);
+    }
+    body = builder.toString();
+    pattern = first(needle);
+  }
+
+  @Benchmark public int stringIndexOf() {
+    return body.indexOf(needle);
+  }
+
+  @Benchmark public int substringFirst() {
+    return pattern.in(body).get().index();
+  }
+
+  @Benchmark public long stringIndexOf_all() {
+    long count = 0;
+    for (int i = body.indexOf(needle); i >= 0; i = body.indexOf(needle, i + needle.length())) {
+      count++;
+    }
+    return count;
+  }
+
+  @Benchmark public long substringFirst_repeatedly() {
+    return pattern.repeatedly().match(body).count();
+  }
+}
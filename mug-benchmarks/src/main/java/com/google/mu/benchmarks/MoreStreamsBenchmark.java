@@ -0,0 +1,82 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.stream.MoreStreams;
+
+/** Benchmarks for {@link MoreStreams#dice} and {@link MoreStreams#flatten}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoreStreamsBenchmark {
+  @Param({"100", "10000", "1000000"})
+  int size;
+
+  @Param({"10", "1000"})
+  int chunkSize;
+
+  private List<Integer> elements;
+  private List<List<Integer>> chunks;
+
+  @Setup public void setUp() {
+    elements = new ArrayList<>(size);
+    chunks = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      elements.add(i);
+      if (i % chunkSize == 0) {
+        chunks.add(new ArrayList<>(chunkSize));
+      }
+      chunks.get(chunks.size() - 1).add(i);
+    }
+  }
+
+  @Benchmark public long dice() {
+    return MoreStreams.dice(elements.stream(), chunkSize).mapToInt(List::size).sum();
+  }
+
+  @Benchmark public long dice_parallel() {
+    return MoreStreams.dice(elements.parallelStream(), chunkSize).mapToInt(List::size).sum();
+  }
+
+  @Benchmark public long flatten() {
+    return MoreStreams.flatten(chunks.stream().map(List::stream)).mapToLong(i -> i).sum();
+  }
+
+  @Benchmark public long flatten_limit() {
+    return MoreStreams.flatten(chunks.stream().map(List::stream))
+        .limit(size / 2)
+        .mapToLong(i -> i)
+        .sum();
+  }
+}
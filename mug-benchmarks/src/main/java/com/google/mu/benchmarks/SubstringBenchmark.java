@@ -0,0 +1,149 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.before;
+import static com.google.mu.util.Substring.between;
+import static com.google.mu.util.Substring.first;
+import static com.google.mu.util.Substring.firstOf;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.mu.util.BiOptional;
+import com.google.mu.util.Substring;
+
+/**
+ * Benchmarks for {@link Substring} patterns, over an input resembling a request header line with
+ * {@code size} comma-delimited key-value pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubstringBenchmark {
+  private static final Substring.Pattern COMMA = first(',');
+  private static final Substring.Pattern EQUALS = first('=');
+  private static final Substring.Pattern SEPARATOR = first("; ");
+  private static final Substring.Pattern BEFORE_LAST_PAIR = before(first("key_last="));
+  private static final Substring.Pattern BRACKETED = between(first('['), first(']'));
+  private static final Substring.Pattern BRACKETED_COMPILED = BRACKETED.compile();
+  private static final Substring.Pattern NESTED =
+      between(first('{'), first('}')).or(before(first(';'))).or(BRACKETED.toEnd());
+  private static final Substring.Pattern NESTED_COMPILED = NESTED.compile();
+  private static final List<String> KEYWORDS =
+      asList("trailer", "key_last", "missing", "absent", "end]", "; ", "nowhere", "unused");
+  private static final Substring.Pattern KEYWORDS_ANY_OF = firstOf(KEYWORDS);
+  private static final Substring.Pattern KEYWORDS_OR_CHAIN =
+      KEYWORDS.stream().map(Substring::first).reduce(Substring.Pattern::or).get();
+
+  @Param({"10", "1000", "100000"})
+  int size;
+
+  private String input;
+
+  @Setup public void setUp() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      builder.append("key").append(i).append("=[value").append(i).append("],");
+    }
+    input = builder.append("key_last=[end]; trailer").toString();
+  }
+
+  @Benchmark public Optional<String> firstChar() {
+    return EQUALS.from(input);
+  }
+
+  @Benchmark public Optional<String> firstString() {
+    return SEPARATOR.from(input);
+  }
+
+  @Benchmark public Optional<String> beforeString() {
+    return BEFORE_LAST_PAIR.from(input);
+  }
+
+  @Benchmark public Optional<String> betweenChars() {
+    return BRACKETED.from(input);
+  }
+
+  @Benchmark public Optional<String> firstOfKeywords() {
+    return KEYWORDS_ANY_OF.from(input);
+  }
+
+  @Benchmark public Optional<String> orChainOfKeywords() {
+    return KEYWORDS_OR_CHAIN.from(input);
+  }
+
+  @Benchmark public Optional<String> betweenChars_compiled() {
+    return BRACKETED_COMPILED.from(input);
+  }
+
+  @Benchmark public Optional<String> nested() {
+    return NESTED.from(input);
+  }
+
+  @Benchmark public Optional<String> nested_compiled() {
+    return NESTED_COMPILED.from(input);
+  }
+
+  @Benchmark public int split_countOnly() {
+    return (int) COMMA.repeatedly().split(input).count();
+  }
+
+  @Benchmark public List<String> split_toStrings() {
+    return COMMA.repeatedly().split(input).map(Object::toString).collect(toList());
+  }
+
+  @Benchmark public long split_thenSplitKeyValues() {
+    return COMMA.repeatedly()
+        .split(input)
+        .map(EQUALS::split)
+        .filter(BiOptional::isPresent)
+        .count();
+  }
+
+  @Benchmark public List<String> betweenRepeatedly() {
+    return BRACKETED.repeatedly().from(input).collect(toList());
+  }
+
+  @Benchmark public List<String> betweenRepeatedly_compiled() {
+    return BRACKETED_COMPILED.repeatedly().from(input).collect(toList());
+  }
+
+  @Benchmark public String removeAll() {
+    return COMMA.repeatedly().removeAllFrom(input);
+  }
+
+  @Benchmark public String replaceAll() {
+    return BRACKETED.repeatedly().replaceAllFrom(input, m -> "***");
+  }
+}
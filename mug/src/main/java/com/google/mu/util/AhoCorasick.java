@@ -0,0 +1,197 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An Aho-Corasick automaton over a fixed set of literal strings, compiled into a dense transition
+ * table so that finding the leftmost occurrence of any literal takes a single pass over the input.
+ *
+ * <p>Only characters appearing in at least one literal get their own column in the table. All other
+ * characters share a single column that leads back to the root state.
+ */
+final class AhoCorasick {
+  private static final int[] NO_ASCII_CLASSES = new int[128];
+
+  private final int[] asciiClasses;
+  private final char[] otherChars;
+  private final int width;
+  private final int[] transitions;
+
+  /** Per state: length of the longest literal ending at the state, or -1 if none. */
+  private final int[] outputLengths;
+
+  /** Per state: index of the longest literal ending at the state, in the caller's order. */
+  private final int[] outputPriorities;
+
+  private final int maxLength;
+
+  AhoCorasick(List<String> literals) {
+    TreeSet<Character> others = new TreeSet<>();
+    int[] ascii = new int[128];
+    int classes = 0;
+    for (String literal : literals) {
+      for (int i = 0; i < literal.length(); i++) {
+        char c = literal.charAt(i);
+        if (c < 128) {
+          if (ascii[c] == 0) {
+            ascii[c] = ++classes;
+          }
+        } else {
+          others.add(c);
+        }
+      }
+    }
+    this.asciiClasses = classes == 0 ? NO_ASCII_CLASSES : ascii;
+    this.otherChars = new char[others.size()];
+    int k = 0;
+    for (char c : others) {
+      otherChars[k++] = c;
+    }
+    this.width = classes + otherChars.length + 1;
+
+    // Build the trie. Missing transitions are -1 until the breadth-first pass fills them in.
+    List<int[]> trie = new ArrayList<>();
+    trie.add(newRow());
+    List<Integer> terminalLengths = new ArrayList<>();
+    List<Integer> terminalPriorities = new ArrayList<>();
+    terminalLengths.add(-1);
+    terminalPriorities.add(-1);
+    int longest = 0;
+    for (int priority = 0; priority < literals.size(); priority++) {
+      String literal = literals.get(priority);
+      longest = Math.max(longest, literal.length());
+      int state = 0;
+      for (int i = 0; i < literal.length(); i++) {
+        int column = columnOf(literal.charAt(i));
+        int next = trie.get(state)[column];
+        if (next < 0) {
+          next = trie.size();
+          trie.get(state)[column] = next;
+          trie.add(newRow());
+          terminalLengths.add(-1);
+          terminalPriorities.add(-1);
+        }
+        state = next;
+      }
+      if (terminalLengths.get(state) < 0) {  // Duplicates keep the first priority.
+        terminalLengths.set(state, literal.length());
+        terminalPriorities.set(state, priority);
+      }
+    }
+    this.maxLength = longest;
+
+    // Breadth-first: compute failure links, turning the trie into a complete DFA.
+    int states = trie.size();
+    int[] table = new int[states * width];
+    int[] failures = new int[states];
+    int[] lengths = new int[states];
+    int[] priorities = new int[states];
+    lengths[0] = terminalLengths.get(0);
+    priorities[0] = terminalPriorities.get(0);
+    int[] queue = new int[states];
+    int head = 0;
+    int tail = 0;
+    int[] root = trie.get(0);
+    for (int column = 0; column < width; column++) {
+      int child = root[column];
+      if (child < 0) {
+        table[column] = 0;
+      } else {
+        table[column] = child;
+        failures[child] = 0;
+        queue[tail++] = child;
+      }
+    }
+    while (head < tail) {
+      int state = queue[head++];
+      int failure = failures[state];
+      // A failure state is a proper suffix, so a literal ending here is always longer.
+      if (terminalLengths.get(state) >= 0) {
+        lengths[state] = terminalLengths.get(state);
+        priorities[state] = terminalPriorities.get(state);
+      } else {
+        lengths[state] = lengths[failure];
+        priorities[state] = priorities[failure];
+      }
+      int[] row = trie.get(state);
+      for (int column = 0; column < width; column++) {
+        int child = row[column];
+        if (child < 0) {
+          table[state * width + column] = table[failure * width + column];
+        } else {
+          table[state * width + column] = child;
+          failures[child] = table[failure * width + column];
+          queue[tail++] = child;
+        }
+      }
+    }
+    this.transitions = table;
+    this.outputLengths = lengths;
+    this.outputPriorities = priorities;
+  }
+
+  /**
+   * Finds the leftmost occurrence of any literal in {@code input} starting from {@code fromIndex}.
+   * When multiple literals occur at the leftmost index, the one appearing first in the literal list
+   * wins. Returns the match as {@code (start << 32) | end}, or -1 if none is found.
+   */
+  long find(CharSequence input, int fromIndex) {
+    int bestStart = -1;
+    int bestEnd = -1;
+    int bestPriority = Integer.MAX_VALUE;
+    int limit = input.length();
+    if (outputLengths[0] == 0) {  // Empty literal matches immediately.
+      bestStart = bestEnd = fromIndex;
+      bestPriority = outputPriorities[0];
+      limit = Math.min(limit, fromIndex + maxLength);
+    }
+    int state = 0;
+    for (int i = fromIndex; i < limit; i++) {
+      state = transitions[state * width + columnOf(input.charAt(i))];
+      int length = outputLengths[state];
+      if (length > 0) {
+        int start = i + 1 - length;
+        int priority = outputPriorities[state];
+        if (bestStart < 0 || start < bestStart || (start == bestStart && priority < bestPriority)) {
+          bestStart = start;
+          bestEnd = i + 1;
+          bestPriority = priority;
+          // No literal starting after bestStart can win, so stop once they all have been seen.
+          limit = Math.min(limit, start + maxLength);
+        }
+      }
+    }
+    return bestStart < 0 ? -1 : ((long) bestStart << 32) | bestEnd;
+  }
+
+  private int columnOf(char c) {
+    if (c < 128) {
+      return asciiClasses[c];
+    }
+    int index = Arrays.binarySearch(otherChars, c);
+    return index < 0 ? 0 : width - otherChars.length + index;
+  }
+
+  private int[] newRow() {
+    int[] row = new int[width];
+    Arrays.fill(row, -1);
+    return row;
+  }
+}
@@ -0,0 +1,86 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for a fixed literal, with the bad-character skip table computed once
+ * so that repeated searches for the same needle don't pay for it again.
+ *
+ * <p>Characters are folded into 256 buckets by their low byte. A bucket's shift is the smallest
+ * shift of any character in it, which keeps the search correct for arbitrary UTF-16 input while
+ * keeping the table small.
+ */
+final class Horspool {
+  /**
+   * Needles shorter than this are left to {@link String#indexOf(String, int)}, which is a
+   * vectorized intrinsic on HotSpot and beats skip-table search until the needle is long enough
+   * for the skips to dominate. On JDK 17 the skip table starts to win at 64 chars; re-check the
+   * crossover on other JVMs with {@code LiteralSearchBenchmark}.
+   */
+  static final int MIN_NEEDLE_LENGTH = 64;
+
+  private final String needle;
+  private final int[] shifts = new int[256];
+
+  /** Returns a {@code Horspool} for {@code needle} if it's long enough to pay off, or else null. */
+  static Horspool forLongNeedle(String needle) {
+    return needle.length() >= MIN_NEEDLE_LENGTH ? new Horspool(needle) : null;
+  }
+
+  Horspool(String needle) {
+    if (needle.isEmpty()) {
+      throw new IllegalArgumentException("Empty needle");
+    }
+    this.needle = needle;
+    int last = needle.length() - 1;
+    Arrays.fill(shifts, needle.length());
+    for (int i = 0; i < last; i++) {
+      shifts[needle.charAt(i) & 0xFF] = last - i;
+    }
+  }
+
+  /** Returns the index of the first occurrence at or after {@code fromIndex}, or -1 if none. */
+  int indexOf(CharSequence haystack, int fromIndex) {
+    int last = needle.length() - 1;
+    char lastChar = needle.charAt(last);
+    int end = haystack.length() - last;
+    for (int i = Math.max(fromIndex, 0); i < end; ) {
+      char c = haystack.charAt(i + last);
+      if (c == lastChar && regionMatches(haystack, i, last)) {
+        return i;
+      }
+      i += shifts[c & 0xFF];
+    }
+    return -1;
+  }
+
+  private boolean regionMatches(CharSequence haystack, int offset, int length) {
+    if (haystack instanceof String) {
+      return ((String) haystack).regionMatches(offset, needle, 0, length);
+    }
+    for (int i = 0; i < length; i++) {
+      if (haystack.charAt(offset + i) != needle.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override public String toString() {
+    return needle;
+  }
+}
@@ -0,0 +1,236 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.google.mu.util.stream.MoreStreams;
+
+/**
+ * Splits character or UTF-8 byte input by a literal delimiter, reading the input incrementally
+ * through a bounded buffer. This is the streaming counterpart of {@code
+ * Substring.first(delimiter).repeatedly().split(string)}, for inputs too large to be held in
+ * memory as a whole, such as multi-GB files:
+ *
+ * <pre>{@code
+ * try (FileChannel channel = FileChannel.open(path)) {
+ *   long errors = StreamingSplitter.on('\n')
+ *       .split(channel)
+ *       .filter(line -> line.contains("ERROR"))
+ *       .count();
+ * }
+ * }</pre>
+ *
+ * <p>Delimiters that straddle two buffer fills are found just the same. Memory use is bounded by
+ * the buffer size, or by the longest single part of the input if that doesn't fit in the buffer
+ * (the buffer grows to hold it).
+ *
+ * <p>Like {@link Substring.RepeatingPattern#split}, an input ending with the delimiter yields a
+ * trailing empty string, and an empty input yields a single empty string.
+ *
+ * <p>The input is read lazily as the returned stream is consumed, and isn't closed by this class.
+ * {@link IOException}s thrown while reading are rethrown as {@link UncheckedIOException}.
+ *
+ * @since 5.3
+ */
+public final class StreamingSplitter {
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final String delimiter;
+  private final int bufferSize;
+
+  private StreamingSplitter(String delimiter, int bufferSize) {
+    this.delimiter = delimiter;
+    this.bufferSize = bufferSize;
+  }
+
+  /** Returns a splitter using {@code delimiter}. */
+  public static StreamingSplitter on(char delimiter) {
+    return on(Character.toString(delimiter));
+  }
+
+  /** Returns a splitter using {@code delimiter}, which must not be empty. */
+  public static StreamingSplitter on(String delimiter) {
+    if (delimiter.isEmpty()) {
+      throw new IllegalArgumentException("Delimiter cannot be empty.");
+    }
+    return new StreamingSplitter(delimiter, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a splitter that reads through a buffer of {@code size} chars (for {@link Reader}) or
+   * bytes (for {@link ReadableByteChannel}). Default is 8192.
+   */
+  public StreamingSplitter withBufferSize(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Buffer size (" + size + ") must be positive.");
+    }
+    return new StreamingSplitter(delimiter, size);
+  }
+
+  /** Lazily splits the characters read from {@code reader}. */
+  public Stream<String> split(Reader reader) {
+    requireNonNull(reader);
+    char[] target = delimiter.toCharArray();
+    return MoreStreams.whileNotNull(new Supplier<String>() {
+      private char[] buffer = new char[Math.max(bufferSize, target.length)];
+      private int start;
+      private int end;
+      private int searchFrom;
+      private boolean eof;
+      private boolean done;
+
+      @Override public String get() {
+        while (!done) {
+          int index = indexOf(buffer, searchFrom, end, target);
+          if (index >= 0) {
+            String part = new String(buffer, start, index - start);
+            start = searchFrom = index + target.length;
+            return part;
+          }
+          if (eof) {
+            done = true;
+            return new String(buffer, start, end - start);
+          }
+          // The delimiter may straddle the current end of data, so re-scan its last few chars.
+          searchFrom = Math.max(start, end - target.length + 1);
+          if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            searchFrom -= start;
+            start = 0;
+          }
+          if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          try {
+            int read = reader.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+              eof = true;
+            } else {
+              end += read;
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+  /** Lazily splits the UTF-8 bytes read from {@code channel}, such as a {@code FileChannel}. */
+  public Stream<String> split(ReadableByteChannel channel) {
+    requireNonNull(channel);
+    byte[] target = delimiter.getBytes(UTF_8);
+    return MoreStreams.whileNotNull(new Supplier<String>() {
+      private byte[] buffer = new byte[Math.max(bufferSize, target.length)];
+      private int start;
+      private int end;
+      private int searchFrom;
+      private boolean eof;
+      private boolean done;
+
+      @Override public String get() {
+        while (!done) {
+          int index = indexOf(buffer, searchFrom, end, target);
+          if (index >= 0) {
+            String part = new String(buffer, start, index - start, UTF_8);
+            start = searchFrom = index + target.length;
+            return part;
+          }
+          if (eof) {
+            done = true;
+            return new String(buffer, start, end - start, UTF_8);
+          }
+          // The delimiter may straddle the current end of data, so re-scan its last few bytes.
+          searchFrom = Math.max(start, end - target.length + 1);
+          if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            searchFrom -= start;
+            start = 0;
+          }
+          if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          try {
+            int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+            if (read < 0) {
+              eof = true;
+            } else {
+              end += read;
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+  @Override public String toString() {
+    return "StreamingSplitter.on('" + delimiter + "')";
+  }
+
+  private static int indexOf(char[] buffer, int from, int to, char[] target) {
+    char head = target[0];
+    for (int i = from; i <= to - target.length; i++) {
+      if (buffer[i] == head && regionMatches(buffer, i, target)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(char[] buffer, int offset, char[] target) {
+    for (int i = 1; i < target.length; i++) {
+      if (buffer[offset + i] != target[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(byte[] buffer, int from, int to, byte[] target) {
+    byte head = target[0];
+    for (int i = from; i <= to - target.length; i++) {
+      if (buffer[i] == head && regionMatches(buffer, i, target)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(byte[] buffer, int offset, byte[] target) {
+    for (int i = 1; i < target.length; i++) {
+      if (buffer[offset + i] != target[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
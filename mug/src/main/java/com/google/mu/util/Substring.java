@@ -18,7 +18,10 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -99,9 +102,9 @@ public final class Substring {
 
   /** {@code Pattern} that never matches any substring. */
   public static final Pattern NONE = new Pattern() {
-    @Override Match match(String s, int fromIndex) {
+    @Override boolean scan(CharSequence s, int fromIndex, Cursor cursor) {
       requireNonNull(s);
-      return null;
+      return false;
     }
     @Override public String toString() {
       return "NONE";
@@ -118,8 +121,8 @@ public final class Substring {
    */
   public static final Pattern BEGINNING =
       new Pattern() {
-        @Override Match match(String str, int fromIndex) {
-          return new Match(str, fromIndex, 0);
+        @Override boolean scan(CharSequence str, int fromIndex, Cursor cursor) {
+          return cursor.set(fromIndex, fromIndex, fromIndex);
         }
 
         @Override public String toString() {
@@ -139,8 +142,9 @@ public final class Substring {
    */
   public static final Pattern END =
       new Pattern() {
-        @Override Match match(String str, int fromIndex) {
-          return new Match(str, str.length(), 0);
+        @Override boolean scan(CharSequence str, int fromIndex, Cursor cursor) {
+          int end = str.length();
+          return cursor.set(end, end, end);
         }
 
         @Override public String toString() {
@@ -151,8 +155,9 @@ public final class Substring {
   /** {@code Pattern} that matches the entire string. */
   private static final Pattern FULL_STRING =
       new Pattern() {
-        @Override public Match match(String s, int fromIndex) {
-          return new Match(s, fromIndex, s.length() - fromIndex);
+        @Override boolean scan(CharSequence s, int fromIndex, Cursor cursor) {
+          int end = s.length();
+          return cursor.set(fromIndex, end, end);
         }
 
         @Override public String toString() {
@@ -210,15 +215,33 @@ public final class Substring {
     return first(str);
   }
 
-  /** Returns a {@code Pattern} that matches the first occurrence of {@code str}. */
+  /**
+   * Returns a {@code Pattern} that matches the first occurrence of {@code str}.
+   *
+   * <p>For long literals such as multipart boundaries, a skip table is computed once when the
+   * pattern is created and reused by every subsequent match, including {@link Pattern#repeatedly}.
+   */
   public static Pattern first(String str) {
     if (str.length() == 1) {
       return first(str.charAt(0));
     }
+    Horspool searcher = Horspool.forLongNeedle(str);
+    if (searcher != null) {
+      return new Pattern() {
+        @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+          int index = searcher.indexOf(input, fromIndex);
+          return index >= 0 && cursor.set(index, index + str.length());
+        }
+
+        @Override public String toString() {
+          return "first('" + str + "')";
+        }
+      };
+    }
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.indexOf(str, fromIndex);
-        return index >= 0 ? new Match(input, index, str.length()) : null;
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        int index = indexOf(input, str, fromIndex);
+        return index >= 0 && cursor.set(index, index + str.length());
       }
 
       @Override public String toString() {
@@ -229,14 +252,40 @@ public final class Substring {
 
   /** Returns a {@code Pattern} that matches the first occurrence of {@code character}. */
   public static Pattern first(char character) {
+    return new FirstChar(character);
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the leftmost occurrence of any of {@code candidates}.
+   * If more than one candidate occurs at the leftmost index, the one that comes first in
+   * {@code candidates} is matched, the same way regex alternation {@code "foo|foobar"} behaves.
+   *
+   * <p>Unlike {@code first("foo").or(first("bar"))}, which scans the input once per alternative and
+   * prefers an earlier alternative even if it occurs further to the right, the candidates are
+   * compiled into a single automaton that finds the leftmost match in one pass. For example:
+   *
+   * <pre>
+   *   private static final Substring.Pattern KEYWORD =
+   *       Substring.firstOf(asList("ERROR", "WARN", "FATAL"));
+   *   assertThat(KEYWORD.repeatedly().from("WARN: disk full; ERROR: write failed"))
+   *       .containsExactly("WARN", "ERROR");
+   * </pre>
+   *
+   * @since 5.3
+   */
+  public static Pattern firstOf(Collection<String> candidates) {
+    List<String> literals = candidates.stream().peek(Objects::requireNonNull).collect(toList());
+    AhoCorasick automaton = new AhoCorasick(literals);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.indexOf(character, fromIndex);
-        return index >= 0 ? new Match(input, index, 1) : null;
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        long found = automaton.find(input, fromIndex);
+        return found >= 0 && cursor.set((int) (found >>> 32), (int) found);
       }
 
       @Override public String toString() {
-        return "first(\'" + character + "\')";
+        return "firstOf("
+            + literals.stream().map(s -> "'" + s + "'").collect(joining(", "))
+            + ")";
       }
     };
   }
@@ -277,7 +326,7 @@ public final class Substring {
     requireNonNull(regexPattern);
     return new RepeatingPattern() {
       @Override
-      public Stream<Match> match(String string) {
+      public Stream<Match> match(CharSequence string) {
         Matcher matcher = regexPattern.matcher(string);
         if (!matcher.find()) return Stream.empty();
         int groups = matcher.groupCount();
@@ -333,16 +382,15 @@ public final class Substring {
       throw new IndexOutOfBoundsException("Capturing group " + group + " doesn't exist.");
     }
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
         CharSequence remaining =
             fromIndex == 0 ? input : new Match(input, fromIndex, input.length() - fromIndex);
         Matcher matcher = regexPattern.matcher(remaining);
-        if (matcher.find()) {
-          int start = matcher.start(group);
-          return new Match(
-              input, fromIndex + start, matcher.end(group) - start, fromIndex + matcher.end());
-        }
-        return null;
+        return matcher.find()
+            && cursor.set(
+                fromIndex + matcher.start(group),
+                fromIndex + matcher.end(group),
+                fromIndex + matcher.end());
       }
 
       @Override public String toString() {
@@ -361,20 +409,25 @@ public final class Substring {
         Stream.concat(Stream.of(stop1, stop2), Arrays.stream(moreStops))
             .peek(Objects::requireNonNull)
             .collect(toList());
+    Horspool[] searchers = stops.stream().map(Horspool::forLongNeedle).toArray(Horspool[]::new);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
         int begin = -1;
-        for (String stop : stops) {
-          int index = input.indexOf(stop, fromIndex);
+        for (int i = 0; i < searchers.length; i++) {
+          String stop = stops.get(i);
+          int index =
+              searchers[i] == null
+                  ? indexOf(input, stop, fromIndex)
+                  : searchers[i].indexOf(input, fromIndex);
           if (index < 0) {
-            return null;
+            return false;
           }
           if (begin == -1) {
             begin = index;
           }
           fromIndex = index + stop.length();
         }
-        return new Match(input, begin, fromIndex - begin);
+        return cursor.set(begin, fromIndex);
       }
 
       @Override public String toString() {
@@ -391,9 +444,9 @@ public final class Substring {
       return last(str.charAt(0));
     }
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.lastIndexOf(str);
-        return index >= fromIndex ? new Match(input, index, str.length()) : null;
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        int index = lastIndexOf(input, str);
+        return index >= fromIndex && cursor.set(index, index + str.length());
       }
 
       @Override public String toString() {
@@ -405,9 +458,9 @@ public final class Substring {
   /** Returns a {@code Pattern} that matches the last occurrence of {@code character}. */
   public static Pattern last(char character) {
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.lastIndexOf(character);
-        return index >= fromIndex ? new Match(input, index, 1) : null;
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        int index = lastIndexOf(input, character);
+        return index >= fromIndex && cursor.set(index, index + 1);
       }
 
       @Override public String toString() {
@@ -428,14 +481,30 @@ public final class Substring {
   public static Pattern before(Pattern delimiter) {
     requireNonNull(delimiter);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        Match match = delimiter.match(input, fromIndex);
-        return match == null
-            ? null
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        return delimiter.scan(input, fromIndex, cursor)
             // For example when matching before(first("//")) against "http://", there should be
             // only one iteration, which is "http:". If the next scan starts before //, we'd get
             // an empty string match.
-            : new Match(input, fromIndex, match.startIndex - fromIndex, match.succeedingIndex);
+            && cursor.set(fromIndex, cursor.startIndex, cursor.succeedingIndex);
+      }
+
+      @Override Pattern optimize() {
+        Pattern optimized = delimiter.optimize();
+        if (optimized instanceof FirstChar) {
+          char c = ((FirstChar) optimized).character;
+          return new Pattern() {
+            @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+              int index = indexOf(input, c, fromIndex);
+              return index >= 0 && cursor.set(fromIndex, index, index + 1);
+            }
+
+            @Override public String toString() {
+              return "before(" + optimized + ")";
+            }
+          };
+        }
+        return optimized == delimiter ? this : before(optimized);
       }
 
       @Override public String toString() {
@@ -456,9 +525,28 @@ public final class Substring {
   public static Pattern after(Pattern delimiter) {
     requireNonNull(delimiter);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        Match match = delimiter.match(input, fromIndex);
-        return match == null ? null : match.following();
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        int end = input.length();
+        return delimiter.scan(input, fromIndex, cursor) && cursor.set(cursor.endIndex, end, end);
+      }
+
+      @Override Pattern optimize() {
+        Pattern optimized = delimiter.optimize();
+        if (optimized instanceof FirstChar) {
+          char c = ((FirstChar) optimized).character;
+          return new Pattern() {
+            @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+              int index = indexOf(input, c, fromIndex);
+              int end = input.length();
+              return index >= 0 && cursor.set(index + 1, end, end);
+            }
+
+            @Override public String toString() {
+              return "after(" + optimized + ")";
+            }
+          };
+        }
+        return optimized == delimiter ? this : after(optimized);
       }
 
       @Override public String toString() {
@@ -483,12 +571,15 @@ public final class Substring {
   public static Pattern upToIncluding(Pattern pattern) {
     requireNonNull(pattern);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        Match match = pattern.match(input, fromIndex);
-        return match == null
-            ? null
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        return pattern.scan(input, fromIndex, cursor)
             // Do not include the delimiter pattern in the next iteration.
-            : new Match(input, fromIndex, match.endIndex - fromIndex, match.succeedingIndex);
+            && cursor.set(fromIndex, cursor.endIndex, cursor.succeedingIndex);
+      }
+
+      @Override Pattern optimize() {
+        Pattern optimized = pattern.optimize();
+        return optimized == pattern ? this : upToIncluding(optimized);
       }
 
       @Override public String toString() {
@@ -511,19 +602,41 @@ public final class Substring {
     requireNonNull(open);
     requireNonNull(close);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        Match left = open.match(input, fromIndex);
-        if (left == null) {
-          return null;
+      @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+        if (!open.scan(input, fromIndex, cursor)) {
+          return false;
         }
-        Match right = close.match(input, left.endIndex);
-        if (right == null) {
-          return null;
-        }
-        return new Match(
+        int start = cursor.endIndex;
+        return close.scan(input, start, cursor)
             // Include the closing delimiter in the next iteration. This allows delimiters in
             // patterns like "/foo/bar/baz/" to be treated more intuitively.
-            input, /*startIndex=*/ left.endIndex, /*length=*/ right.startIndex - left.endIndex);
+            && cursor.set(start, cursor.startIndex);
+      }
+
+      @Override Pattern optimize() {
+        Pattern optimizedOpen = open.optimize();
+        Pattern optimizedClose = close.optimize();
+        if (optimizedOpen instanceof FirstChar && optimizedClose instanceof FirstChar) {
+          char openChar = ((FirstChar) optimizedOpen).character;
+          char closeChar = ((FirstChar) optimizedClose).character;
+          return new Pattern() {
+            @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+              int begin = indexOf(input, openChar, fromIndex);
+              if (begin < 0) {
+                return false;
+              }
+              int end = indexOf(input, closeChar, begin + 1);
+              return end >= 0 && cursor.set(begin + 1, end);
+            }
+
+            @Override public String toString() {
+              return "between(" + optimizedOpen + ", " + optimizedClose + ")";
+            }
+          };
+        }
+        return optimizedOpen == open && optimizedClose == close
+            ? this
+            : between(optimizedOpen, optimizedClose);
       }
 
       @Override public String toString() {
@@ -532,7 +645,15 @@ public final class Substring {
     };
   }
 
-  /** A pattern that can be matched against a string, finding a single substring from it. */
+  /**
+   * A pattern that can be matched against a string, finding a single substring from it.
+   *
+   * <p>Methods accepting a {@code CharSequence}, such as {@link #in}, {@link #from} and {@link
+   * #split}, match directly against the input without first copying it into a {@code String}. So a
+   * {@code StringBuilder} or a {@link java.nio.CharBuffer} decoded from the network can be parsed in
+   * place, and only the substrings actually retrieved are copied. The input must not be modified
+   * while a {@link Match} from it is still in use.
+   */
   public abstract static class Pattern {
     /**
      * Matches this pattern against {@code string}, returning a {@code Match} if successful, or
@@ -542,10 +663,15 @@ public final class Substring {
      * {@link Match#before}. If you just need the matched substring itself, prefer to use {@link
      * #from} instead.
      */
-    public final Optional<Match> in(String string) {
+    public final Optional<Match> in(CharSequence string) {
       return Optional.ofNullable(match(string));
     }
 
+    /** Same as {@link #in(CharSequence)}, kept for binary compatibility. */
+    public final Optional<Match> in(String string) {
+      return in((CharSequence) string);
+    }
+
     /**
      * Matches this pattern against {@code string}, returning the matched substring if successful,
      * or {@code empty()} otherwise. {@code pattern.from(str)} is equivalent to {@code
@@ -555,7 +681,7 @@ public final class Substring {
      * to call {@link Match} methods, like {@link Match#remove} or {@link Match#before}.
      */
     public final Optional<String> from(CharSequence string) {
-      return Optional.ofNullable(Objects.toString(match(string.toString()), null));
+      return Optional.ofNullable(Objects.toString(match(string), null));
     }
 
     /** @deprecated Use {@code repeatedly().match(input)} instead. */
@@ -618,9 +744,28 @@ public final class Substring {
     public final Pattern toEnd() {
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
-          Match match = base.match(input, fromIndex);
-          return match == null ? null : match.toEnd();
+        @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+          int end = input.length();
+          return base.scan(input, fromIndex, cursor) && cursor.set(cursor.startIndex, end, end);
+        }
+
+        @Override Pattern optimize() {
+          Pattern optimized = base.optimize();
+          if (optimized instanceof FirstChar) {
+            char c = ((FirstChar) optimized).character;
+            return new Pattern() {
+              @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+                int index = indexOf(input, c, fromIndex);
+                int end = input.length();
+                return index >= 0 && cursor.set(index, end, end);
+              }
+
+              @Override public String toString() {
+                return optimized + ".toEnd()";
+              }
+            };
+          }
+          return optimized == base ? this : optimized.toEnd();
         }
 
         @Override public String toString() {
@@ -637,9 +782,16 @@ public final class Substring {
       requireNonNull(that);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
-          Match match = base.match(input, fromIndex);
-          return match == null ? that.match(input, fromIndex) : match;
+        @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+          return base.scan(input, fromIndex, cursor) || that.scan(input, fromIndex, cursor);
+        }
+
+        @Override Pattern optimize() {
+          Pattern optimizedBase = base.optimize();
+          Pattern optimizedThat = that.optimize();
+          return optimizedBase == base && optimizedThat == that
+              ? this
+              : optimizedBase.or(optimizedThat);
         }
 
         @Override public String toString() {
@@ -664,7 +816,7 @@ public final class Substring {
      * @since 5.0
      */
     public final BiOptional<String, String> split(CharSequence string) {
-      Match match = match(string.toString());
+      Match match = match(string);
       return match == null ? BiOptional.empty() : BiOptional.of(match.before(), match.after());
     }
 
@@ -707,12 +859,69 @@ public final class Substring {
      * @since 5.0
      */
     public final BiOptional<String, String> splitThenTrim(CharSequence string) {
-      Match match = match(string.toString());
+      Match match = match(string);
       return match == null
           ? BiOptional.empty()
           : BiOptional.of(match.before().trim(), match.after().trim());
     }
 
+    /**
+     * Splits {@code string} into two parts that are separated by this separator pattern, as cheap
+     * {@code CharSequence} views of {@code string}. Unlike {@link #split}, no characters are copied
+     * until {@code toString()} is called on either part. So if only one part is needed, or the
+     * parts are passed to {@code CharSequence}-accepting APIs (including another {@code Pattern}),
+     * no substring is ever allocated. For example:
+     *
+     * <pre>{@code
+     * Optional<MediaType> contentType = first(':')
+     *     .splitThenTrimView(header)
+     *     .filter((name, value) -> "Content-Type".contentEquals(name))
+     *     .map((name, value) -> MediaType.parse(value.toString()));
+     * }</pre>
+     *
+     * <p>The views hold a reference to {@code string}, with the same caveats as {@link Match}.
+     *
+     * @since 5.3
+     */
+    public final BiOptional<CharSequence, CharSequence> splitView(CharSequence string) {
+      Match match = match(string);
+      return match == null
+          ? BiOptional.empty()
+          : BiOptional.of(match.beforeView(), match.afterView());
+    }
+
+    /**
+     * Same as {@link #splitView}, but with leading and trailing whitespaces of both parts excluded
+     * from the views. Equivalent to {@link #splitThenTrim} except that no characters are copied.
+     *
+     * @since 5.3
+     */
+    public final BiOptional<CharSequence, CharSequence> splitThenTrimView(CharSequence string) {
+      Match match = match(string);
+      return match == null
+          ? BiOptional.empty()
+          : BiOptional.of(match.preceding().trim(), match.following().trim());
+    }
+
+    /**
+     * Returns an equivalent pattern, with the tree of combinators that this pattern was composed
+     * from flattened into specialized matchers where possible. For example, {@code
+     * between(first('['), first(']'))} is compiled into a single loop of two {@code indexOf} calls,
+     * the same as would be written by hand, instead of a chain of nested patterns.
+     *
+     * <p>Compiling is cheap but not free, so compile once and store the result in a constant:
+     *
+     * <pre>
+     *   private static final Substring.Pattern BRACKETED =
+     *       Substring.between(first('['), first(']')).compile();
+     * </pre>
+     *
+     * @since 5.3
+     */
+    public final Pattern compile() {
+      return optimize();
+    }
+
     /**
      * Returns a {@link RepeatingPattern} that applies this pattern repeatedly against the input
      * string. That is, after each iteration, the pattern is applied again over the substring after
@@ -724,36 +933,37 @@ public final class Substring {
       Pattern repeatable = Pattern.this;
       return new RepeatingPattern() {
         @Override
-        public Stream<Match> match(String input) {
-          return MoreStreams.whileNotNull(
-              new Supplier<Match>() {
-                private final int end = input.length();
-                private int nextIndex = 0;
-
-                @Override
-                public Match get() {
-                  if (nextIndex > end) {
-                    return null;
-                  }
-                  Match match = repeatable.match(input, nextIndex);
-                  if (match == null) {
-                    return null;
-                  }
-                  if (match.endIndex == end) { // We've consumed the entire string.
-                    nextIndex = Integer.MAX_VALUE;
-                  } else if (match.succeedingIndex > nextIndex) {
-                    nextIndex = match.succeedingIndex;
-                  } else {
-                    // instead of being stuck in infinite loop, consider this the end.
-                    nextIndex = Integer.MAX_VALUE;
-                  }
-                  return match;
-                }
-              });
+        public Stream<Match> match(CharSequence input) {
+          Scanner scanner = scanner(input);
+          return MoreStreams.whileNotNull(() -> scanner.next() ? scanner.toMatch(input) : null);
+        }
+
+        @Override
+        Scanner scanner(CharSequence input) {
+          requireNonNull(input);
+          return new Scanner() {
+            private final int end = input.length();
+            private int nextIndex = 0;
+
+            @Override boolean next() {
+              if (nextIndex > end || !repeatable.scan(input, nextIndex, this)) {
+                return false;
+              }
+              if (endIndex == end) { // We've consumed the entire string.
+                nextIndex = Integer.MAX_VALUE;
+              } else if (succeedingIndex > nextIndex) {
+                nextIndex = succeedingIndex;
+              } else {
+                // instead of being stuck in infinite loop, consider this the end.
+                nextIndex = Integer.MAX_VALUE;
+              }
+              return true;
+            }
+          };
         }
 
         @Override
-        public Stream<Match> split(String string) {
+        public Stream<Match> split(CharSequence string) {
           if (repeatable.match("") != null) {
             throw new IllegalStateException("Pattern (" + repeatable + ") cannot be used as delimiter.");
           }
@@ -771,9 +981,31 @@ public final class Substring {
      * Matches against {@code string} starting from {@code fromIndex}, and returns null if not
      * found.
      */
-    abstract Match match(String string, int fromIndex);
+    final Match match(CharSequence string, int fromIndex) {
+      Cursor cursor = new Cursor();
+      return scan(string, fromIndex, cursor) ? cursor.toMatch(string) : null;
+    }
+
+    /**
+     * Matches against {@code string} starting from {@code fromIndex}. If found, the match is
+     * recorded in {@code cursor} and true is returned. Otherwise returns false, in which case the
+     * state of {@code cursor} is unspecified.
+     *
+     * <p>Composite patterns pass the same {@code cursor} to their components, so that no
+     * intermediary {@link Match} objects need to be allocated.
+     */
+    abstract boolean scan(CharSequence string, int fromIndex, Cursor cursor);
+
+    /**
+     * Returns an equivalent pattern with the composition flattened where possible. Composites
+     * override this to optimize their components, and to replace common shapes with a single
+     * specialized matcher.
+     */
+    Pattern optimize() {
+      return this;
+    }
 
-    private Match match(String string) {
+    private Match match(CharSequence string) {
       return match(string, 0);
     }
 
@@ -808,10 +1040,37 @@ public final class Substring {
      *
      * <p>An empty stream is returned if this pattern has no matches in the {@code input} string.
      */
-    public abstract Stream<Match> match(String input);
+    public abstract Stream<Match> match(CharSequence input);
+
+    /** Same as {@link #match(CharSequence)}, kept for binary compatibility. */
+    public Stream<Match> match(String input) {
+      return match((CharSequence) input);
+    }
 
     public Stream<String> from(CharSequence input) {
-      return match(input.toString()).map(Match::toString);
+      return match(input).map(Match::toString);
+    }
+
+    /**
+     * Applies this pattern against {@code string} and passes the {@code [startIndex, endIndex)}
+     * index range of each iteration to {@code visitor}, in the same order as {@link #match}.
+     *
+     * <p>Unlike {@link #match}, no {@link Match} object is allocated per iteration. This makes it
+     * suitable for hot loops that only need the positions of the matches. For example, to count
+     * the fields in a comma-separated line:
+     *
+     * <pre>{@code
+     * int[] commas = {0};
+     * first(',').repeatedly().forEachMatch(line, (start, end) -> commas[0]++);
+     * }</pre>
+     *
+     * @since 5.3
+     */
+    public void forEachMatch(CharSequence string, MatchVisitor visitor) {
+      requireNonNull(visitor);
+      for (Scanner scanner = scanner(string); scanner.next(); ) {
+        visitor.visit(scanner.startIndex, scanner.endIndex);
+      }
     }
 
     /**
@@ -819,7 +1078,17 @@ public final class Substring {
      * string} as is if no match is found.
      */
     public String removeAllFrom(String string) {
-      return replaceAllFrom(string, m -> "");
+      Scanner scanner = scanner(string);
+      if (!scanner.next()) {
+        return string;
+      }
+      StringBuilder builder = new StringBuilder(string.length());
+      int index = 0;
+      do {
+        builder.append(string, index, scanner.startIndex);
+        index = scanner.endIndex;
+      } while (scanner.next());
+      return builder.append(string, index, string.length()).toString();
     }
 
     /**
@@ -832,15 +1101,15 @@ public final class Substring {
     public String replaceAllFrom(
         String string, Function<? super Match, ? extends CharSequence> replacementFunction) {
       requireNonNull(replacementFunction);
-      Iterator<Match> matches = match(string).iterator();
-      if (!matches.hasNext()) {
+      Scanner scanner = scanner(string);
+      if (!scanner.next()) {
         return string;
       }
       // Add the chars between the previous and current match.
       StringBuilder builder = new StringBuilder(string.length());
       int index = 0;
       do {
-        Match match = matches.next();
+        Match match = scanner.toMatch(string);
         CharSequence replacement = replacementFunction.apply(match);
         if (replacement == null) {
           throw new NullPointerException("No replacement is returned for " + match);
@@ -849,12 +1118,83 @@ public final class Substring {
             .append(string, index, match.startIndex)
             .append(replacement);
         index = match.endIndex;
-      } while (matches.hasNext());
+      } while (scanner.next());
 
       // Add the remaining chars
       return builder.append(string, index, string.length()).toString();
     }
 
+    /**
+     * Appends {@code string} to {@code out} with all {@link #match matches} of this pattern
+     * removed, and returns {@code out}.
+     *
+     * <p>Unlike {@link #removeAllFrom}, no intermediary string is created, so the output can be
+     * streamed into a {@code Writer}, or accumulated in a reused {@code StringBuilder}.
+     *
+     * @throws UncheckedIOException if {@code out} throws {@link IOException}
+     * @since 5.3
+     */
+    public <A extends Appendable> A removeAllInto(CharSequence string, A out) {
+      requireNonNull(out);
+      try {
+        int index = 0;
+        for (Scanner scanner = scanner(string); scanner.next(); ) {
+          out.append(string, index, scanner.startIndex);
+          index = scanner.endIndex;
+        }
+        out.append(string, index, string.length());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out;
+    }
+
+    /**
+     * Appends {@code string} to {@code out} with all {@link #match matches} of this pattern
+     * replaced by applying {@code replacementFunction} for each match, and returns {@code out}.
+     *
+     * <p>Unlike {@link #replaceAllFrom}, no intermediary string is created, so the output can be
+     * streamed into a {@code Writer}, or accumulated in a reused {@code StringBuilder}. For
+     * example:
+     *
+     * <pre>{@code
+     * StringBuilder buffer = new StringBuilder();
+     * for (String line : lines) {
+     *   buffer.setLength(0);
+     *   PLACEHOLDER.repeatedly().replaceAllInto(line, m -> values.get(m.toString()), buffer);
+     *   emit(buffer);
+     * }
+     * }</pre>
+     *
+     * <p>{@code replacementFunction} must not return null.
+     *
+     * @throws UncheckedIOException if {@code out} throws {@link IOException}
+     * @since 5.3
+     */
+    public <A extends Appendable> A replaceAllInto(
+        CharSequence string,
+        Function<? super Match, ? extends CharSequence> replacementFunction,
+        A out) {
+      requireNonNull(replacementFunction);
+      requireNonNull(out);
+      try {
+        int index = 0;
+        for (Scanner scanner = scanner(string); scanner.next(); ) {
+          Match match = scanner.toMatch(string);
+          CharSequence replacement = replacementFunction.apply(match);
+          if (replacement == null) {
+            throw new NullPointerException("No replacement is returned for " + match);
+          }
+          out.append(string, index, match.startIndex).append(replacement);
+          index = match.endIndex;
+        }
+        out.append(string, index, string.length());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out;
+    }
+
     /**
      * Returns a stream of {@code Match} objects delimited by every match of this pattern. If this
      * pattern isn't found in {@code string}, the full string is matched.
@@ -864,18 +1204,17 @@ public final class Substring {
      * be directly passed to {@code CharSequence}-accepting APIs such as {@link
      * CharMatcher#trimFrom} and {@link Pattern#splitThenTrim} etc.
      */
-    public Stream<Match> split(String string) {
+    public Stream<Match> split(CharSequence string) {
       return MoreStreams.whileNotNull(
           new Supplier<Match>() {
             int next = 0;
-            Iterator<Match> it = match(string).iterator();
+            Scanner delimiters = scanner(string);
 
             @Override
             public Match get() {
-              if (it.hasNext()) {
-                Match delim = it.next();
-                Match result = new Match(string, next, delim.index() - next);
-                next = delim.endIndex;
+              if (next >= 0 && delimiters.next()) {
+                Match result = new Match(string, next, delimiters.startIndex - next);
+                next = delimiters.endIndex;
                 return result;
               }
               if (next >= 0) {
@@ -889,6 +1228,11 @@ public final class Substring {
           });
     }
 
+    /** Same as {@link #split(CharSequence)}, kept for binary compatibility. */
+    public Stream<Match> split(String string) {
+      return split((CharSequence) string);
+    }
+
     /**
      * Returns a stream of {@code Match} objects delimited by every match of this pattern. with
      * whitespaces trimmed.
@@ -898,13 +1242,97 @@ public final class Substring {
      * be directly passed to {@code CharSequence}-accepting APIs such as {@link
      * CharMatcher#trimFrom} and {@link Pattern#split} etc.
      */
-    public Stream<Match> splitThenTrim(String string) {
+    public Stream<Match> splitThenTrim(CharSequence string) {
       return split(string).map(Match::trim);
     }
 
+    /** Same as {@link #splitThenTrim(CharSequence)}, kept for binary compatibility. */
+    public Stream<Match> splitThenTrim(String string) {
+      return splitThenTrim((CharSequence) string);
+    }
+
+    /**
+     * Returns a {@link Scanner} over the matches in {@code input}. By default it iterates through
+     * {@link #match}; subclasses can override to avoid allocating {@link Match} objects.
+     */
+    Scanner scanner(CharSequence input) {
+      Iterator<Match> matches = match(input).iterator();
+      return new Scanner() {
+        @Override boolean next() {
+          if (!matches.hasNext()) {
+            return false;
+          }
+          Match match = matches.next();
+          return set(match.startIndex, match.endIndex, match.succeedingIndex);
+        }
+      };
+    }
+
     RepeatingPattern() {}
   }
 
+  /**
+   * Receives the index range of each match found by {@link RepeatingPattern#forEachMatch}.
+   *
+   * @since 5.3
+   */
+  @FunctionalInterface
+  public interface MatchVisitor {
+    /**
+     * Visits a match spanning from {@code startIndex} (inclusive) to {@code endIndex} (exclusive)
+     * of the input string.
+     */
+    void visit(int startIndex, int endIndex);
+  }
+
+  /** Matches the first occurrence of a character. Composites specialize on it in optimize(). */
+  private static final class FirstChar extends Pattern {
+    final char character;
+
+    FirstChar(char character) {
+      this.character = character;
+    }
+
+    @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+      int index = indexOf(input, character, fromIndex);
+      return index >= 0 && cursor.set(index, index + 1);
+    }
+
+    @Override public String toString() {
+      return "first(\'" + character + "\')";
+    }
+  }
+
+  /** Mutable match position, reused across scans to avoid allocating {@link Match} objects. */
+  static class Cursor {
+    int startIndex;
+    int endIndex;
+    int succeedingIndex;
+
+    /** Records a match where the next scan should start right after the match. */
+    final boolean set(int startIndex, int endIndex) {
+      return set(startIndex, endIndex, endIndex);
+    }
+
+    /** Records a match. Always returns true for the convenience of {@code &&} chaining. */
+    final boolean set(int startIndex, int endIndex, int succeedingIndex) {
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.succeedingIndex = succeedingIndex;
+      return true;
+    }
+
+    final Match toMatch(CharSequence input) {
+      return new Match(input, startIndex, endIndex - startIndex, succeedingIndex);
+    }
+  }
+
+  /** A {@link Cursor} that moves through the successive matches of a {@link RepeatingPattern}. */
+  abstract static class Scanner extends Cursor {
+    /** Advances to the next match. Returns false if there are no more matches. */
+    abstract boolean next();
+  }
+
   /**
    * A string prefix pattern.
    *
@@ -927,10 +1355,9 @@ public final class Substring {
       return string.startsWith(prefix) ? string : prefix + string;
     }
 
-    @Override Match match(String input, int fromIndex) {
-      return input.startsWith(prefix, fromIndex)
-          ? new Match(input, fromIndex, prefix.length())
-          : null;
+    @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
+      return startsWith(input, prefix, fromIndex)
+          && cursor.set(fromIndex, fromIndex + prefix.length());
     }
 
     /** Returns this prefix string. */
@@ -961,11 +1388,11 @@ public final class Substring {
       return string.endsWith(suffix) ? string : string + suffix;
     }
 
-    @Override Match match(String input, int fromIndex) {
+    @Override boolean scan(CharSequence input, int fromIndex, Cursor cursor) {
       int index = input.length() - suffix.length();
-      return index >= fromIndex && input.endsWith(suffix)
-          ? new Match(input, index, suffix.length())
-          : null;
+      return index >= fromIndex
+          && startsWith(input, suffix, index)
+          && cursor.set(index, input.length());
     }
 
     /** Returns this suffix string. */
@@ -983,10 +1410,12 @@ public final class Substring {
    * <p><em>Note:</em> a {@link Match} is a view of the original string and holds a strong reference
    * to the original string. It's advisable to construct and use a {@code Match} object within the
    * scope of a method; holding onto a {@code Match} object has the same risk of leaking memory as
-   * holding onto the string it was produced from.
+   * holding onto the string it was produced from. If the input was a mutable {@code CharSequence}
+   * like a {@code StringBuilder} or {@code CharBuffer}, the {@code Match} reflects its current
+   * content, and the result is undefined if it has been modified since matching.
    */
   public static final class Match implements CharSequence {
-    private final String context;
+    private final CharSequence context;
     private final int startIndex;
     private final int endIndex;
 
@@ -998,11 +1427,11 @@ public final class Substring {
      */
     private final int succeedingIndex;
 
-    private Match(String context, int startIndex, int length) {
+    private Match(CharSequence context, int startIndex, int length) {
       this(context, startIndex, length, startIndex + length);
     }
 
-    private Match(String context, int startIndex, int length, int succeedingIndex) {
+    private Match(CharSequence context, int startIndex, int length, int succeedingIndex) {
       this.context = context;
       this.startIndex = startIndex;
       this.endIndex = startIndex + length;
@@ -1022,7 +1451,7 @@ public final class Substring {
      * </pre>
      */
     public String before() {
-      return context.substring(0, startIndex);
+      return substring(0, startIndex);
     }
 
     /**
@@ -1038,12 +1467,32 @@ public final class Substring {
      * </pre>
      */
     public String after() {
-      return context.substring(endIndex);
+      return substring(endIndex, context.length());
+    }
+
+    /**
+     * Returns a view of the part of the original string before the matched substring. Unlike
+     * {@link #before}, no characters are copied until {@code toString()} is called on the view.
+     *
+     * @since 5.3
+     */
+    public CharSequence beforeView() {
+      return preceding();
+    }
+
+    /**
+     * Returns a view of the part of the original string after the matched substring. Unlike
+     * {@link #after}, no characters are copied until {@code toString()} is called on the view.
+     *
+     * @since 5.3
+     */
+    public CharSequence afterView() {
+      return following();
     }
 
     /** Return the full string being matched against. */
     public String fullString() {
-      return context;
+      return context.toString();
     }
 
     /**
@@ -1119,7 +1568,11 @@ public final class Substring {
 
     /** Returns the matched substring. */
     @Override public String toString() {
-      return context.substring(startIndex, endIndex);
+      return substring(startIndex, endIndex);
+    }
+
+    private String substring(int begin, int end) {
+      return context.subSequence(begin, end).toString();
     }
 
     Match preceding() {
@@ -1149,10 +1602,69 @@ public final class Substring {
           ? this
           : new Match(context, left, trimmedLength, succeedingIndex);
     }
+  }
+
+  private static int indexOf(CharSequence string, char character, int fromIndex) {
+    if (string instanceof String) {
+      return ((String) string).indexOf(character, fromIndex);
+    }
+    for (int i = Math.max(fromIndex, 0); i < string.length(); i++) {
+      if (string.charAt(i) == character) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(CharSequence string, String str, int fromIndex) {
+    if (string instanceof String) {
+      return ((String) string).indexOf(str, fromIndex);
+    }
+    for (int i = Math.max(fromIndex, 0); i <= string.length() - str.length(); i++) {
+      if (startsWith(string, str, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(CharSequence string, char character) {
+    if (string instanceof String) {
+      return ((String) string).lastIndexOf(character);
+    }
+    for (int i = string.length() - 1; i >= 0; i--) {
+      if (string.charAt(i) == character) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(CharSequence string, String str) {
+    if (string instanceof String) {
+      return ((String) string).lastIndexOf(str);
+    }
+    for (int i = string.length() - str.length(); i >= 0; i--) {
+      if (startsWith(string, str, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
 
-    private Match toEnd() {
-      return new Match(context, startIndex, context.length() - startIndex);
+  private static boolean startsWith(CharSequence string, String prefix, int offset) {
+    if (string instanceof String) {
+      return ((String) string).startsWith(prefix, offset);
+    }
+    if (offset < 0 || offset > string.length() - prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (string.charAt(offset + i) != prefix.charAt(i)) {
+        return false;
+      }
     }
+    return true;
   }
 
   private Substring() {}
@@ -0,0 +1,547 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.google.mu.util.Substring.Cursor;
+import com.google.mu.util.Substring.Scanner;
+import com.google.mu.util.stream.MoreStreams;
+
+/**
+ * The byte-level counterpart of {@link Substring}, for matching patterns directly against UTF-8
+ * encoded {@code byte[]} or {@link ByteBuffer} input (including direct and memory-mapped buffers)
+ * without decoding it into a {@code String} first. Only the matched slices that are actually
+ * retrieved through {@link Match#toString}, {@link Match#before} or {@link Match#after} are
+ * decoded.
+ *
+ * <p>For example, to extract the request id from a log record:
+ *
+ * <pre>
+ *   private static final Utf8Substring.Pattern REQUEST_ID =
+ *       Utf8Substring.between(first("request_id="), first(' '));
+ *
+ *   Optional&lt;String&gt; requestId = REQUEST_ID.from(recordBytes);
+ * </pre>
+ *
+ * <p>Because UTF-8 never uses bytes in the ASCII range to encode other characters, matching the
+ * UTF-8 encoding of a delimiter at the byte level finds exactly the same occurrences as matching
+ * the delimiter against the decoded string would. Indices however are byte offsets, not char
+ * offsets.
+ *
+ * <p>A {@code ByteBuffer} is matched from its position to its limit, and indices are relative to
+ * its position. The position and limit of the input buffer are never modified.
+ *
+ * @since 5.3
+ */
+public final class Utf8Substring {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  /** {@code Pattern} that matches the empty slice at the beginning of the input. */
+  public static final Pattern BEGINNING =
+      new Pattern() {
+        @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+          return cursor.set(fromIndex, fromIndex, fromIndex);
+        }
+
+        @Override public String toString() {
+          return "BEGINNING";
+        }
+      };
+
+  /** {@code Pattern} that matches the empty slice at the end of the input. */
+  public static final Pattern END =
+      new Pattern() {
+        @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+          int end = input.limit();
+          return cursor.set(end, end, end);
+        }
+
+        @Override public String toString() {
+          return "END";
+        }
+      };
+
+  /** Returns a {@code Pattern} that matches the first occurrence of the ASCII {@code character}. */
+  public static Pattern first(char character) {
+    byte b = ascii(character);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        int index = indexOf(input, b, fromIndex);
+        return index >= 0 && cursor.set(index, index + 1);
+      }
+
+      @Override public String toString() {
+        return "first('" + character + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches the first occurrence of {@code str} in UTF-8. */
+  public static Pattern first(String str) {
+    byte[] bytes = str.getBytes(UTF_8);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        int index = indexOf(input, bytes, fromIndex);
+        return index >= 0 && cursor.set(index, index + bytes.length);
+      }
+
+      @Override public String toString() {
+        return "first('" + str + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches the last occurrence of the ASCII {@code character}. */
+  public static Pattern last(char character) {
+    byte b = ascii(character);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        for (int i = input.limit() - 1; i >= fromIndex; i--) {
+          if (input.get(i) == b) {
+            return cursor.set(i, i + 1);
+          }
+        }
+        return false;
+      }
+
+      @Override public String toString() {
+        return "last('" + character + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches the last occurrence of {@code str} in UTF-8. */
+  public static Pattern last(String str) {
+    byte[] bytes = str.getBytes(UTF_8);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        for (int i = input.limit() - bytes.length; i >= fromIndex; i--) {
+          if (startsWith(input, bytes, i)) {
+            return cursor.set(i, i + bytes.length);
+          }
+        }
+        return false;
+      }
+
+      @Override public String toString() {
+        return "last('" + str + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches {@code prefix} in UTF-8 at the start of the input. */
+  public static Pattern prefix(String prefix) {
+    byte[] bytes = prefix.getBytes(UTF_8);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        return startsWith(input, bytes, fromIndex)
+            && cursor.set(fromIndex, fromIndex + bytes.length);
+      }
+
+      @Override public String toString() {
+        return "prefix('" + prefix + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches {@code suffix} in UTF-8 at the end of the input. */
+  public static Pattern suffix(String suffix) {
+    byte[] bytes = suffix.getBytes(UTF_8);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        int index = input.limit() - bytes.length;
+        return index >= fromIndex
+            && startsWith(input, bytes, index)
+            && cursor.set(index, input.limit());
+      }
+
+      @Override public String toString() {
+        return "suffix('" + suffix + "')";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that covers the slice before {@code delimiter}. */
+  public static Pattern before(Pattern delimiter) {
+    requireNonNull(delimiter);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        return delimiter.scan(input, fromIndex, cursor)
+            && cursor.set(fromIndex, cursor.startIndex, cursor.succeedingIndex);
+      }
+
+      @Override public String toString() {
+        return "before(" + delimiter + ")";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that covers the slice after {@code delimiter}. */
+  public static Pattern after(Pattern delimiter) {
+    requireNonNull(delimiter);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        int end = input.limit();
+        return delimiter.scan(input, fromIndex, cursor) && cursor.set(cursor.endIndex, end, end);
+      }
+
+      @Override public String toString() {
+        return "after(" + delimiter + ")";
+      }
+    };
+  }
+
+  /** Returns a {@code Pattern} that matches the slice between {@code open} and {@code close}. */
+  public static Pattern between(Pattern open, Pattern close) {
+    requireNonNull(open);
+    requireNonNull(close);
+    return new Pattern() {
+      @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+        if (!open.scan(input, fromIndex, cursor)) {
+          return false;
+        }
+        int start = cursor.endIndex;
+        return close.scan(input, start, cursor) && cursor.set(start, cursor.startIndex);
+      }
+
+      @Override public String toString() {
+        return "between(" + open + ", " + close + ")";
+      }
+    };
+  }
+
+  /** A pattern that can be matched against UTF-8 bytes, finding a single slice from it. */
+  public abstract static class Pattern {
+    /**
+     * Matches this pattern against {@code bytes}, returning a {@code Match} if successful, or
+     * {@code empty()} otherwise.
+     */
+    public final Optional<Match> in(byte[] bytes) {
+      return in(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Matches this pattern against the remaining bytes of {@code buffer}, returning a {@code Match}
+     * if successful, or {@code empty()} otherwise.
+     */
+    public final Optional<Match> in(ByteBuffer buffer) {
+      return Optional.ofNullable(match(buffer.slice()));
+    }
+
+    /**
+     * Matches this pattern against {@code bytes}, returning the decoded matched slice if
+     * successful, or {@code empty()} otherwise.
+     */
+    public final Optional<String> from(byte[] bytes) {
+      return from(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Matches this pattern against the remaining bytes of {@code buffer}, returning the decoded
+     * matched slice if successful, or {@code empty()} otherwise.
+     */
+    public final Optional<String> from(ByteBuffer buffer) {
+      return in(buffer).map(Match::toString);
+    }
+
+    /**
+     * Splits {@code bytes} into the decoded parts before and after this separator pattern, or
+     * returns {@code empty()} if the pattern isn't found.
+     */
+    public final BiOptional<String, String> split(byte[] bytes) {
+      return split(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Splits the remaining bytes of {@code buffer} into the decoded parts before and after this
+     * separator pattern, or returns {@code empty()} if the pattern isn't found.
+     */
+    public final BiOptional<String, String> split(ByteBuffer buffer) {
+      Match match = match(buffer.slice());
+      return match == null ? BiOptional.empty() : BiOptional.of(match.before(), match.after());
+    }
+
+    /**
+     * Returns a {@code Pattern} that falls back to using {@code that} if {@code this} fails to
+     * match.
+     */
+    public final Pattern or(Pattern that) {
+      requireNonNull(that);
+      Pattern base = this;
+      return new Pattern() {
+        @Override boolean scan(ByteBuffer input, int fromIndex, Cursor cursor) {
+          return base.scan(input, fromIndex, cursor) || that.scan(input, fromIndex, cursor);
+        }
+
+        @Override public String toString() {
+          return base + ".or(" + that + ")";
+        }
+      };
+    }
+
+    /**
+     * Returns a {@link RepeatingPattern} that applies this pattern repeatedly against the input,
+     * each time over the bytes after the previous match.
+     */
+    public final RepeatingPattern repeatedly() {
+      return new RepeatingPattern(this);
+    }
+
+    /**
+     * Matches against {@code input}, a buffer positioned at 0, starting from {@code fromIndex}. If
+     * found, the match is recorded in {@code cursor} and true is returned.
+     */
+    abstract boolean scan(ByteBuffer input, int fromIndex, Cursor cursor);
+
+    private Match match(ByteBuffer input) {
+      Cursor cursor = new Cursor();
+      return scan(input, 0, cursor) ? new Match(input, cursor.startIndex, cursor.endIndex) : null;
+    }
+
+    /** Do not depend on the string representation of {@code Pattern}. */
+    @Override public String toString() {
+      return super.toString();
+    }
+
+    Pattern() {}
+  }
+
+  /** A {@link Pattern} applied repeatedly on the input, each time after the previous match. */
+  public static final class RepeatingPattern {
+    private final Pattern pattern;
+
+    RepeatingPattern(Pattern pattern) {
+      this.pattern = pattern;
+    }
+
+    /** Applies this pattern against {@code bytes} and returns a stream of each iteration. */
+    public Stream<Match> match(byte[] bytes) {
+      return match(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Applies this pattern against the remaining bytes of {@code buffer} and returns a stream of
+     * each iteration. Matching is lazy and doesn't start until the returned stream is consumed.
+     */
+    public Stream<Match> match(ByteBuffer buffer) {
+      ByteBuffer input = buffer.slice();
+      Scanner scanner = scanner(input);
+      return MoreStreams.whileNotNull(
+          () -> scanner.next() ? new Match(input, scanner.startIndex, scanner.endIndex) : null);
+    }
+
+    /** Returns the decoded slices matched by each iteration against {@code bytes}. */
+    public Stream<String> from(byte[] bytes) {
+      return match(bytes).map(Match::toString);
+    }
+
+    /** Returns the decoded slices matched by each iteration against {@code buffer}. */
+    public Stream<String> from(ByteBuffer buffer) {
+      return match(buffer).map(Match::toString);
+    }
+
+    /**
+     * Returns a stream of the slices of {@code bytes} delimited by every match of this pattern. If
+     * this pattern isn't found, the full input is the only slice.
+     */
+    public Stream<Match> split(byte[] bytes) {
+      return split(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Returns a stream of the slices of the remaining bytes of {@code buffer} delimited by every
+     * match of this pattern. If this pattern isn't found, the full input is the only slice.
+     *
+     * <p>The returned {@code Match} objects are views of the buffer; nothing is decoded until
+     * {@link Match#toString} is called.
+     */
+    public Stream<Match> split(ByteBuffer buffer) {
+      if (pattern.scan(EMPTY, 0, new Cursor())) {
+        throw new IllegalStateException("Pattern (" + pattern + ") cannot be used as delimiter.");
+      }
+      ByteBuffer input = buffer.slice();
+      return MoreStreams.whileNotNull(
+          new Supplier<Match>() {
+            int next = 0;
+            Scanner delimiters = scanner(input);
+
+            @Override public Match get() {
+              if (next >= 0 && delimiters.next()) {
+                Match result = new Match(input, next, delimiters.startIndex);
+                next = delimiters.endIndex;
+                return result;
+              }
+              if (next >= 0) {
+                Match result = new Match(input, next, input.limit());
+                next = -1;
+                return result;
+              }
+              return null;
+            }
+          });
+    }
+
+    private Scanner scanner(ByteBuffer input) {
+      return new Scanner() {
+        private final int end = input.limit();
+        private int nextIndex = 0;
+
+        @Override boolean next() {
+          if (nextIndex > end || !pattern.scan(input, nextIndex, this)) {
+            return false;
+          }
+          if (endIndex == end) { // We've consumed the entire input.
+            nextIndex = Integer.MAX_VALUE;
+          } else if (succeedingIndex > nextIndex) {
+            nextIndex = succeedingIndex;
+          } else {
+            // instead of being stuck in infinite loop, consider this the end.
+            nextIndex = Integer.MAX_VALUE;
+          }
+          return true;
+        }
+      };
+    }
+
+    @Override public String toString() {
+      return pattern + ".repeatedly()";
+    }
+  }
+
+  /**
+   * The result of successfully matching a {@link Pattern} against UTF-8 bytes. It's a view of the
+   * input, and decodes only on demand.
+   *
+   * <p>Malformed UTF-8 sequences are decoded into the replacement character {@code U+FFFD}.
+   */
+  public static final class Match {
+    private final ByteBuffer input;
+    private final int startIndex;
+    private final int endIndex;
+
+    private Match(ByteBuffer input, int startIndex, int endIndex) {
+      this.input = input;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+    }
+
+    /** Returns the decoded part of the input before the matched slice. */
+    public String before() {
+      return decode(input, 0, startIndex);
+    }
+
+    /** Returns the decoded part of the input after the matched slice. */
+    public String after() {
+      return decode(input, endIndex, input.limit());
+    }
+
+    /** Returns the 0-based byte offset of this match in the input. */
+    public int index() {
+      return startIndex;
+    }
+
+    /** Returns the number of bytes in the matched slice. */
+    public int length() {
+      return endIndex - startIndex;
+    }
+
+    /** Returns the byte at {@code index} of the matched slice. */
+    public byte byteAt(int index) {
+      if (index < 0 || index >= length()) {
+        throw new IndexOutOfBoundsException(
+            "Invalid index (" + index + ") for length (" + length() + ")");
+      }
+      return input.get(startIndex + index);
+    }
+
+    /** Returns a read-only view of the matched slice, without copying. */
+    public ByteBuffer toByteBuffer() {
+      ByteBuffer view = input.asReadOnlyBuffer();
+      view.limit(endIndex);
+      view.position(startIndex);
+      return view.slice();
+    }
+
+    /** Returns the decoded matched slice. */
+    @Override public String toString() {
+      return decode(input, startIndex, endIndex);
+    }
+  }
+
+  private static String decode(ByteBuffer input, int from, int to) {
+    if (input.hasArray()) {
+      return new String(input.array(), input.arrayOffset() + from, to - from, UTF_8);
+    }
+    // Bulk copy through a duplicate so the caller's position is left alone.
+    ByteBuffer slice = input.duplicate();
+    slice.position(from);
+    byte[] bytes = new byte[to - from];
+    slice.get(bytes, 0, bytes.length);
+    return new String(bytes, UTF_8);
+  }
+
+  private static int indexOf(ByteBuffer input, byte b, int fromIndex) {
+    for (int i = fromIndex; i < input.limit(); i++) {
+      if (input.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(ByteBuffer input, byte[] bytes, int fromIndex) {
+    if (bytes.length == 0) {
+      return fromIndex <= input.limit() ? fromIndex : -1;
+    }
+    byte head = bytes[0];
+    for (int i = indexOf(input, head, fromIndex);
+        i >= 0 && i <= input.limit() - bytes.length;
+        i = indexOf(input, head, i + 1)) {
+      if (startsWith(input, bytes, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(ByteBuffer input, byte[] bytes, int offset) {
+    if (offset < 0 || offset > input.limit() - bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (input.get(offset + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte ascii(char character) {
+    if (character >= 0x80) {
+      throw new IllegalArgumentException(
+          "Non-ASCII character (" + character + ") should be matched as a string.");
+    }
+    return (byte) character;
+  }
+
+  private Utf8Substring() {}
+}
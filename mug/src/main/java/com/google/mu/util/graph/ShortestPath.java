@@ -33,6 +33,7 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 import com.google.mu.util.stream.BiStream;
+import com.google.mu.util.stream.ObjDoubleBiStream;
 
 /**
  * The Dijkstra shortest path algorithm implemented as a lazy, incrementally-computed stream.
@@ -166,16 +167,30 @@ public final class ShortestPath<N> {
    * path repetitively, collect the nodes into a collection first.
    */
   public BiStream<N, Double> stream() {
+    return BiStream.from(pathFromStart(), ShortestPath::to, ShortestPath::distance);
+  }
+
+  /**
+   * Same as {@link #stream}, but returns the cumulative distances as primitive {@code double}s
+   * without boxing them.
+   *
+   * @since 5.3
+   */
+  public ObjDoubleBiStream<N> distances() {
+    return ObjDoubleBiStream.from(pathFromStart(), ShortestPath::to, ShortestPath::distance);
+  }
+
+  @Override public String toString() {
+    return stream().keys().map(Object::toString).collect(joining("->"));
+  }
+
+  private List<ShortestPath<N>> pathFromStart() {
     List<ShortestPath<N>> nodes = new ArrayList<>();
     for (ShortestPath<N> p = this; p != null; p = p.predecessor) {
       nodes.add(p);
     }
     Collections.reverse(nodes);
-    return BiStream.from(nodes, ShortestPath::to, ShortestPath::distance);
-  }
-
-  @Override public String toString() {
-    return stream().keys().map(Object::toString).collect(joining("->"));
+    return nodes;
   }
 
   private ShortestPath<N> extendTo(N nextNode, double d) {
@@ -14,32 +14,40 @@
  *****************************************************************************/
 package com.google.mu.util.stream;
 
-import static com.google.mu.util.stream.BiStream.kv;
-import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 /**
  * {@code BiCollection} to {@link BiStream} is like {@code Iterable} to {@code Iterator}:
  * a re-streamable collection of pairs. Suitable when the pairs aren't logically a {@code Map}
  * or {@code Multimap}.
  *
+ * <p>The pairs are stored in columns: one array for the left elements and one for the right
+ * elements, without a {@link java.util.Map.Entry} object per pair. {@link #stream} is sized and
+ * efficiently splittable when run in {@link BiStream#parallel parallel}. Pairs can be looked up
+ * by left element with {@link #get}, through an index built upon first use.
+ *
  * @since 1.4
  */
 public final class BiCollection<L, R> {
-  private static final BiCollection<?, ?> EMPTY = new BiCollection<>(Collections.emptyList());
+  private static final Object[] NONE = {};
+  private static final BiCollection<?, ?> EMPTY = new BiCollection<>(NONE, NONE);
 
-  private final Collection<? extends Map.Entry<L, R>> entries;
+  private final Object[] lefts;
+  private final Object[] rights;
+  private PositionIndex index;  // Lazily built by get(). Safe to race since it's immutable.
 
-  private BiCollection(Collection<? extends Entry<L, R>> underlying) {
-    this.entries = requireNonNull(underlying);
+  /** Takes ownership of {@code lefts} and {@code rights}, which must be of the same length. */
+  private BiCollection(Object[] lefts, Object[] rights) {
+    this.lefts = lefts;
+    this.rights = rights;
   }
 
   /** Returns an empty {@code BiCollection}. */
@@ -50,37 +58,41 @@ public final class BiCollection<L, R> {
 
   /** Returns a {@code BiCollection} for {@code left} and {@code right}. */
   public static <L, R> BiCollection<L, R> of(L left, R right) {
-    return new BiCollection<>(asList(kv(left, right)));
+    return new BiCollection<>(new Object[] {left}, new Object[] {right});
   }
 
   /** Returns a {@code BiCollection} for two pairs. */
   public static <L, R> BiCollection<L, R> of(L left1, R right1, L left2, R right2) {
-    return new BiCollection<>(asList(kv(left1, right1), kv(left2, right2)));
+    return new BiCollection<>(new Object[] {left1, left2}, new Object[] {right1, right2});
   }
 
   /** Returns a {@code BiCollection} for three pairs. */
   public static <L, R> BiCollection<L, R> of(L left1, R right1, L left2, R right2, L left3, R right3) {
-    return new BiCollection<>(asList(kv(left1, right1), kv(left2, right2), kv(left3, right3)));
+    return new BiCollection<>(
+        new Object[] {left1, left2, left3}, new Object[] {right1, right2, right3});
   }
 
   /** Returns a {@code BiCollection} for four pairs. */
   public static <L, R> BiCollection<L, R> of(
       L left1, R right1, L left2, R right2, L left3, R right3, L left4, R right4) {
     return new BiCollection<>(
-        asList(kv(left1, right1), kv(left2, right2), kv(left3, right3), kv(left4, right4)));
+        new Object[] {left1, left2, left3, left4}, new Object[] {right1, right2, right3, right4});
   }
 
   /** Returns a {@code BiCollection} for five pairs. */
   public static <L, R> BiCollection<L, R> of(
       L left1, R right1, L left2, R right2, L left3, R right3, L left4, R right4, L left5, R right5) {
-    return new BiCollection<>(asList(
-        kv(left1, right1), kv(left2, right2), kv(left3, right3), kv(left4, right4), kv(left5, right5)));
+    return new BiCollection<>(
+        new Object[] {left1, left2, left3, left4, left5},
+        new Object[] {right1, right2, right3, right4, right5});
   }
 
   /**
    * Returns a {@code Collector} that extracts the pairs from the input stream,
    * and then collects them into a {@code BiCollection}.
    *
+   * <p>The pairs are accumulated straight into the left and right columns.
+   *
    * @param leftFunction extracts the first element of each pair
    * @param rightFunction extracts the second element of each pair
    */
@@ -89,38 +101,120 @@ public final class BiCollection<L, R> {
       Function<? super T, ? extends R> rightFunction) {
     requireNonNull(leftFunction);
     requireNonNull(rightFunction);
-    Function<T, Map.Entry<L, R>> toEntry = x -> kv(leftFunction.apply(x), rightFunction.apply(x));
-    Collector<T, ?, ? extends Collection<Map.Entry<L, R>>> entryCollector =
-        Collectors.mapping(toEntry, Collectors.toList());
-    return Collectors.collectingAndThen(entryCollector, BiCollection::new);
+    return Collector.of(
+        BiStream.Builder<L, R>::new,
+        (builder, x) -> builder.add(leftFunction.apply(x), rightFunction.apply(x)),
+        BiStream.Builder::addAll,
+        BiCollection::copyOf);
   }
 
   /** Returns the size of the collection. */
   public int size() {
-    return entries.size();
+    return lefts.length;
+  }
+
+  /**
+   * Returns the left element of the pair at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less than {@link #size}
+   * @since 5.3
+   */
+  @SuppressWarnings("unchecked") // Only instances of L are put in lefts.
+  public L left(int index) {
+    return (L) lefts[index];
+  }
+
+  /**
+   * Returns the right element of the pair at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less than {@link #size}
+   * @since 5.3
+   */
+  @SuppressWarnings("unchecked") // Only instances of R are put in rights.
+  public R right(int index) {
+    return (R) rights[index];
+  }
+
+  /**
+   * Returns the right elements paired with {@code left} (according to {@code Object.equals()}),
+   * in encounter order. Returns an empty list if there is none. For example:
+   *
+   * <pre>{@code
+   * BiCollection.of("k", 1, "j", 2, "k", 3).get("k") => [1, 3]
+   * }</pre>
+   *
+   * <p>Upon the first call, a hash index from left elements to their positions is built in O(n)
+   * time. Afterwards each call takes O(1) time plus the number of matches, instead of scanning
+   * the collection with {@code stream().filterKeys()}.
+   *
+   * @since 5.3
+   */
+  public List<R> get(Object left) {
+    if (lefts.length == 0) {
+      return Collections.emptyList();
+    }
+    PositionIndex positions = index;
+    if (positions == null) {
+      positions = new PositionIndex(lefts);
+      index = positions;
+    }
+    int first = positions.first(left);
+    if (first < 0) {
+      return Collections.emptyList();
+    }
+    List<R> matches = new ArrayList<>(1);
+    for (int i = first; i >= 0; i = positions.next(i)) {
+      matches.add(right(i));
+    }
+    return Collections.unmodifiableList(matches);
   }
 
   /** Streams over this {@code BiCollection}. */
   public BiStream<L, R> stream() {
-    return BiStream.fromEntries(entries.stream());
+    return BiStream.fromArrays(lefts, rights, lefts.length);
   }
 
   /** @since 1.5 */
   @Override public int hashCode() {
-    return entries.hashCode();
+    // Same as the List<Map.Entry> that used to back BiCollection.
+    int hash = 1;
+    for (int i = 0; i < lefts.length; i++) {
+      hash = 31 * hash + (Objects.hashCode(lefts[i]) ^ Objects.hashCode(rights[i]));
+    }
+    return hash;
   }
 
   /** @since 1.5 */
   @Override public boolean equals(Object obj) {
     if (obj instanceof BiCollection<?, ?>) {
       BiCollection<?, ?> that = (BiCollection<?, ?>) obj;
-      return entries.equals(that.entries);
+      return Arrays.equals(lefts, that.lefts) && Arrays.equals(rights, that.rights);
     }
     return false;
   }
 
   /** @since 1.5 */
   @Override public String toString() {
-    return entries.toString();
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < lefts.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(lefts[i]).append('=').append(rights[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  /** Takes the pairs in {@code builder} as columns, trimmed to size if needed. */
+  private static <L, R> BiCollection<L, R> copyOf(BiStream.Builder<L, R> builder) {
+    int size = builder.size;
+    if (size == 0) {
+      return of();
+    }
+    if (size == builder.keys.length) {
+      return new BiCollection<>(builder.keys, builder.values);
+    }
+    return new BiCollection<>(
+        Arrays.copyOf(builder.keys, size), Arrays.copyOf(builder.values, size));
   }
 }
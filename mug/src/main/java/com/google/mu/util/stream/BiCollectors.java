@@ -18,22 +18,28 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.AbstractMap;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.DoubleSummaryStatistics;
 import java.util.IntSummaryStatistics;
 import java.util.LinkedHashMap;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.google.mu.function.BiComparator;
 import com.google.mu.util.Both;
 
 /**
@@ -108,6 +114,39 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Returns a {@link BiCollector} that collects the key-value pairs into a {@link ConcurrentMap}.
+   *
+   * <p>The collector is {@link Collector.Characteristics#CONCURRENT concurrent} and {@link
+   * Collector.Characteristics#UNORDERED unordered}: in a parallel stream, all threads put into a
+   * single shared map, skipping the per-thread maps and the merge step of {@link #toMap()}. Keys
+   * and values cannot be null. Duplicate keys result in {@link IllegalStateException}.
+   *
+   * @since 5.3
+   */
+  public static <K, V> BiCollector<K, V, ConcurrentMap<K, V>> toConcurrentMap() {
+    return Collectors::toConcurrentMap;
+  }
+
+  /**
+   * Returns a {@link BiCollector} that collects the key-value pairs into a {@link ConcurrentMap},
+   * using {@code valueMerger} to merge values of duplicate keys. Like {@link #toConcurrentMap()},
+   * all threads of a parallel stream put into a single shared map.
+   *
+   * @since 5.3
+   */
+  public static <K, V> BiCollector<K, V, ConcurrentMap<K, V>> toConcurrentMap(
+      BinaryOperator<V> valueMerger) {
+    requireNonNull(valueMerger);
+    return new BiCollector<K, V, ConcurrentMap<K, V>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<K, V>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.toConcurrentMap(toKey, toValue, valueMerger);
+      }
+    };
+  }
+
   /**
    * Returns a counting {@link BiCollector} that counts the number of input entries.
    *
@@ -307,6 +346,208 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Returns a {@link BiCollector} that counts the input pairs in each group that {@code classifier}
+   * maps the keys to. For example, to count requests per client:
+   *
+   * <pre>{@code
+   * Map<ClientId, Long> requestCounts = BiStream.from(requestsByIp)
+   *     .collect(countingBy(ip -> clientOf(ip)));
+   * }</pre>
+   *
+   * <p>The counts are stored as primitive {@code long}s in an open-addressing hash table, without
+   * a {@code Long} box or map entry object per group, which saves memory for high-cardinality
+   * groups. The returned map is a read-only view of the table, iterated in no particular order,
+   * and boxes each count when it's read.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, Map<G, Long>> countingBy(
+      Function<? super K, ? extends G> classifier) {
+    return summingLongBy(classifier, v -> 1);
+  }
+
+  /**
+   * Returns a {@link BiCollector} that sums the {@code long} values mapped by {@code mapper} in
+   * each group that {@code classifier} maps the keys to. For example:
+   *
+   * <pre>{@code
+   * Map<Region, Long> bytesByRegion = BiStream.from(bytesSentByHost)
+   *     .collect(summingLongBy(Host::region, AtomicLong::get));
+   * }</pre>
+   *
+   * <p>Like {@link #countingBy}, the sums are stored as primitive {@code long}s in an
+   * open-addressing hash table, and the returned map is a read-only view of the table.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, Map<G, Long>> summingLongBy(
+      Function<? super K, ? extends G> classifier, ToLongFunction<? super V> mapper) {
+    requireNonNull(classifier);
+    requireNonNull(mapper);
+    return new BiCollector<K, V, Map<G, Long>>() {
+      @Override
+      public <E> Collector<E, ?, Map<G, Long>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.of(
+            OpenHashMap.OfLong<G>::new,
+            (m, e) -> m.add(classifier.apply(toKey.apply(e)), mapper.applyAsLong(toValue.apply(e))),
+            OpenHashMap.OfLong::merge,
+            m -> m);
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link BiCollector} that sums the {@code double} values mapped by {@code mapper} in
+   * each group that {@code classifier} maps the keys to. For example:
+   *
+   * <pre>{@code
+   * Map<Category, Double> revenueByCategory = BiStream.from(ordersByItem)
+   *     .collect(summingDoubleBy(Item::category, Order::amount));
+   * }</pre>
+   *
+   * <p>The sums are stored as primitive {@code double}s in an open-addressing hash table, and the
+   * returned map is a read-only view of the table. Unlike {@link Collectors#summingDouble}, the
+   * values are added up with plain floating point addition, without error compensation.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, Map<G, Double>> summingDoubleBy(
+      Function<? super K, ? extends G> classifier, ToDoubleFunction<? super V> mapper) {
+    requireNonNull(classifier);
+    requireNonNull(mapper);
+    return new BiCollector<K, V, Map<G, Double>>() {
+      @Override
+      public <E> Collector<E, ?, Map<G, Double>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.of(
+            OpenHashMap.OfDouble<G>::new,
+            (m, e) ->
+                m.add(classifier.apply(toKey.apply(e)), mapper.applyAsDouble(toValue.apply(e))),
+            OpenHashMap.OfDouble::merge,
+            m -> m);
+      }
+    };
+  }
+
+  /**
+   * Returns a concurrent {@link BiCollector} that counts the input pairs in each group that {@code
+   * classifier} maps the keys to. For example, to count requests per client on all cores:
+   *
+   * <pre>{@code
+   * Map<ClientId, Long> requestCounts = BiStream.from(requestsByIp)
+   *     .parallel()
+   *     .collect(countingByConcurrent(ip -> clientOf(ip)));
+   * }</pre>
+   *
+   * <p>Unlike {@link #countingBy}, the collector is {@link Collector.Characteristics#CONCURRENT
+   * concurrent} and {@link Collector.Characteristics#UNORDERED unordered}: in a parallel stream,
+   * all threads add to a single {@link ConcurrentHashMap} of {@link
+   * java.util.concurrent.atomic.LongAdder}s, so there is no per-thread table to merge, and threads
+   * counting the same hot group don't contend on a single counter. The returned map is a read-only
+   * view that sums and boxes each count when it's read. Groups cannot be null.
+   *
+   * <p>In a sequential stream, prefer {@link #countingBy}, which takes less memory.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, Map<G, Long>> countingByConcurrent(
+      Function<? super K, ? extends G> classifier) {
+    return summingLongByConcurrent(classifier, v -> 1);
+  }
+
+  /**
+   * Returns a concurrent {@link BiCollector} that sums the {@code long} values mapped by {@code
+   * mapper} in each group that {@code classifier} maps the keys to. Like {@link
+   * #countingByConcurrent}, all threads of a parallel stream add to a single map of {@link
+   * java.util.concurrent.atomic.LongAdder}s, and the returned map is a read-only view. Groups
+   * cannot be null.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, Map<G, Long>> summingLongByConcurrent(
+      Function<? super K, ? extends G> classifier, ToLongFunction<? super V> mapper) {
+    requireNonNull(classifier);
+    requireNonNull(mapper);
+    return new BiCollector<K, V, Map<G, Long>>() {
+      @Override
+      public <E> Collector<E, ?, Map<G, Long>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.of(
+            ConcurrentCounters<G>::new,
+            (m, e) -> m.add(classifier.apply(toKey.apply(e)), mapper.applyAsLong(toValue.apply(e))),
+            ConcurrentCounters::merge,
+            m -> m,
+            Collector.Characteristics.CONCURRENT,
+            Collector.Characteristics.UNORDERED);
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link BiCollector} that keeps the first {@code k} input pairs in the order of
+   * {@code ordering}, and returns them as a {@code BiStream} in that order. For example, to find
+   * the 100 highest-scoring players:
+   *
+   * <pre>{@code
+   * BiStream<Player, Score> leaders = BiStream.from(scores)
+   *     .collect(topK(100, comparingValue(Score::points, reverseOrder())));
+   * }</pre>
+   *
+   * <p>Equivalent to {@code sorted(ordering).limit(k)}, including the order of equal pairs, but
+   * uses a bounded heap: O(n log k) time and O(k) memory instead of sorting all n pairs. In a
+   * parallel stream, each thread keeps its own heap and the heaps are merged at the end.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public static <K, V> BiCollector<K, V, BiStream<K, V>> topK(
+      int k, BiComparator<? super K, ? super V> ordering) {
+    TopK.checkK(k);
+    requireNonNull(ordering);
+    return new BiCollector<K, V, BiStream<K, V>>() {
+      @Override
+      public <E> Collector<E, ?, BiStream<K, V>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        // Streams may reuse the input element across pairs, so extract each pair before keeping it.
+        Comparator<Map.Entry<K, V>> comparator =
+            ordering.asComparator(Map.Entry::getKey, Map.Entry::getValue);
+        return Collector.of(
+            () -> new TopK<Map.Entry<K, V>>(k, comparator),
+            (top, e) -> top.add(BiStream.kv(toKey.apply(e), toValue.apply(e))),
+            TopK::merge,
+            top -> BiStream.from(top.toList(), Map.Entry::getKey, Map.Entry::getValue));
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link BiCollector} that keeps the first {@code k} input pairs in the order of
+   * {@code comparator} applied to the keys. Equivalent to {@code sortedByKeys(comparator).limit(k)}
+   * but runs in O(n log k) time and O(k) memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public static <K, V> BiCollector<K, V, BiStream<K, V>> topKByKeys(
+      int k, Comparator<? super K> comparator) {
+    return topK(k, BiComparator.comparingKey(comparator));
+  }
+
+  /**
+   * Returns a {@link BiCollector} that keeps the first {@code k} input pairs in the order of
+   * {@code comparator} applied to the values. Equivalent to {@code
+   * sortedByValues(comparator).limit(k)} but runs in O(n log k) time and O(k) memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public static <K, V> BiCollector<K, V, BiStream<K, V>> topKByValues(
+      int k, Comparator<? super V> comparator) {
+    return topK(k, BiComparator.comparingValue(comparator));
+  }
+
   /**
    * Groups input entries by {@code classifier} and collects entries belonging to the same group
    * using {@code groupCollector}. For example, the following code splits a phone book by area code:
@@ -392,6 +633,65 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Groups input pairs by {@code classifier} into a {@link ConcurrentMap}, and collects values
+   * belonging to the same group using {@code groupCollector}. The concurrent counterpart of {@link
+   * #groupingBy(Function, Collector)}, backed by {@link Collectors#groupingByConcurrent}.
+   *
+   * <p>In a parallel stream, all threads accumulate into the one shared map instead of merging
+   * per-thread maps. Unless {@code groupCollector} is itself {@link
+   * Collector.Characteristics#CONCURRENT concurrent}, accumulation into each group is synchronized
+   * on the group's container. Groups cannot be null.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G, R> BiCollector<K, V, ConcurrentMap<G, R>> groupingByConcurrent(
+      Function<? super K, ? extends G> classifier, Collector<? super V, ?, R> groupCollector) {
+    requireNonNull(classifier);
+    requireNonNull(groupCollector);
+    return new BiCollector<K, V, ConcurrentMap<G, R>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<G, R>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.groupingByConcurrent(
+            toKey.andThen(classifier), Collectors.mapping(toValue, groupCollector));
+      }
+    };
+  }
+
+  /**
+   * Groups input pairs by {@code classifier} into a {@link ConcurrentMap}, and reduces values
+   * belonging to the same group using {@code groupReducer}. The concurrent counterpart of {@link
+   * #groupingBy(Function, BinaryOperator)}.
+   *
+   * <p>In a parallel stream, all threads reduce into the one shared map through {@link
+   * ConcurrentHashMap#merge}, which applies {@code groupReducer} atomically per group. Groups and
+   * values cannot be null.
+   *
+   * @since 5.3
+   */
+  public static <K, V, G> BiCollector<K, V, ConcurrentMap<G, V>> groupingByConcurrent(
+      Function<? super K, ? extends G> classifier, BinaryOperator<V> groupReducer) {
+    requireNonNull(classifier);
+    requireNonNull(groupReducer);
+    return new BiCollector<K, V, ConcurrentMap<G, V>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<G, V>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.<E, ConcurrentMap<G, V>>of(
+            ConcurrentHashMap::new,
+            (m, e) -> m.merge(classifier.apply(toKey.apply(e)), toValue.apply(e), groupReducer),
+            (m1, m2) -> {
+              m2.forEach((g, v) -> m1.merge(g, v, groupReducer));
+              return m1;
+            },
+            Collector.Characteristics.CONCURRENT,
+            Collector.Characteristics.UNORDERED,
+            Collector.Characteristics.IDENTITY_FINISH);
+      }
+    };
+  }
+
   /**
    * Returns a {@link BiCollector} that maps the result of {@code upstream} collector using
    * {@code finisher}.
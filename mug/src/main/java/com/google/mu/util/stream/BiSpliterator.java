@@ -0,0 +1,1031 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Collector;
+
+/**
+ * Like {@link Spliterator}, but passes each key and value directly to a {@link BiConsumer}
+ * without wrapping them in a {@link java.util.Map.Entry}. Chained stages such as {@link #filter}
+ * and {@link #map} are fused into one push-based pipeline, so no object is allocated per pair.
+ *
+ * <p>Like {@code Spliterator}, instances aren't thread safe. Each stage remembers the downstream
+ * consumer of the current traversal, so an instance must not be traversed reentrantly.
+ */
+abstract class BiSpliterator<K, V> {
+  /** Characteristics that survive 1-to-1 mapping from elements to pairs or from pairs to pairs. */
+  private static final int MAPPING_CHARACTERISTICS =
+      Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+  /**
+   * If a remaining pair exists, performs {@code action} on it and returns true; else returns
+   * false.
+   */
+  abstract boolean tryAdvance(BiConsumer<? super K, ? super V> action);
+
+  /** Performs {@code action} for each remaining pair, sequentially in the current thread. */
+  void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+    while (tryAdvance(action)) {}
+  }
+
+  /** Same as {@link Spliterator#trySplit}. */
+  abstract BiSpliterator<K, V> trySplit();
+
+  /** Same as {@link Spliterator#estimateSize}. */
+  abstract long estimateSize();
+
+  /** Same as {@link Spliterator#characteristics}. */
+  abstract int characteristics();
+
+  /**
+   * Returns a {@code BiSpliterator} over {@code elements}, each transformed to a pair with {@code
+   * toKey} and {@code toValue}. Each function is invoked exactly once per element.
+   */
+  static <E, K, V> BiSpliterator<K, V> of(
+      Spliterator<E> elements,
+      Function<? super E, ? extends K> toKey,
+      Function<? super E, ? extends V> toValue) {
+    return new FromElements<>(elements, toKey, toValue);
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} over the pairs at indices {@code [from, to)} of the parallel
+   * arrays {@code keys} and {@code values}. It's sized and splits at the midpoint.
+   *
+   * <p>The caller is responsible for only having put instances of {@code K} in {@code keys} and
+   * {@code V} in {@code values}, and for not modifying the arrays while the pairs are read.
+   */
+  static <K, V> BiSpliterator<K, V> ofArrays(Object[] keys, Object[] values, int from, int to) {
+    return new FromArrays<>(keys, values, from, to);
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} that merges {@code sortedInputs}, each sorted by keys in the
+   * order of {@code comparator}, into one sequence in the same order. Pairs with equal keys come in
+   * the order of their inputs. If {@code valueMerger} isn't null, consecutive pairs with equal keys
+   * are combined into one, keeping the first key.
+   */
+  static <K, V> BiSpliterator<K, V> mergeSorted(
+      List<? extends BiSpliterator<? extends K, ? extends V>> sortedInputs,
+      Comparator<? super K> comparator,
+      BinaryOperator<V> valueMerger) {
+    return new Merging<>(sortedInputs, requireNonNull(comparator), valueMerger);
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} of each element in {@code elements} paired with the element
+   * after it. Only the previous element is remembered.
+   */
+  static <T> BiSpliterator<T, T> adjacentPairs(Spliterator<T> elements) {
+    return new AdjacentPairs<>(requireNonNull(elements));
+  }
+
+  /** Returns a {@code BiSpliterator} that only contains pairs matching {@code predicate}. */
+  final BiSpliterator<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
+    return new Filtering<>(this, requireNonNull(predicate));
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} that drops pairs whose identity, as computed by {@code
+   * identity}, has been seen before according to {@code memory}.
+   */
+  final BiSpliterator<K, V> distinctBy(
+      BiFunction<? super K, ? super V, ?> identity, DistinctMemory memory) {
+    return new Deduplicating<>(this, requireNonNull(identity), new SharedMemory(memory));
+  }
+
+  /** Returns a {@code BiSpliterator} that invokes {@code action} on each pair as it's consumed. */
+  final BiSpliterator<K, V> peek(BiConsumer<? super K, ? super V> action) {
+    return new Peeking<>(this, requireNonNull(action));
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} of the pairs mapped by {@code keyMapper} and {@code
+   * valueMapper}. Each function is invoked exactly once per pair.
+   */
+  final <K2, V2> BiSpliterator<K2, V2> map(
+      BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+      BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+    return new Mapping<>(this, requireNonNull(keyMapper), requireNonNull(valueMapper));
+  }
+
+  /**
+   * Returns a {@code BiSpliterator} that pairs each key with {@code joiner} applied to its value
+   * and each of the values that {@code index} maps the key to. If {@code keepUnmatched} is true, a
+   * pair whose key isn't in {@code index} is joined with null; otherwise it's dropped.
+   */
+  final <R, T> BiSpliterator<K, T> join(
+      Map<?, ? extends List<? extends R>> index,
+      BiFunction<? super V, ? super R, ? extends T> joiner,
+      boolean keepUnmatched) {
+    return new Joining<>(this, requireNonNull(index), requireNonNull(joiner), keepUnmatched);
+  }
+
+  /**
+   * Returns a {@link Spliterator} of the windows of {@code windowSize} consecutive pairs, each
+   * summarized by {@code windowCollector}, with each window starting {@code step} pairs after the
+   * previous one. {@code step} is either 1 (sliding windows, where the trailing pairs that don't
+   * fill a window are dropped) or {@code windowSize} (tumbling windows, where the trailing pairs
+   * form a smaller last window).
+   */
+  final <R> Spliterator<R> windows(
+      int windowSize, int step, BiCollector<? super K, ? super V, R> windowCollector) {
+    return new Windows<>(
+        this,
+        windowSize,
+        step,
+        windowCollector.<Map.Entry<K, V>>splitting(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
+  /** Returns a {@link Spliterator} of the results of applying {@code mapper} to each pair. */
+  final <T> Spliterator<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+    return new ToObj<>(this, requireNonNull(mapper));
+  }
+
+  /** Returns a {@link Spliterator.OfInt} of the results of applying {@code mapper} to each pair. */
+  final Spliterator.OfInt mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
+    return new ToInt<>(this, requireNonNull(mapper));
+  }
+
+  /** Returns a {@link Spliterator.OfLong} of the results of applying {@code mapper} to each pair. */
+  final Spliterator.OfLong mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
+    return new ToLong<>(this, requireNonNull(mapper));
+  }
+
+  /**
+   * Returns a {@link Spliterator.OfDouble} of the results of applying {@code mapper} to each pair.
+   */
+  final Spliterator.OfDouble mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+    return new ToDouble<>(this, requireNonNull(mapper));
+  }
+
+  /**
+   * Returns a {@link Spliterator} that presents each pair through a {@link Pair} instance reused
+   * across the pairs of the same split. The caller must read the pair before advancing again.
+   */
+  final Spliterator<Pair<K, V>> pairs() {
+    return new Pairs<>(this);
+  }
+
+  /** A mutable pair, overwritten as a {@link #pairs} spliterator advances. */
+  static final class Pair<K, V> {
+    K key;
+    V value;
+
+    K key() {
+      return key;
+    }
+
+    V value() {
+      return value;
+    }
+  }
+
+  /** A stage that receives each upstream pair and pushes zero or more results to downstream. */
+  private abstract static class Stage<K0, V0, K, V>
+      extends BiSpliterator<K, V> implements BiConsumer<K0, V0> {
+    private final BiSpliterator<K0, V0> upstream;
+    BiConsumer<? super K, ? super V> downstream;
+
+    Stage(BiSpliterator<K0, V0> upstream) {
+      this.upstream = upstream;
+    }
+
+    /** Returns a stage identical to this one but reading from {@code split}. */
+    abstract BiSpliterator<K, V> withUpstream(BiSpliterator<K0, V0> split);
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      return upstream.tryAdvance(this);
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      upstream.forEachRemaining(this);
+    }
+
+    @Override final BiSpliterator<K, V> trySplit() {
+      BiSpliterator<K0, V0> prefix = upstream.trySplit();
+      return prefix == null ? null : withUpstream(prefix);
+    }
+
+    @Override final long estimateSize() {
+      return upstream.estimateSize();
+    }
+
+    @Override int characteristics() {
+      return upstream.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class FromElements<E, K, V> extends BiSpliterator<K, V>
+      implements Consumer<E> {
+    private final Spliterator<E> elements;
+    private final Function<? super E, ? extends K> toKey;
+    private final Function<? super E, ? extends V> toValue;
+    private BiConsumer<? super K, ? super V> downstream;
+
+    FromElements(
+        Spliterator<E> elements,
+        Function<? super E, ? extends K> toKey,
+        Function<? super E, ? extends V> toValue) {
+      this.elements = requireNonNull(elements);
+      this.toKey = requireNonNull(toKey);
+      this.toValue = requireNonNull(toValue);
+    }
+
+    @Override public void accept(E element) {
+      downstream.accept(toKey.apply(element), toValue.apply(element));
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      return elements.tryAdvance(this);
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      elements.forEachRemaining(this);
+    }
+
+    @Override BiSpliterator<K, V> trySplit() {
+      Spliterator<E> prefix = elements.trySplit();
+      return prefix == null ? null : new FromElements<>(prefix, toKey, toValue);
+    }
+
+    @Override long estimateSize() {
+      return elements.estimateSize();
+    }
+
+    @Override int characteristics() {
+      return elements.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class FromArrays<K, V> extends BiSpliterator<K, V> {
+    private static final int CHARACTERISTICS =
+        Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+    private final Object[] keys;
+    private final Object[] values;
+    private int index;
+    private final int fence;
+
+    FromArrays(Object[] keys, Object[] values, int from, int to) {
+      this.keys = keys;
+      this.values = values;
+      this.index = from;
+      this.fence = to;
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      if (index >= fence) {
+        return false;
+      }
+      int i = index++;
+      action.accept(key(i), value(i));
+      return true;
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      int from = index;
+      index = fence;
+      for (int i = from; i < fence; i++) {
+        action.accept(key(i), value(i));
+      }
+    }
+
+    @Override BiSpliterator<K, V> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      BiSpliterator<K, V> prefix = new FromArrays<>(keys, values, index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override long estimateSize() {
+      return fence - index;
+    }
+
+    @Override int characteristics() {
+      return CHARACTERISTICS;
+    }
+
+    @SuppressWarnings("unchecked") // Only instances of K are put in keys.
+    private K key(int i) {
+      return (K) keys[i];
+    }
+
+    @SuppressWarnings("unchecked") // Only instances of V are put in values.
+    private V value(int i) {
+      return (V) values[i];
+    }
+  }
+
+  private static final class Filtering<K, V> extends Stage<K, V, K, V> {
+    private final BiPredicate<? super K, ? super V> predicate;
+    private boolean matched;
+
+    Filtering(BiSpliterator<K, V> upstream, BiPredicate<? super K, ? super V> predicate) {
+      super(upstream);
+      this.predicate = predicate;
+    }
+
+    @Override public void accept(K key, V value) {
+      if (predicate.test(key, value)) {
+        matched = true;
+        downstream.accept(key, value);
+      }
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      matched = false;
+      while (super.tryAdvance(action)) {
+        if (matched) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override BiSpliterator<K, V> withUpstream(BiSpliterator<K, V> split) {
+      return new Filtering<>(split, predicate);
+    }
+
+    @Override int characteristics() {
+      return super.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+  }
+
+  private static final class Deduplicating<K, V> extends Stage<K, V, K, V> {
+    private final BiFunction<? super K, ? super V, ?> identity;
+    private final SharedMemory memory;
+    private boolean matched;
+
+    Deduplicating(
+        BiSpliterator<K, V> upstream,
+        BiFunction<? super K, ? super V, ?> identity,
+        SharedMemory memory) {
+      super(upstream);
+      this.identity = identity;
+      this.memory = memory;
+    }
+
+    @Override public void accept(K key, V value) {
+      if (memory.add(identity.apply(key, value))) {
+        matched = true;
+        downstream.accept(key, value);
+      }
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      matched = false;
+      while (super.tryAdvance(action)) {
+        if (matched) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override BiSpliterator<K, V> withUpstream(BiSpliterator<K, V> split) {
+      memory.shareAcrossThreads();
+      return new Deduplicating<>(split, identity, memory);
+    }
+
+    @Override int characteristics() {
+      return super.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+  }
+
+  /**
+   * The memory of one {@link Deduplicating} evaluation, shared by all of its splits. It starts out
+   * single-threaded and is upgraded upon the first split, before the splits are handed to other
+   * threads.
+   */
+  private static final class SharedMemory {
+    private final DistinctMemory strategy;
+    private DistinctMemory.Seen seen;
+    private boolean used;
+    private boolean concurrent;
+
+    SharedMemory(DistinctMemory strategy) {
+      this.strategy = requireNonNull(strategy);
+      this.seen = strategy.newSeen();
+    }
+
+    boolean add(Object identity) {
+      used = true;
+      return seen.add(identity);
+    }
+
+    void shareAcrossThreads() {
+      if (concurrent) {
+        return;
+      }
+      concurrent = true;
+      if (used) {
+        // Split after traversal started. Keep what's been seen and serialize access instead.
+        DistinctMemory.Seen unsafe = seen;
+        seen = identity -> {
+          synchronized (unsafe) {
+            return unsafe.add(identity);
+          }
+        };
+      } else {
+        seen = strategy.newConcurrentSeen();
+      }
+    }
+  }
+
+  private static final class Peeking<K, V> extends Stage<K, V, K, V> {
+    private final BiConsumer<? super K, ? super V> action;
+
+    Peeking(BiSpliterator<K, V> upstream, BiConsumer<? super K, ? super V> action) {
+      super(upstream);
+      this.action = action;
+    }
+
+    @Override public void accept(K key, V value) {
+      action.accept(key, value);
+      downstream.accept(key, value);
+    }
+
+    @Override BiSpliterator<K, V> withUpstream(BiSpliterator<K, V> split) {
+      return new Peeking<>(split, action);
+    }
+  }
+
+  private static final class Mapping<K0, V0, K, V> extends Stage<K0, V0, K, V> {
+    private final BiFunction<? super K0, ? super V0, ? extends K> keyMapper;
+    private final BiFunction<? super K0, ? super V0, ? extends V> valueMapper;
+
+    Mapping(
+        BiSpliterator<K0, V0> upstream,
+        BiFunction<? super K0, ? super V0, ? extends K> keyMapper,
+        BiFunction<? super K0, ? super V0, ? extends V> valueMapper) {
+      super(upstream);
+      this.keyMapper = keyMapper;
+      this.valueMapper = valueMapper;
+    }
+
+    @Override public void accept(K0 key, V0 value) {
+      downstream.accept(keyMapper.apply(key, value), valueMapper.apply(key, value));
+    }
+
+    @Override BiSpliterator<K, V> withUpstream(BiSpliterator<K0, V0> split) {
+      return new Mapping<>(split, keyMapper, valueMapper);
+    }
+  }
+
+  /**
+   * Emits one pair per match. When advanced one pair at a time, the matches after the first are
+   * buffered and emitted by the subsequent {@link #tryAdvance} calls.
+   */
+  private static final class Joining<K, V, R, T> extends Stage<K, V, K, T> {
+    private final Map<?, ? extends List<? extends R>> index;
+    private final BiFunction<? super V, ? super R, ? extends T> joiner;
+    private final boolean keepUnmatched;
+    private boolean draining;
+    private boolean emitted;
+    private K pendingKey;
+    private V pendingValue;
+    private List<? extends R> pendingMatches;
+    private int next;
+
+    Joining(
+        BiSpliterator<K, V> upstream,
+        Map<?, ? extends List<? extends R>> index,
+        BiFunction<? super V, ? super R, ? extends T> joiner,
+        boolean keepUnmatched) {
+      super(upstream);
+      this.index = index;
+      this.joiner = joiner;
+      this.keepUnmatched = keepUnmatched;
+    }
+
+    @Override public void accept(K key, V value) {
+      List<? extends R> matches = index.get(key);
+      if (matches == null) {
+        if (keepUnmatched) {
+          emitted = true;
+          downstream.accept(key, joiner.apply(value, null));
+        }
+        return;
+      }
+      emitted = true;
+      if (draining) {
+        for (R match : matches) {
+          downstream.accept(key, joiner.apply(value, match));
+        }
+        return;
+      }
+      downstream.accept(key, joiner.apply(value, matches.get(0)));
+      if (matches.size() > 1) {
+        pendingKey = key;
+        pendingValue = value;
+        pendingMatches = matches;
+        next = 1;
+      }
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super T> action) {
+      if (emitPending(action)) {
+        return true;
+      }
+      emitted = false;
+      while (super.tryAdvance(action)) {
+        if (emitted) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super T> action) {
+      while (emitPending(action)) {}
+      draining = true;
+      super.forEachRemaining(action);
+    }
+
+    @Override BiSpliterator<K, T> withUpstream(BiSpliterator<K, V> split) {
+      return new Joining<>(split, index, joiner, keepUnmatched);
+    }
+
+    @Override int characteristics() {
+      return super.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    private boolean emitPending(BiConsumer<? super K, ? super T> action) {
+      if (pendingMatches == null) {
+        return false;
+      }
+      action.accept(pendingKey, joiner.apply(pendingValue, pendingMatches.get(next++)));
+      if (next == pendingMatches.size()) {
+        pendingKey = null;
+        pendingValue = null;
+        pendingMatches = null;
+      }
+      return true;
+    }
+  }
+
+  private static final class Merging<K, V> extends BiSpliterator<K, V> {
+    private final List<? extends BiSpliterator<? extends K, ? extends V>> inputs;
+    private final Comparator<? super K> comparator;
+    private final BinaryOperator<V> valueMerger;
+    private final PriorityQueue<Head<K, V>> heap;
+    private boolean started;
+
+    Merging(
+        List<? extends BiSpliterator<? extends K, ? extends V>> inputs,
+        Comparator<? super K> comparator,
+        BinaryOperator<V> valueMerger) {
+      this.inputs = inputs;
+      this.comparator = comparator;
+      this.valueMerger = valueMerger;
+      this.heap =
+          new PriorityQueue<>(
+              Math.max(1, inputs.size()),
+              (a, b) -> {
+                int result = comparator.compare(a.key, b.key);
+                return result == 0 ? Integer.compare(a.index, b.index) : result;
+              });
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      if (!started) {
+        started = true;
+        for (int i = 0; i < inputs.size(); i++) {
+          Head<K, V> head = new Head<>(inputs.get(i), i);
+          if (head.advance()) {
+            heap.add(head);
+          }
+        }
+      }
+      Head<K, V> head = heap.poll();
+      if (head == null) {
+        return false;
+      }
+      K key = head.key;
+      V value = head.value;
+      refill(head);
+      if (valueMerger != null) {
+        for (Head<K, V> next = heap.peek();
+            next != null && comparator.compare(next.key, key) == 0;
+            next = heap.peek()) {
+          heap.poll();
+          value = valueMerger.apply(value, next.value);
+          refill(next);
+        }
+      }
+      action.accept(key, value);
+      return true;
+    }
+
+    @Override BiSpliterator<K, V> trySplit() {
+      return null;
+    }
+
+    @Override long estimateSize() {
+      long size = heap.size();
+      for (int i = 0; i < inputs.size(); i++) {
+        size += inputs.get(i).estimateSize();
+        if (size < 0) {
+          return Long.MAX_VALUE;
+        }
+      }
+      return size;
+    }
+
+    @Override int characteristics() {
+      return Spliterator.ORDERED;
+    }
+
+    private void refill(Head<K, V> head) {
+      if (head.advance()) {
+        heap.add(head);
+      }
+    }
+  }
+
+  private static final class AdjacentPairs<T> extends BiSpliterator<T, T> implements Consumer<T> {
+    private final Spliterator<T> elements;
+    private boolean started;
+    private T previous;
+    private BiConsumer<? super T, ? super T> downstream;
+
+    AdjacentPairs(Spliterator<T> elements) {
+      this.elements = elements;
+    }
+
+    @Override public void accept(T element) {
+      if (started) {
+        downstream.accept(previous, element);
+      } else {
+        started = true;
+      }
+      previous = element;
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super T, ? super T> action) {
+      downstream = requireNonNull(action);
+      if (!started && !elements.tryAdvance(this)) {
+        return false;
+      }
+      return elements.tryAdvance(this);
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super T, ? super T> action) {
+      downstream = requireNonNull(action);
+      elements.forEachRemaining(this);
+    }
+
+    @Override BiSpliterator<T, T> trySplit() {
+      return null;
+    }
+
+    @Override long estimateSize() {
+      long remaining = elements.estimateSize();
+      return started || remaining == Long.MAX_VALUE ? remaining : Math.max(0, remaining - 1);
+    }
+
+    @Override int characteristics() {
+      return elements.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED);
+    }
+  }
+
+  private static final class Windows<K, V, A, R> implements Spliterator<R>, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final int windowSize;
+    private final int step;
+    private final Supplier<A> newWindow;
+    private final BiConsumer<A, Map.Entry<K, V>> accumulator;
+    private final Function<A, R> finisher;
+    private final RingBuffer<K> keys;
+    private final RingBuffer<V> values;
+    private boolean exhausted;
+
+    Windows(
+        BiSpliterator<K, V> pairs,
+        int windowSize,
+        int step,
+        Collector<Map.Entry<K, V>, A, R> windowCollector) {
+      this.pairs = pairs;
+      this.windowSize = windowSize;
+      this.step = step;
+      this.newWindow = windowCollector.supplier();
+      this.accumulator = windowCollector.accumulator();
+      this.finisher = windowCollector.finisher();
+      this.keys = new RingBuffer<>(windowSize);
+      this.values = new RingBuffer<>(windowSize);
+    }
+
+    @Override public void accept(K key, V value) {
+      keys.add(key);
+      values.add(value);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super R> action) {
+      requireNonNull(action);
+      while (!keys.isFull()) {
+        if (exhausted || !pairs.tryAdvance(this)) {
+          exhausted = true;
+          if (step < windowSize || keys.isEmpty()) {
+            return false;
+          }
+          break; // The last, partial tumbling window.
+        }
+      }
+      R window = summarize();
+      keys.removeFirst(step);
+      values.removeFirst(step);
+      action.accept(window);
+      return true;
+    }
+
+    @Override public Spliterator<R> trySplit() {
+      return null;
+    }
+
+    @Override public long estimateSize() {
+      long remaining = exhausted ? 0 : pairs.estimateSize();
+      if (remaining == Long.MAX_VALUE) {
+        return remaining;
+      }
+      long total = remaining + keys.size();
+      if (step < windowSize) {
+        return total < windowSize ? 0 : total - windowSize + 1;
+      }
+      return (total + windowSize - 1) / windowSize;
+    }
+
+    @Override public int characteristics() {
+      return Spliterator.ORDERED;
+    }
+
+    private R summarize() {
+      A window = newWindow.get();
+      for (int i = 0; i < keys.size(); i++) {
+        // A fresh entry per pair, because the collector may retain what it's given.
+        accumulator.accept(window, BiStream.kv(keys.get(i), values.get(i)));
+      }
+      return finisher.apply(window);
+    }
+  }
+
+  /** The current pair of one merge input, reused as that input's consumer to avoid allocation. */
+  private static final class Head<K, V> implements BiConsumer<K, V> {
+    private final BiSpliterator<? extends K, ? extends V> input;
+    final int index;
+    K key;
+    V value;
+
+    Head(BiSpliterator<? extends K, ? extends V> input, int index) {
+      this.input = input;
+      this.index = index;
+    }
+
+    @Override public void accept(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    boolean advance() {
+      if (input.tryAdvance(this)) {
+        return true;
+      }
+      key = null;
+      value = null;
+      return false;
+    }
+  }
+
+  private static final class ToObj<K, V, T> implements Spliterator<T>, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final BiFunction<? super K, ? super V, ? extends T> mapper;
+    private Consumer<? super T> downstream;
+
+    ToObj(BiSpliterator<K, V> pairs, BiFunction<? super K, ? super V, ? extends T> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public void accept(K key, V value) {
+      downstream.accept(mapper.apply(key, value));
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super T> action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(Consumer<? super T> action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator<T> trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new ToObj<>(prefix, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class ToInt<K, V> implements Spliterator.OfInt, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final ToIntBiFunction<? super K, ? super V> mapper;
+    private IntConsumer downstream;
+
+    ToInt(BiSpliterator<K, V> pairs, ToIntBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public void accept(K key, V value) {
+      downstream.accept(mapper.applyAsInt(key, value));
+    }
+
+    @Override public boolean tryAdvance(IntConsumer action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(IntConsumer action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator.OfInt trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new ToInt<>(prefix, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class ToLong<K, V> implements Spliterator.OfLong, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final ToLongBiFunction<? super K, ? super V> mapper;
+    private LongConsumer downstream;
+
+    ToLong(BiSpliterator<K, V> pairs, ToLongBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public void accept(K key, V value) {
+      downstream.accept(mapper.applyAsLong(key, value));
+    }
+
+    @Override public boolean tryAdvance(LongConsumer action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(LongConsumer action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator.OfLong trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new ToLong<>(prefix, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class ToDouble<K, V> implements Spliterator.OfDouble, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final ToDoubleBiFunction<? super K, ? super V> mapper;
+    private DoubleConsumer downstream;
+
+    ToDouble(BiSpliterator<K, V> pairs, ToDoubleBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public void accept(K key, V value) {
+      downstream.accept(mapper.applyAsDouble(key, value));
+    }
+
+    @Override public boolean tryAdvance(DoubleConsumer action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(DoubleConsumer action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator.OfDouble trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new ToDouble<>(prefix, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+
+  private static final class Pairs<K, V> implements Spliterator<Pair<K, V>>, BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final Pair<K, V> pair = new Pair<>();
+    private Consumer<? super Pair<K, V>> downstream;
+
+    Pairs(BiSpliterator<K, V> pairs) {
+      this.pairs = pairs;
+    }
+
+    @Override public void accept(K key, V value) {
+      pair.key = key;
+      pair.value = value;
+      downstream.accept(pair);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super Pair<K, V>> action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(Consumer<? super Pair<K, V>> action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator<Pair<K, V>> trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new Pairs<>(prefix);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics() & MAPPING_CHARACTERISTICS;
+    }
+  }
+}
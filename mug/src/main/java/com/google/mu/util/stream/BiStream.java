@@ -29,13 +29,19 @@ import static java.util.stream.StreamSupport.longStream;
 import static java.util.stream.StreamSupport.stream;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractDoubleSpliterator;
 import java.util.Spliterators.AbstractIntSpliterator;
@@ -53,8 +59,11 @@ import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
 import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collector.Characteristics;
 import java.util.stream.Collectors;
@@ -104,24 +113,101 @@ public abstract class BiStream<K, V> implements AutoCloseable {
   private static final boolean NOT_PARALLEL = false;
   /**
    * Builder for {@link BiStream}. Similar to {@link Stream.Builder}, entries may not be added after
-   * {@link #build} is called.
+   * {@link #build} is called, until the builder is {@link #clear cleared}.
+   *
+   * <p>Pairs are buffered in two parallel arrays that grow geometrically, and the built stream
+   * reads them in place. The built stream is {@link Spliterator#SIZED sized}, and efficiently
+   * splittable when run in {@link #parallel}.
    *
    * @since 3.2
    */
   public static final class Builder<K, V> {
-    private final Stream.Builder<K> keys = Stream.builder();
-    private final Stream.Builder<V> values = Stream.builder();
+    private static final Object[] EMPTY = {};
+    private static final int MIN_CAPACITY = 8;
+
+    Object[] keys = EMPTY;
+    Object[] values = EMPTY;
+    int size;
+    private boolean built;
 
     Builder() {}
 
     public Builder<K, V> add(K key, V value) {
-      keys.add(key);
-      values.add(value);
+      if (built) {
+        throw new IllegalStateException("Cannot add after build(). Call clear() first.");
+      }
+      if (size == keys.length) {
+        int capacity = Math.max(MIN_CAPACITY, size + (size >> 1));
+        if (capacity < 0) {
+          throw new OutOfMemoryError("BiStream.Builder can hold at most 2^31-1 pairs.");
+        }
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
       return this;
     }
 
+    /**
+     * Builds the stream of the added pairs. The stream reads the pairs without copying them, so
+     * no more pairs may be added until {@link #clear} is called.
+     */
     public BiStream<K, V> build() {
-      return zip(keys.build(), values.build());
+      if (built) {
+        throw new IllegalStateException("build() already called. Call clear() first.");
+      }
+      built = true;
+      return fromArrays(keys, values, size);
+    }
+
+    /**
+     * Removes all pairs so that the builder can be reused. If {@link #build} hasn't been called,
+     * the buffer capacity is retained; otherwise the buffer is left to the built stream and a new
+     * one will be allocated upon the next {@link #add}.
+     *
+     * @since 5.3
+     */
+    public Builder<K, V> clear() {
+      if (built) {
+        keys = EMPTY;
+        values = EMPTY;
+        built = false;
+      } else {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+      }
+      size = 0;
+      return this;
+    }
+
+    /** Appends all pairs in {@code that} to this builder. */
+    Builder<K, V> addAll(Builder<? extends K, ? extends V> that) {
+      for (int i = 0; i < that.size; i++) {
+        add(that.key(i), that.value(i));
+      }
+      return this;
+    }
+
+    @SuppressWarnings("unchecked") // Only instances of K are added to keys.
+    private K key(int i) {
+      return (K) keys[i];
+    }
+
+    @SuppressWarnings("unchecked") // Only instances of V are added to values.
+    private V value(int i) {
+      return (V) values[i];
+    }
+
+    /**
+     * Returns the number of pairs added since the builder was created or last {@link #clear
+     * cleared}.
+     *
+     * @since 5.3
+     */
+    public int size() {
+      return size;
     }
   }
 
@@ -312,10 +398,32 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>If the input has 0 or 1 elements then the output is an empty {@code BiStream}. Otherwise the
    * length of the output {@code BiStream} is one less than the length of the input.
    *
+   * <p>To pair up the elements of a large or unbounded stream without first collecting them all,
+   * use {@link #adjacentPairsFrom} instead.
+   *
    * @since 3.2
    */
   public static <T> Collector<T, ?, BiStream<T, T>> toAdjacentPairs() {
-    return collectingAndThen(toList(), list -> zip(list.stream(), list.stream().skip(1)));
+    return collectingAndThen(toList(), list -> adjacentPairsFrom(list.stream()));
+  }
+
+  /**
+   * Returns a lazy {@code BiStream} of every neighboring pair of elements from {@code stream}. For
+   * example {@code adjacentPairsFrom(Stream.of(1, 2, 3, 4))} will return {@code [{1, 2}, {2, 3},
+   * {3, 4}]}, and the deltas between consecutive readings can be computed as:
+   *
+   * <pre>{@code
+   * adjacentPairsFrom(readings).mapToDouble((prev, next) -> next.value() - prev.value())
+   * }</pre>
+   *
+   * <p>Unlike {@link #toAdjacentPairs}, only the previous element is remembered, so an unbounded
+   * stream is paired up in constant memory. The pairs are produced sequentially even if {@code
+   * stream} is parallel.
+   *
+   * @since 5.3
+   */
+  public static <T> BiStream<T, T> adjacentPairsFrom(Stream<T> stream) {
+    return fused(stream, BiSpliterator::adjacentPairs);
   }
 
   /**
@@ -466,6 +574,90 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return fromEntries(biStreams.flatMap(BiStream::mapToEntry));
   }
 
+  /**
+   * Returns a {@code BiStream} of the pairs from {@code sortedStreams}, each of which must already
+   * be sorted by keys in the order of {@code comparator}, merged into one stream in the same order.
+   * For example, to combine the key-sorted outputs of several shards:
+   *
+   * <pre>{@code
+   * BiStream<UserId, Activity> allActivities =
+   *     BiStream.mergeSorted(naturalOrder(), shard1.activities(), shard2.activities());
+   * }</pre>
+   *
+   * <p>Unlike {@code concat(...).sortedByKeys(comparator)}, nothing is re-sorted: the pairs are
+   * merged lazily through a heap of one pair per input, in O(n log k) time for k inputs. Pairs with
+   * equal keys come in the order of {@code sortedStreams}. If an input isn't sorted, the result
+   * isn't either, but no pair is lost.
+   *
+   * <p>Closing the returned stream closes all of {@code sortedStreams}.
+   *
+   * @since 5.3
+   */
+  @SafeVarargs
+  public static <K, V> BiStream<K, V> mergeSorted(
+      Comparator<? super K> comparator, BiStream<? extends K, ? extends V>... sortedStreams) {
+    return mergeSorted(comparator, Arrays.asList(sortedStreams));
+  }
+
+  /**
+   * Returns a {@code BiStream} of the pairs from {@code sortedStreams}, each of which must already
+   * be sorted by keys in the order of {@code comparator}, merged into one stream in the same order.
+   * Same as {@link #mergeSorted(Comparator, BiStream...)}.
+   *
+   * @since 5.3
+   */
+  public static <K, V> BiStream<K, V> mergeSorted(
+      Comparator<? super K> comparator,
+      Collection<? extends BiStream<? extends K, ? extends V>> sortedStreams) {
+    return sortedMerge(comparator, sortedStreams, null);
+  }
+
+  /**
+   * Returns a {@code BiStream} of the pairs from {@code sortedStreams}, each of which must already
+   * be sorted by keys in the order of {@code comparator}, merged into one stream in the same order,
+   * with the values of equal keys combined by {@code valueMerger} as they are merged. For example,
+   * to add up per-shard counts of key-sorted words:
+   *
+   * <pre>{@code
+   * BiStream<String, Long> wordCounts =
+   *     BiStream.mergeSorted(naturalOrder(), Long::sum, shardWordCounts);
+   * }</pre>
+   *
+   * <p>Each key occurs once in the result, as long as it occurs consecutively in each input. Values
+   * are combined in the order of {@code sortedStreams}, and the first of the equal keys is kept.
+   *
+   * @since 5.3
+   */
+  public static <K, V> BiStream<K, V> mergeSorted(
+      Comparator<? super K> comparator,
+      BinaryOperator<V> valueMerger,
+      Collection<? extends BiStream<? extends K, ? extends V>> sortedStreams) {
+    requireNonNull(valueMerger);
+    return sortedMerge(comparator, sortedStreams, valueMerger);
+  }
+
+  private static <K, V> BiStream<K, V> sortedMerge(
+      Comparator<? super K> comparator,
+      Collection<? extends BiStream<? extends K, ? extends V>> sortedStreams,
+      BinaryOperator<V> valueMerger) {
+    requireNonNull(comparator);
+    List<BiStream<? extends K, ? extends V>> streams = new ArrayList<>(sortedStreams.size());
+    for (BiStream<? extends K, ? extends V> stream : sortedStreams) {
+      streams.add(requireNonNull(stream));
+    }
+    Stream<BiStream<? extends K, ? extends V>> source = streams.stream();
+    for (BiStream<? extends K, ? extends V> stream : streams) {
+      source = source.onClose(stream::close);
+    }
+    return fused(
+        source,
+        inputs -> {
+          List<BiSpliterator<? extends K, ? extends V>> sortedInputs = new ArrayList<>();
+          inputs.forEachRemaining(stream -> sortedInputs.add(stream.toFused().spliterator()));
+          return BiSpliterator.mergeSorted(sortedInputs, comparator, valueMerger);
+        });
+  }
+
   /**
    * Returns a {@code BiStream} in which the first element in {@code left} is paired with the first
    * element in {@code right}; the second paired with the corresponding second and the third with
@@ -475,9 +667,23 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>The resulting stream will only be as long as the shorter of the two iterables; if one is
    * longer, its extra elements will be ignored.
    *
+   * <p>If both {@code left} and {@code right} are {@link RandomAccess} lists, the pairs are read by
+   * index and the resulting stream is sized and efficiently splittable when run in {@link
+   * #parallel}.
+   *
    * @since 3.0
    */
   public static <L, R> BiStream<L, R> zip(Collection<L> left, Collection<R> right) {
+    if (left instanceof RandomAccess && left instanceof List
+        && right instanceof RandomAccess && right instanceof List) {
+      List<L> leftList = (List<L>) left;
+      List<R> rightList = (List<R>) right;
+      return fromEntries(
+          stream(
+              () -> new ZippedListSpliterator<>(leftList, rightList),
+              ZippedListSpliterator.CHARACTERISTICS,
+              NOT_PARALLEL));
+    }
     return zip(left.stream(), right.stream());
   }
 
@@ -493,7 +699,8 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>The resulting stream by default runs sequentially regardless of the input streams. This is
    * because the implementation is not <a
    * href="http://gee.cs.oswego.edu/dl/html/StreamParallelGuidance.html">efficiently splittable</a>.
-   * and may not perform well if run in parallel.
+   * and may not perform well if run in parallel. If you need to process the pairs in parallel,
+   * consider {@link #zip(Collection, Collection)} with random-access lists.
    */
   public static <L, R> BiStream<L, R> zip(Stream<L> left, Stream<R> right) {
     return new ZippingStream<>(left, right);
@@ -658,6 +865,18 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    *
    * <p>Null elements are allowed as long as the {@code by} function allows nulls.
    *
+   * <p>A sequential {@code stream} is grouped lazily, holding only the run in progress. Its
+   * {@link Spliterator#estimateSize size estimate} is only an upper bound (one run per remaining
+   * element), because the number of runs isn't known until the input is consumed.
+   *
+   * <p>If {@code stream} is parallel, each of its segments is grouped on its own thread, and a run
+   * that spans two segments is stitched back together with the {@code runSummarizer}'s combiner.
+   * The parallel path is neither lazy nor bounded in memory: the whole input is consumed and all
+   * runs are materialized, using memory proportional to the number of runs, as soon as the
+   * returned stream starts. Only then is the returned stream parallel and exactly sized.
+   *
+   * <p>Closing the returned stream closes {@code stream}.
+   *
    * @param stream the stream of input elements
    * @param by the function to compute the key of each element
    * @param runSummarizer collector to summarize elements of the same "run"
@@ -669,6 +888,16 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       Collector<? super T, A, R> runSummarizer) {
     requireNonNull(stream);
     requireNonNull(by);
+    if (stream.isParallel()) {
+      Collector<T, ?, List<Map.Entry<K, R>>> grouping =
+          ConsecutiveRuns.collector(by, runSummarizer);
+      return fromEntries(
+          StreamSupport.stream(
+              () -> stream.collect(grouping).spliterator(),
+              Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED,
+              true)
+              .onClose(stream::close));
+    }
     Supplier<A> newBuffer = runSummarizer.supplier();
     BiConsumer<A, ? super T> accumulator = runSummarizer.accumulator();
     Function<A, R> finisher = runSummarizer.finisher();
@@ -684,6 +913,12 @@ public abstract class BiStream<K, V> implements AutoCloseable {
         super(Long.MAX_VALUE, characteristics);
       }
 
+      @Override public long estimateSize() {
+        // At most one run per remaining element, plus the run in progress.
+        long remaining = spliterator.estimateSize();
+        return currentRun == null || remaining == Long.MAX_VALUE ? remaining : remaining + 1;
+      }
+
       @Override public boolean tryAdvance(Consumer<? super Map.Entry<K, R>> action) {
         while (spliterator.tryAdvance(this)) {
           if (completedRun != null) {
@@ -722,7 +957,8 @@ public abstract class BiStream<K, V> implements AutoCloseable {
         completedRun = kv(currentKey, finisher.apply(currentRun));
       }
     };
-    return fromEntries(StreamSupport.stream(Runner::new, characteristics, NOT_PARALLEL));
+    return fromEntries(
+        StreamSupport.stream(Runner::new, characteristics, NOT_PARALLEL).onClose(stream::close));
   }
 
   static <K, V, E extends Map.Entry<? extends K, ? extends V>> BiStream<K, V> fromEntries(
@@ -744,6 +980,16 @@ public abstract class BiStream<K, V> implements AutoCloseable {
         return from(entryStream, Map.Entry::getKey, forEntry(valueMapper));
       }
 
+      @Override public BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
+        requireNonNull(predicate);
+        return fromEntries(entryStream.filter(e -> predicate.test(e.getKey(), e.getValue())));
+      }
+
+      @Override public BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action);
+        return fromEntries(entryStream.peek(e -> action.accept(e.getKey(), e.getValue())));
+      }
+
       @Override public BiStream<K, V> limit(int maxSize) { // Stick to this impl where mapToEntry() is cheap
         return fromEntries(entryStream.limit(maxSize));
       }
@@ -752,6 +998,14 @@ public abstract class BiStream<K, V> implements AutoCloseable {
         return fromEntries(entryStream.skip(n));
       }
 
+      @Override public BiStream<K, V> parallel() {
+        return fromEntries(entryStream.parallel());
+      }
+
+      @Override public BiStream<K, V> sequential() {
+        return fromEntries(entryStream.sequential());
+      }
+
       @Override Stream<E> mapToEntry() { // Reuse the same Entry objects. Don't allocate new ones
         return entryStream;
       }
@@ -762,6 +1016,30 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return mapToObj(BiStream::kv);
   }
 
+  /** Returns an equivalent stream backed by a {@link BiSpliterator} pipeline. */
+  FusedStream<?, K, V> toFused() {
+    return fromEntries(mapToEntry()).toFused();
+  }
+
+  /** Returns a {@code BiStream} of the pairs produced by {@code pipeline} over {@code source}. */
+  static <E, K, V> BiStream<K, V> fused(
+      Stream<E> source, Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pipeline) {
+    return new FusedStream<>(source, pipeline);
+  }
+
+  /**
+   * Returns a sized and splittable {@code BiStream} of the first {@code size} pairs in the parallel
+   * arrays {@code keys} and {@code values}, without copying them.
+   */
+  static <K, V> BiStream<K, V> fromArrays(Object[] keys, Object[] values, int size) {
+    // Each split reuses a single Pair, which is read into key and value right away.
+    Spliterator<BiSpliterator.Pair<K, V>> pairs =
+        BiSpliterator.<K, V>ofArrays(keys, values, 0, size).pairs();
+    return fused(
+        StreamSupport.stream(pairs, NOT_PARALLEL),
+        elements -> BiSpliterator.of(elements, BiSpliterator.Pair::key, BiSpliterator.Pair::value));
+  }
+
   /**
    * Returns a {@code Stream} consisting of the results of applying {@code mapper} to each pair in
    * this {@code BiStream}.
@@ -887,6 +1165,76 @@ public abstract class BiStream<K, V> implements AutoCloseable {
   /** Maps each value to another value of type {@code V2}. */
   public abstract <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper);
 
+  /**
+   * Maps each value to an {@code int} using {@code valueMapper}, returning an {@link
+   * ObjIntBiStream} that passes the values along without boxing.
+   *
+   * @since 5.3
+   */
+  public final ObjIntBiStream<K> mapValuesToInt(
+      ToIntBiFunction<? super K, ? super V> valueMapper) {
+    return toFused().intValued(valueMapper);
+  }
+
+  /**
+   * Maps each value to an {@code int} using {@code valueMapper}, returning an {@link
+   * ObjIntBiStream} that passes the values along without boxing.
+   *
+   * @since 5.3
+   */
+  public final ObjIntBiStream<K> mapValuesToInt(ToIntFunction<? super V> valueMapper) {
+    requireNonNull(valueMapper);
+    return mapValuesToInt((k, v) -> valueMapper.applyAsInt(v));
+  }
+
+  /**
+   * Maps each value to a {@code long} using {@code valueMapper}, returning an {@link
+   * ObjLongBiStream} that passes the values along without boxing. For example:
+   *
+   * <pre>{@code
+   * long totalHits = BiStream.from(hitsByUrl).mapValuesToLong(AtomicLong::get).sum();
+   * }</pre>
+   *
+   * @since 5.3
+   */
+  public final ObjLongBiStream<K> mapValuesToLong(
+      ToLongBiFunction<? super K, ? super V> valueMapper) {
+    return toFused().longValued(valueMapper);
+  }
+
+  /**
+   * Maps each value to a {@code long} using {@code valueMapper}, returning an {@link
+   * ObjLongBiStream} that passes the values along without boxing.
+   *
+   * @since 5.3
+   */
+  public final ObjLongBiStream<K> mapValuesToLong(ToLongFunction<? super V> valueMapper) {
+    requireNonNull(valueMapper);
+    return mapValuesToLong((k, v) -> valueMapper.applyAsLong(v));
+  }
+
+  /**
+   * Maps each value to a {@code double} using {@code valueMapper}, returning an {@link
+   * ObjDoubleBiStream} that passes the values along without boxing.
+   *
+   * @since 5.3
+   */
+  public final ObjDoubleBiStream<K> mapValuesToDouble(
+      ToDoubleBiFunction<? super K, ? super V> valueMapper) {
+    return toFused().doubleValued(valueMapper);
+  }
+
+  /**
+   * Maps each value to a {@code double} using {@code valueMapper}, returning an {@link
+   * ObjDoubleBiStream} that passes the values along without boxing.
+   *
+   * @since 5.3
+   */
+  public final ObjDoubleBiStream<K> mapValuesToDouble(ToDoubleFunction<? super V> valueMapper) {
+    requireNonNull(valueMapper);
+    return mapValuesToDouble((k, v) -> valueMapper.applyAsDouble(v));
+  }
+
   /**
    * Maps a single pair to zero or more objects of type {@code T}.
    *
@@ -1152,7 +1500,7 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * Returns a {@code BiStream} consisting of the pairs of this stream, additionally invoking {@code
    * action} on each pair as pairs are consumed from the resulting stream.
    */
-  public final BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
+  public BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
     requireNonNull(action);
     return fromEntries(mapToEntry().peek(e -> action.accept(e.getKey(), e.getValue())));
   }
@@ -1163,7 +1511,7 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>Note that if you are passing in a lambda with the {@code !} operator, consider using {@link
    * #skipIf} instead that might even allow you to use method reference.
    */
-  public final BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
+  public BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
     requireNonNull(predicate);
     return fromEntries(mapToEntry().filter(kv -> predicate.test(kv.getKey(), kv.getValue())));
   }
@@ -1242,6 +1590,122 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return filterValues(predicate.negate());
   }
 
+  /**
+   * Hash-joins this stream with {@code right} on equal keys. For each pair in this stream, and each
+   * value in {@code right} whose key is equal, the result contains the key paired with {@code
+   * joiner} applied to the two values. For example:
+   *
+   * <pre>{@code
+   * BiStream<OrderId, Shipment> shipments = BiStream.from(ordersById)
+   *     .innerJoin(BiStream.from(addresses, Address::orderId, a -> a), Shipment::new);
+   * }</pre>
+   *
+   * <p>When the returned stream is consumed, the pairs of {@code right} are loaded into a hash
+   * index once, and then each pair of this stream probes the index in {@code O(1)} time, so the
+   * join takes {@code O(m + n)} time and {@code O(n)} space where {@code n} is the size of {@code
+   * right}. Pass the smaller side as {@code right}. Duplicate keys in either side are supported:
+   * the output is ordered by this stream first, then by the encounter order of {@code right}.
+   *
+   * <p>Closing the returned stream closes both this stream and {@code right}.
+   *
+   * @since 5.3
+   */
+  public final <R, T> BiStream<K, T> innerJoin(
+      BiStream<? extends K, ? extends R> right,
+      BiFunction<? super V, ? super R, ? extends T> joiner) {
+    return hashJoin(right, joiner, false);
+  }
+
+  /**
+   * Joins this stream with the {@code right} map on equal keys. For each pair in this stream whose
+   * key is in {@code right}, the result contains the key paired with {@code joiner} applied to the
+   * value and the value mapped to the key by {@code right}. The map is used as the hash index.
+   *
+   * @since 5.3
+   */
+  public final <R, T> BiStream<K, T> innerJoin(
+      Map<? extends K, ? extends R> right, BiFunction<? super V, ? super R, ? extends T> joiner) {
+    requireNonNull(joiner);
+    return semiJoin(right).mapValues((k, v) -> joiner.apply(v, right.get(k)));
+  }
+
+  /**
+   * Same as {@link #innerJoin(BiStream, BiFunction)}, except that a pair in this stream whose key
+   * has no equal key in {@code right} isn't dropped. Like SQL's {@code LEFT JOIN}, it's joined with
+   * null instead, that is, paired with {@code joiner.apply(value, null)}.
+   *
+   * @since 5.3
+   */
+  public final <R, T> BiStream<K, T> leftJoin(
+      BiStream<? extends K, ? extends R> right,
+      BiFunction<? super V, ? super R, ? extends T> joiner) {
+    return hashJoin(right, joiner, true);
+  }
+
+  /**
+   * Same as {@link #innerJoin(Map, BiFunction)}, except that a pair in this stream whose key isn't
+   * in {@code right} isn't dropped. Like SQL's {@code LEFT JOIN}, it's joined with null instead,
+   * that is, paired with {@code joiner.apply(value, null)}.
+   *
+   * @since 5.3
+   */
+  public final <R, T> BiStream<K, T> leftJoin(
+      Map<? extends K, ? extends R> right, BiFunction<? super V, ? super R, ? extends T> joiner) {
+    requireNonNull(right);
+    requireNonNull(joiner);
+    return mapValues((k, v) -> joiner.apply(v, right.get(k)));
+  }
+
+  /**
+   * Returns the pairs in this stream whose keys are equal to at least one key in {@code right}.
+   * Each pair is kept at most once, regardless of how many times its key occurs in {@code right}.
+   *
+   * <p>When the returned stream is consumed, the keys of {@code right} are loaded into a hash set
+   * once, and then each pair of this stream is checked in {@code O(1)} time.
+   *
+   * <p>Closing the returned stream closes both this stream and {@code right}.
+   *
+   * @since 5.3
+   */
+  public final BiStream<K, V> semiJoin(BiStream<? extends K, ?> right) {
+    requireNonNull(right);
+    return toFused()
+        .onClose(right::close)
+        .fuse(
+            pairs -> {
+              Set<Object> keys = new HashSet<>();
+              right.forEachOrdered((k, r) -> keys.add(k));
+              return pairs.filter((k, v) -> keys.contains(k));
+            });
+  }
+
+  /**
+   * Returns the pairs in this stream whose keys are in the {@code right} map.
+   *
+   * @since 5.3
+   */
+  public final BiStream<K, V> semiJoin(Map<? extends K, ?> right) {
+    requireNonNull(right);
+    return filterKeys(right::containsKey);
+  }
+
+  private <R, T> BiStream<K, T> hashJoin(
+      BiStream<? extends K, ? extends R> right,
+      BiFunction<? super V, ? super R, ? extends T> joiner,
+      boolean keepUnmatched) {
+    requireNonNull(right);
+    requireNonNull(joiner);
+    return toFused()
+        .onClose(right::close)
+        .fuse(pairs -> pairs.join(hashIndex(right), joiner, keepUnmatched));
+  }
+
+  private static <K, V> Map<K, List<V>> hashIndex(BiStream<? extends K, ? extends V> stream) {
+    Map<K, List<V>> index = new HashMap<>();
+    stream.forEachOrdered((k, v) -> index.computeIfAbsent(k, unused -> new ArrayList<>(1)).add(v));
+    return index;
+  }
+
   /**
    * Returns a {@code BiStream} consisting of the pairs in this stream, followed by the pairs in
    * {@code other}.
@@ -1339,6 +1803,62 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return fromEntries(mapToEntry().distinct());
   }
 
+  /**
+   * Returns a {@code BiStream} consisting of the pairs with distinct keys (according to {@code
+   * Object.equals(Object)}). For each key, the first pair encountered is retained, unless this
+   * stream is parallel, in which case which pair is retained is unspecified.
+   *
+   * <p>Unlike {@link #distinct}, this method doesn't allocate an entry per pair. Use {@link
+   * #distinctBy(BiFunction, DistinctMemory)} to bound the memory used for remembering the keys.
+   *
+   * @since 5.3
+   */
+  public final BiStream<K, V> distinctKeys() {
+    return distinctBy((k, v) -> k);
+  }
+
+  /**
+   * Returns a {@code BiStream} consisting of the pairs with distinct identities, as computed by
+   * {@code identity}. Pairs with equal identities (according to {@code Object.equals(Object)}) are
+   * considered duplicates, and only the first one encountered is retained.
+   *
+   * <p>For example, {@code distinctBy((user, event) -> event.sessionId())} keeps the first event of
+   * each session.
+   *
+   * <p>All distinct identities are remembered until the stream is exhausted. Use {@link
+   * #distinctBy(BiFunction, DistinctMemory)} for bounded memory.
+   *
+   * @since 5.3
+   */
+  public final BiStream<K, V> distinctBy(BiFunction<? super K, ? super V, ?> identity) {
+    return distinctBy(identity, DistinctMemory.unbounded());
+  }
+
+  /**
+   * Returns a {@code BiStream} consisting of the pairs with distinct identities, as computed by
+   * {@code identity} and remembered by {@code memory}. For example:
+   *
+   * <pre>{@code
+   * BiStream.from(events, Event::id, e -> e)
+   *     .distinctBy((id, event) -> id, DistinctMemory.recent(100_000))
+   * }</pre>
+   *
+   * <p>drops events whose id was seen among the last 100,000 distinct ids, in O(100,000) memory
+   * regardless of how long the stream runs.
+   *
+   * <p>If this stream is parallel, which of the duplicate pairs is retained is unspecified; and for
+   * {@link DistinctMemory#recent}, what's "recent" depends on thread scheduling. Unlike {@link
+   * #distinct}, no pair is buffered to honor the encounter order.
+   *
+   * @since 5.3
+   */
+  public final BiStream<K, V> distinctBy(
+      BiFunction<? super K, ? super V, ?> identity, DistinctMemory memory) {
+    requireNonNull(identity);
+    requireNonNull(memory);
+    return toFused().fuse(pairs -> pairs.distinctBy(identity, memory));
+  }
+
   /**
    * Returns a {@code BiStream} consisting of the pairs in this stream, in the order produced by
    * applying {@code keyComparator} on the keys of each pair, and then for equal keys,
@@ -1394,6 +1914,109 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return fromEntries(mapToEntry().sorted(ordering.asComparator(Map.Entry::getKey, Map.Entry::getValue)));
   }
 
+  /**
+   * Returns a {@code BiStream} consisting of the first {@code k} pairs of this stream in the order
+   * of {@code ordering}. Equivalent to {@code sorted(ordering).limit(k)}, including the order of
+   * equal pairs, but uses a bounded heap: O(n log k) time and O(k) memory. For example:
+   *
+   * <pre>{@code
+   * BiStream.from(scores)
+   *     .topK(100, comparingValue(Score::points, reverseOrder()))
+   *     .forEach(leaderBoard::add);
+   * }</pre>
+   *
+   * <p>This stream is consumed when the returned stream is. If this stream is parallel, it's
+   * consumed in parallel, with one heap per thread.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public final BiStream<K, V> topK(int k, BiComparator<? super K, ? super V> ordering) {
+    return topK(BiCollectors.topK(k, ordering));
+  }
+
+  /**
+   * Returns a {@code BiStream} consisting of the first {@code k} pairs of this stream in the order
+   * of {@code comparator} applied to the keys. Equivalent to {@code
+   * sortedByKeys(comparator).limit(k)} but runs in O(n log k) time and O(k) memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public final BiStream<K, V> topKByKeys(int k, Comparator<? super K> comparator) {
+    return topK(BiCollectors.topKByKeys(k, comparator));
+  }
+
+  /**
+   * Returns a {@code BiStream} consisting of the first {@code k} pairs of this stream in the order
+   * of {@code comparator} applied to the values. Equivalent to {@code
+   * sortedByValues(comparator).limit(k)} but runs in O(n log k) time and O(k) memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 5.3
+   */
+  public final BiStream<K, V> topKByValues(int k, Comparator<? super V> comparator) {
+    return topK(BiCollectors.topKByValues(k, comparator));
+  }
+
+  private BiStream<K, V> topK(BiCollector<K, V, BiStream<K, V>> collector) {
+    return fromEntries(
+        stream(() -> collect(collector).mapToEntry().spliterator(), ORDERED, false)
+            .onClose(this::close));
+  }
+
+  /**
+   * Returns a lazy {@code Stream} of the sliding windows of {@code windowSize} consecutive pairs in
+   * this stream, each window starting one pair after the previous one and summarized by {@code
+   * windowCollector}. For example, to compute the 7-day moving average of daily prices:
+   *
+   * <pre>{@code
+   * BiStream.from(pricesByDay)  // sorted by day
+   *     .sliding(7, averagingDouble((day, price) -> price))
+   * }</pre>
+   *
+   * <p>If there are fewer than {@code windowSize} pairs, the result is empty. Only the current
+   * window is buffered, in a ring buffer, so an unbounded stream is windowed in O(windowSize)
+   * memory. Windows are computed sequentially even if this stream is parallel.
+   *
+   * @throws IllegalArgumentException if {@code windowSize <= 0}
+   * @since 5.3
+   */
+  public final <R> Stream<R> sliding(
+      int windowSize, BiCollector<? super K, ? super V, R> windowCollector) {
+    return toFused().windows(checkWindowSize(windowSize), 1, requireNonNull(windowCollector));
+  }
+
+  /**
+   * Returns a lazy {@code Stream} of the non-overlapping windows of {@code windowSize} consecutive
+   * pairs in this stream, each summarized by {@code windowCollector}. If the number of pairs isn't
+   * a multiple of {@code windowSize}, the last window has fewer pairs. For example, to add up the
+   * bytes sent in each batch of 100 requests:
+   *
+   * <pre>{@code
+   * BiStream.from(requests, Request::id, Request::bytes)
+   *     .tumbling(100, summingLong((id, bytes) -> bytes))
+   * }</pre>
+   *
+   * <p>Only the current window is buffered, so an unbounded stream is windowed in O(windowSize)
+   * memory. Windows are computed sequentially even if this stream is parallel.
+   *
+   * @throws IllegalArgumentException if {@code windowSize <= 0}
+   * @since 5.3
+   */
+  public final <R> Stream<R> tumbling(
+      int windowSize, BiCollector<? super K, ? super V, R> windowCollector) {
+    return toFused()
+        .windows(checkWindowSize(windowSize), windowSize, requireNonNull(windowCollector));
+  }
+
+  private static int checkWindowSize(int windowSize) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize (" + windowSize + ") must be positive.");
+    }
+    return windowSize;
+  }
+
   /** Returns the count of pairs in this stream. */
   public final long count() {
     return keys().count();
@@ -1454,6 +2077,38 @@ public abstract class BiStream<K, V> implements AutoCloseable {
   public abstract <A> A collect(
       A container, BiAccumulator<? super A, ? super K, ? super V> accumulator);
 
+  /**
+   * Returns an equivalent {@code BiStream} that is parallel. Subsequent operations, including
+   * {@link #collect(BiCollector)}, may then be executed by multiple threads, as in {@link
+   * Stream#parallel}.
+   *
+   * <p>How well the pairs are split between threads depends on the source. Streams created from
+   * maps, collections and parallel streams split as well as their source does. The stream
+   * returned by {@link #zip(Collection, Collection)} splits evenly by index if both sides are
+   * {@link RandomAccess} lists, whereas {@link #zip(Stream, Stream)} can only be split by
+   * buffering pairs in batches.
+   *
+   * <p>{@link #forEachOrdered} and {@link #collect(Object, BiAccumulator)} still process pairs
+   * sequentially in encounter order.
+   *
+   * @since 5.3
+   */
+  public abstract BiStream<K, V> parallel();
+
+  /**
+   * Returns an equivalent {@code BiStream} that is sequential.
+   *
+   * @since 5.3
+   */
+  public abstract BiStream<K, V> sequential();
+
+  /**
+   * Returns whether this stream would execute in parallel if a terminal operation were invoked.
+   *
+   * @since 5.3
+   */
+  public abstract boolean isParallel();
+
   /**
    * Closes any resources associated with this stream, tyipcally used in a try-with-resources
    * statement.
@@ -1529,10 +2184,28 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       return underlying.mapToLong(e -> mapper.applyAsLong(toKey.apply(e), toValue.apply(e)));
     }
 
+    @Override public <K2, V2> BiStream<K2, V2> map(
+        BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+        BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+      requireNonNull(keyMapper);
+      requireNonNull(valueMapper);
+      return fuse(pairs -> pairs.map(keyMapper, valueMapper));
+    }
+
     @Override public final <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
       return from(underlying, toKey.andThen(keyMapper), toValue);
     }
 
+    @Override public BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return fuse(pairs -> pairs.filter(predicate));
+    }
+
+    @Override public BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      return fuse(pairs -> pairs.peek(action));
+    }
+
     @Override public final <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
       return from(underlying, toKey, toValue.andThen(valueMapper));
     }
@@ -1569,6 +2242,18 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       return from(underlying.skip(n), toKey, toValue);
     }
 
+    @Override public BiStream<K, V> parallel() {
+      return from(underlying.parallel(), toKey, toValue);
+    }
+
+    @Override public BiStream<K, V> sequential() {
+      return from(underlying.sequential(), toKey, toValue);
+    }
+
+    @Override public final boolean isParallel() {
+      return underlying.isParallel();
+    }
+
     @Override public final <R> R collect(BiCollector<? super K, ? super V, R> collector) {
       return underlying.collect(collector.splitting(toKey::apply, toValue::apply));
     }
@@ -1589,6 +2274,198 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       requireNonNull(function);
       return e -> function.apply(toKey.apply(e), toValue.apply(e));
     }
+
+    @Override final FusedStream<E, K, V> toFused() {
+      return new FusedStream<>(
+          underlying, elements -> BiSpliterator.of(elements, toKey, toValue));
+    }
+
+    /**
+     * Applies {@code stage} on the key value pairs without materializing them as entries.
+     * {@code toKey} and {@code toValue} are still invoked exactly once per element.
+     */
+    private <K2, V2> BiStream<K2, V2> fuse(
+        Function<BiSpliterator<K, V>, BiSpliterator<K2, V2>> stage) {
+      return new FusedStream<>(
+          underlying, elements -> stage.apply(BiSpliterator.of(elements, toKey, toValue)));
+    }
+  }
+
+  /**
+   * An implementation that passes the key value pairs derived from the {@code source} stream
+   * through a {@link BiSpliterator} pipeline. Consecutive stages like {@link #filter}, {@link
+   * #mapValues} and {@link #peek} are fused, with keys and values passed from one stage to the
+   * next as method parameters, so that no intermediary {@link Map.Entry} is allocated per pair.
+   *
+   * <p>Parallelism, laziness and closing are all delegated to the {@code source} stream.
+   */
+  private static final class FusedStream<E, K, V> extends BiStream<K, V> {
+    private final Stream<E> source;
+    private final Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pipeline;
+
+    FusedStream(
+        Stream<E> source,
+        Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pipeline) {
+      this.source = requireNonNull(source);
+      this.pipeline = requireNonNull(pipeline);
+    }
+
+    @Override public <T> Stream<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+      requireNonNull(mapper);
+      return MoreStreams.mapBySpliterator(
+          source, ORDERED, elements -> pipeline.apply(elements).mapToObj(mapper));
+    }
+
+    @Override public DoubleStream mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return doubleStream(() -> spliterator().mapToDouble(mapper), ORDERED, source.isParallel())
+          .onClose(source::close);
+    }
+
+    @Override public IntStream mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return intStream(() -> spliterator().mapToInt(mapper), ORDERED, source.isParallel())
+          .onClose(source::close);
+    }
+
+    @Override public LongStream mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return longStream(() -> spliterator().mapToLong(mapper), ORDERED, source.isParallel())
+          .onClose(source::close);
+    }
+
+    @Override public <K2, V2> BiStream<K2, V2> map(
+        BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+        BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+      requireNonNull(keyMapper);
+      requireNonNull(valueMapper);
+      return fuse(pairs -> pairs.map(keyMapper, valueMapper));
+    }
+
+    @Override public <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+      requireNonNull(keyMapper);
+      return fuse(pairs -> pairs.map((k, v) -> keyMapper.apply(k), (k, v) -> v));
+    }
+
+    @Override public <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
+      requireNonNull(valueMapper);
+      return fuse(pairs -> pairs.map((k, v) -> k, (k, v) -> valueMapper.apply(v)));
+    }
+
+    @Override public BiStream<V, K> inverse() {
+      return fuse(pairs -> pairs.map((k, v) -> v, (k, v) -> k));
+    }
+
+    @Override public BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return fuse(pairs -> pairs.filter(predicate));
+    }
+
+    @Override public BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      return fuse(pairs -> pairs.peek(action));
+    }
+
+    @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      if (source.isParallel()) {
+        mapToObj((k, v) -> {
+          action.accept(k, v);
+          return null;
+        }).forEach(x -> {});
+      } else {
+        spliterator().forEachRemaining(action);
+      }
+    }
+
+    @Override public void forEachOrdered(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      spliterator().forEachRemaining(action);
+    }
+
+    @Override public boolean allMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return mapToObj(predicate::test).allMatch(Boolean::booleanValue);
+    }
+
+    @Override public boolean anyMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return mapToObj(predicate::test).anyMatch(Boolean::booleanValue);
+    }
+
+    @Override public BiStream<K, V> limit(int maxSize) {
+      return fromEntries(mapToEntry().limit(maxSize));
+    }
+
+    @Override public BiStream<K, V> skip(int n) {
+      return fromEntries(mapToEntry().skip(n));
+    }
+
+    @Override public <R> R collect(BiCollector<? super K, ? super V, R> collector) {
+      // A fresh entry per pair, because the collector may retain what it's given.
+      return this.<Map.Entry<K, V>>mapToObj(BiStream::kv)
+          .collect(collector.<Map.Entry<K, V>>splitting(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Override public <A> A collect(
+        A container, BiAccumulator<? super A, ? super K, ? super V> accumulator) {
+      requireNonNull(accumulator);
+      spliterator().forEachRemaining(accumulator.into(container));
+      return container;
+    }
+
+    @Override public BiStream<K, V> parallel() {
+      return new FusedStream<>(source.parallel(), pipeline);
+    }
+
+    @Override public BiStream<K, V> sequential() {
+      return new FusedStream<>(source.sequential(), pipeline);
+    }
+
+    @Override public boolean isParallel() {
+      return source.isParallel();
+    }
+
+    @Override public void close() {
+      source.close();
+    }
+
+    @Override FusedStream<E, K, V> toFused() {
+      return this;
+    }
+
+    ObjIntBiStream<K> intValued(ToIntBiFunction<? super K, ? super V> valueMapper) {
+      return ObjIntBiStream.from(source, pipeline, valueMapper);
+    }
+
+    ObjLongBiStream<K> longValued(ToLongBiFunction<? super K, ? super V> valueMapper) {
+      return ObjLongBiStream.from(source, pipeline, valueMapper);
+    }
+
+    ObjDoubleBiStream<K> doubleValued(ToDoubleBiFunction<? super K, ? super V> valueMapper) {
+      return ObjDoubleBiStream.from(source, pipeline, valueMapper);
+    }
+
+    <R> Stream<R> windows(
+        int windowSize, int step, BiCollector<? super K, ? super V, R> windowCollector) {
+      return MoreStreams.mapBySpliterator(
+          source,
+          ORDERED,
+          elements -> pipeline.apply(elements).windows(windowSize, step, windowCollector));
+    }
+
+    private BiSpliterator<K, V> spliterator() {
+      return pipeline.apply(source.spliterator());
+    }
+
+    private <K2, V2> BiStream<K2, V2> fuse(
+        Function<BiSpliterator<K, V>, BiSpliterator<K2, V2>> stage) {
+      return new FusedStream<>(source, elements -> stage.apply(pipeline.apply(elements)));
+    }
+
+    private FusedStream<E, K, V> onClose(Runnable closeHandler) {
+      return new FusedStream<>(source.onClose(closeHandler), pipeline);
+    }
   }
 
   private static final class ZippingStream<K, V> extends BiStream<K, V> {
@@ -1667,6 +2544,19 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       return zip(left.skip(n), right.skip(n));
     }
 
+    @Override public BiStream<K, V> parallel() {
+      // The two sides can't be split in lock step. Let the JDK split the zipped pairs in batches.
+      return fromEntries(mapToEntry().parallel());
+    }
+
+    @Override public BiStream<K, V> sequential() {
+      return this;
+    }
+
+    @Override public boolean isParallel() {
+      return false;
+    }
+
     @Override public <R> R collect(BiCollector<? super K, ? super V, R> collector) {
       requireNonNull(collector);
       return new Spliteration().collectWith(collector);
@@ -1795,6 +2685,63 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     }
   }
 
+  /** Reads pairs by index from two random-access lists, splitting at the midpoint. */
+  private static final class ZippedListSpliterator<K, V>
+      implements Spliterator<Map.Entry<K, V>> {
+    static final int CHARACTERISTICS = ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+    private final List<K> left;
+    private final List<V> right;
+    private int index;
+    private final int fence;
+
+    ZippedListSpliterator(List<K> left, List<V> right) {
+      this(left, right, 0, Math.min(left.size(), right.size()));
+    }
+
+    private ZippedListSpliterator(List<K> left, List<V> right, int index, int fence) {
+      this.left = left;
+      this.right = right;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+      if (index >= fence) {
+        return false;
+      }
+      int i = index++;
+      action.accept(kv(left.get(i), right.get(i)));
+      return true;
+    }
+
+    @Override public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action) {
+      int from = index;
+      index = fence;
+      for (int i = from; i < fence; i++) {
+        action.accept(kv(left.get(i), right.get(i)));
+      }
+    }
+
+    @Override public Spliterator<Map.Entry<K, V>> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      Spliterator<Map.Entry<K, V>> prefix = new ZippedListSpliterator<>(left, right, index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override public int characteristics() {
+      return CHARACTERISTICS;
+    }
+  }
+
   static <T> T left(Both<T, ?> both) {
     return both.andThen((l, r) -> l);
   }
@@ -0,0 +1,88 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A read-only {@link Map} view of {@code long} counters that multiple threads can add to
+ * concurrently. Each key's counter is a {@link LongAdder}, so threads adding to the same hot key
+ * don't contend on a single CAS. Counters are summed and boxed when read through the {@code Map}
+ * interface.
+ *
+ * <p>Keys cannot be null. Keys cannot be removed.
+ */
+final class ConcurrentCounters<K> extends AbstractMap<K, Long> {
+  private final ConcurrentHashMap<K, LongAdder> counters = new ConcurrentHashMap<>();
+
+  /** Adds {@code delta} to the counter of {@code key}, which is initially 0. */
+  void add(K key, long delta) {
+    requireNonNull(key, "Cannot count null key.");
+    LongAdder counter = counters.get(key);  // Avoids locking the bin once the key is present.
+    if (counter == null) {
+      counter = counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+    counter.add(delta);
+  }
+
+  /** Adds all counters from {@code that} into this map, and returns this map. */
+  ConcurrentCounters<K> merge(ConcurrentCounters<K> that) {
+    that.counters.forEach((k, counter) -> add(k, counter.sum()));
+    return this;
+  }
+
+  @Override public int size() {
+    return counters.size();
+  }
+
+  @Override public boolean containsKey(Object key) {
+    return key != null && counters.containsKey(key);
+  }
+
+  @Override public Long get(Object key) {
+    LongAdder counter = key == null ? null : counters.get(key);
+    return counter == null ? null : counter.sum();
+  }
+
+  @Override public Set<Map.Entry<K, Long>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Long>>() {
+      @Override public int size() {
+        return counters.size();
+      }
+
+      @Override public Iterator<Map.Entry<K, Long>> iterator() {
+        Iterator<Map.Entry<K, LongAdder>> it = counters.entrySet().iterator();
+        return new Iterator<Map.Entry<K, Long>>() {
+          @Override public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override public Map.Entry<K, Long> next() {
+            Map.Entry<K, LongAdder> entry = it.next();
+            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum());
+          }
+        };
+      }
+    };
+  }
+}
@@ -0,0 +1,104 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * The consecutive runs found in one segment of a (possibly parallel) stream. Each segment groups
+ * its own elements; when two adjacent segments are {@link #merge merged}, the last run of the left
+ * and the first run of the right are stitched together with the run summarizer's combiner if they
+ * share the same key, because they are really one run split at the segment boundary.
+ */
+final class ConsecutiveRuns<K, T, A> {
+  private final Function<? super T, ? extends K> by;
+  private final Supplier<A> newRun;
+  private final BiConsumer<A, ? super T> accumulator;
+  private final BinaryOperator<A> combiner;
+  private final List<K> keys = new ArrayList<>();
+  private final List<A> runs = new ArrayList<>();
+
+  private ConsecutiveRuns(
+      Function<? super T, ? extends K> by, Collector<? super T, A, ?> runSummarizer) {
+    this.by = by;
+    this.newRun = runSummarizer.supplier();
+    this.accumulator = runSummarizer.accumulator();
+    this.combiner = runSummarizer.combiner();
+  }
+
+  /**
+   * Returns a {@link Collector} that groups consecutive elements with equal keys computed by
+   * {@code by}, summarizes each run with {@code runSummarizer}, and returns the runs in order.
+   * Can be used in parallel streams. All runs are held in memory until the collection finishes.
+   */
+  static <K, T, A, R> Collector<T, ?, List<Map.Entry<K, R>>> collector(
+      Function<? super T, ? extends K> by, Collector<? super T, A, R> runSummarizer) {
+    requireNonNull(by);
+    requireNonNull(runSummarizer);
+    Function<A, R> finisher = runSummarizer.finisher();
+    return Collector.of(
+        () -> new ConsecutiveRuns<K, T, A>(by, runSummarizer),
+        ConsecutiveRuns::add,
+        ConsecutiveRuns::merge,
+        segment -> segment.finish(finisher));
+  }
+
+  private void add(T element) {
+    K key = by.apply(element);
+    int last = keys.size() - 1;
+    if (last < 0 || !Objects.equals(keys.get(last), key)) {
+      keys.add(key);
+      runs.add(requireNonNull(newRun.get()));
+      last++;
+    }
+    accumulator.accept(runs.get(last), element);
+  }
+
+  private ConsecutiveRuns<K, T, A> merge(ConsecutiveRuns<K, T, A> right) {
+    if (right.keys.isEmpty()) {
+      return this;
+    }
+    if (keys.isEmpty()) {
+      return right;
+    }
+    int last = keys.size() - 1;
+    int from = 0;
+    if (Objects.equals(keys.get(last), right.keys.get(0))) {
+      runs.set(last, combiner.apply(runs.get(last), right.runs.get(0)));
+      from = 1;
+    }
+    keys.addAll(right.keys.subList(from, right.keys.size()));
+    runs.addAll(right.runs.subList(from, right.runs.size()));
+    return this;
+  }
+
+  private <R> List<Map.Entry<K, R>> finish(Function<A, R> finisher) {
+    List<Map.Entry<K, R>> result = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      result.add(BiStream.kv(keys.get(i), finisher.apply(runs.get(i))));
+    }
+    return result;
+  }
+}
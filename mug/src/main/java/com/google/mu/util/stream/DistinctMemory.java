@@ -0,0 +1,203 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How {@link BiStream#distinctBy(java.util.function.BiFunction, DistinctMemory)} remembers the
+ * pairs it has already seen, trading exactness for bounded memory:
+ *
+ * <ul>
+ *   <li>{@link #unbounded} remembers every distinct identity. Exact, but memory grows with the
+ *       number of distinct pairs.
+ *   <li>{@link #recent recent(n)} remembers the {@code n} most recently seen identities. A
+ *       duplicate is dropped only if it recurs before {@code n} other distinct identities are seen,
+ *       which suits event streams where duplicates arrive close together.
+ *   <li>{@link #approximate approximate(n, fpp)} remembers identities in a fixed-size Bloom filter.
+ *       Every duplicate is dropped, but a distinct pair is also dropped with a probability of about
+ *       {@code fpp}, as long as there are no more than {@code n} distinct identities.
+ * </ul>
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * BiStream.from(events, Event::id, e -> e)
+ *     .distinctBy((id, event) -> id, DistinctMemory.recent(100_000))
+ *     .forEach(this::process);
+ * }</pre>
+ *
+ * <p>Each stream evaluation gets its own memory. If the stream is parallel, the memory is shared
+ * by all threads of the evaluation.
+ *
+ * @since 5.3
+ */
+public abstract class DistinctMemory {
+  private DistinctMemory() {}
+
+  /** Returns a memory that remembers all identities seen. */
+  public static DistinctMemory unbounded() {
+    return new DistinctMemory() {
+      @Override Seen newSeen() {
+        Set<Object> seen = new HashSet<>();
+        return seen::add;
+      }
+
+      @Override Seen newConcurrentSeen() {
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        return identity -> seen.add(identity == null ? NULL : identity);
+      }
+    };
+  }
+
+  /**
+   * Returns a memory that remembers the {@code maxSize} most recently seen identities, evicting the
+   * least recently seen one when full. Seeing a duplicate counts as seeing it again.
+   *
+   * @throws IllegalArgumentException if {@code maxSize <= 0}
+   */
+  public static DistinctMemory recent(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize (" + maxSize + ") must be positive.");
+    }
+    return new DistinctMemory() {
+      @Override Seen newSeen() {
+        Map<Object, Boolean> seen =
+            new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+              @Override protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                return size() > maxSize;
+              }
+            };
+        return identity -> seen.put(identity, true) == null;
+      }
+
+      @Override Seen newConcurrentSeen() {
+        Seen seen = newSeen();
+        return identity -> {
+          synchronized (seen) {
+            return seen.add(identity);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns a memory backed by a Bloom filter sized for {@code expectedDistinct} identities with a
+   * false positive probability of {@code fpp}. Identities are hashed by {@link Object#hashCode},
+   * so unequal identities with the same hash code are always treated as duplicates.
+   *
+   * @throws IllegalArgumentException if {@code expectedDistinct <= 0}, or {@code fpp} isn't
+   *     between 0 and 1 (exclusive)
+   */
+  public static DistinctMemory approximate(long expectedDistinct, double fpp) {
+    if (expectedDistinct <= 0) {
+      throw new IllegalArgumentException(
+          "expectedDistinct (" + expectedDistinct + ") must be positive.");
+    }
+    if (!(fpp > 0 && fpp < 1)) {
+      throw new IllegalArgumentException("fpp (" + fpp + ") must be between 0 and 1.");
+    }
+    long bits =
+        Math.max(64, (long) (-expectedDistinct * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+    if (bits > (long) Integer.MAX_VALUE * Long.SIZE) {
+      throw new IllegalArgumentException("Bloom filter too large: " + bits + " bits.");
+    }
+    int hashes = (int) Math.max(1, Math.round((double) bits / expectedDistinct * Math.log(2)));
+    return new DistinctMemory() {
+      @Override Seen newSeen() {
+        return new BloomFilter(bits, hashes);
+      }
+
+      @Override Seen newConcurrentSeen() {
+        return newSeen();  // BloomFilter is thread safe.
+      }
+    };
+  }
+
+  /** Returns a new memory, to be used by a single thread. */
+  abstract Seen newSeen();
+
+  /** Returns a new memory that can be used by multiple threads concurrently. */
+  abstract Seen newConcurrentSeen();
+
+  /** The memory of one stream evaluation. */
+  interface Seen {
+    /** Remembers {@code identity}, and returns true if it's (likely) not been seen before. */
+    boolean add(Object identity);
+  }
+
+  private static final Object NULL = new Object();
+
+  static final class BloomFilter implements Seen {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    BloomFilter(long bits, int hashes) {
+      this.words = new AtomicLongArray((int) ((bits + Long.SIZE - 1) / Long.SIZE));
+      this.bits = (long) words.length() * Long.SIZE;
+      this.hashes = hashes;
+    }
+
+    @Override public boolean add(Object identity) {
+      // Double hashing (Kirsch and Mitzenmacher) from two mixes of the hash code.
+      long hash1 = mix(Objects.hashCode(identity));
+      long hash2 = mix(hash1 + 0x9e3779b97f4a7c15L);
+      boolean added = false;
+      for (int i = 1; i <= hashes; i++) {
+        added |= set(bit(hash1, hash2, i, bits));
+      }
+      return added;
+    }
+
+    /**
+     * Returns the {@code i}th bit of a filter with {@code bits} bits. The arithmetic is 64-bit so
+     * that filters larger than 2^31 bits are addressed in full.
+     */
+    static long bit(long hash1, long hash2, int i, long bits) {
+      return Math.floorMod(hash1 + i * hash2, bits);
+    }
+
+    /** Sets {@code bit} and returns true if it wasn't set before. */
+    private boolean set(long bit) {
+      int index = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      for (long word = words.get(index); (word & mask) == 0; word = words.get(index)) {
+        if (words.compareAndSet(index, word, word | mask)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static long mix(long h) {
+      // The 64-bit finalizer of MurmurHash3.
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
+}
@@ -0,0 +1,436 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.mu.function.BiComparator.comparingKey;
+import static com.google.mu.function.BiComparator.comparingValue;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+
+import com.google.mu.function.BiComparator;
+
+/**
+ * Sorts a {@link BiStream} that may not fit in memory. At most {@link #withMaxPairsInMemory
+ * maxPairsInMemory} pairs are buffered on heap; whenever the buffer fills up, it's sorted and
+ * written to a temporary file as a sorted "run" through the key and value {@link Codec}s. The runs
+ * are then merged lazily as the returned stream is consumed:
+ *
+ * <pre>{@code
+ * ExternalSorter<String, Long> sorter =
+ *     ExternalSorter.using(Codec.strings(), Codec.longs()).withMaxPairsInMemory(5_000_000);
+ * try (BiStream<String, Long> sorted = sorter.sortedByKeys(counts, naturalOrder())) {
+ *   sorted.forEachOrdered(writer::writeRow);
+ * }
+ * }</pre>
+ *
+ * <p>If the input fits in memory, nothing is written to disk and the result is the same as that
+ * of {@link BiStream#sorted(BiComparator)}. Like {@code sorted()}, the sort is stable.
+ *
+ * <p>The input is only consumed when the returned stream starts being consumed. Temporary files
+ * are deleted as soon as the merge completes, or when the returned stream is closed, so it's best
+ * to use the stream in a try-with-resources block. {@link IOException}s are rethrown as {@link
+ * UncheckedIOException}.
+ *
+ * @since 5.3
+ */
+public final class ExternalSorter<K, V> {
+  private static final int DEFAULT_MAX_PAIRS_IN_MEMORY = 1_000_000;
+
+  /** The maximum number of runs merged at once, to bound open files and the merge heap. */
+  private static final int MAX_MERGE_WIDTH = 64;
+
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int maxPairsInMemory;
+  private final Path tempDirectory;
+
+  private ExternalSorter(
+      Codec<K> keyCodec, Codec<V> valueCodec, int maxPairsInMemory, Path tempDirectory) {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.maxPairsInMemory = maxPairsInMemory;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Returns a sorter that writes spilled keys with {@code keyCodec} and values with {@code
+   * valueCodec}.
+   */
+  public static <K, V> ExternalSorter<K, V> using(Codec<K> keyCodec, Codec<V> valueCodec) {
+    return new ExternalSorter<>(
+        requireNonNull(keyCodec), requireNonNull(valueCodec), DEFAULT_MAX_PAIRS_IN_MEMORY, null);
+  }
+
+  /**
+   * Returns a sorter that buffers up to {@code maxPairs} pairs on heap before spilling them to a
+   * temporary file. Default is 1,000,000.
+   */
+  public ExternalSorter<K, V> withMaxPairsInMemory(int maxPairs) {
+    if (maxPairs <= 0) {
+      throw new IllegalArgumentException("maxPairs (" + maxPairs + ") must be positive.");
+    }
+    return new ExternalSorter<>(keyCodec, valueCodec, maxPairs, tempDirectory);
+  }
+
+  /**
+   * Returns a sorter that creates its temporary files in {@code directory}. By default, the
+   * system's default temporary-file directory is used.
+   */
+  public ExternalSorter<K, V> withTempDirectory(Path directory) {
+    return new ExternalSorter<>(keyCodec, valueCodec, maxPairsInMemory, requireNonNull(directory));
+  }
+
+  /** Returns the pairs from {@code pairs} sorted by keys in the order of {@code comparator}. */
+  public BiStream<K, V> sortedByKeys(
+      BiStream<? extends K, ? extends V> pairs, Comparator<? super K> comparator) {
+    return sorted(pairs, comparingKey(comparator));
+  }
+
+  /** Returns the pairs from {@code pairs} sorted by values in the order of {@code comparator}. */
+  public BiStream<K, V> sortedByValues(
+      BiStream<? extends K, ? extends V> pairs, Comparator<? super V> comparator) {
+    return sorted(pairs, comparingValue(comparator));
+  }
+
+  /** Returns the pairs from {@code pairs} in the order of {@code ordering}. */
+  public BiStream<K, V> sorted(
+      BiStream<? extends K, ? extends V> pairs, BiComparator<? super K, ? super V> ordering) {
+    requireNonNull(pairs);
+    Comparator<Map.Entry<K, V>> comparator =
+        ordering.asComparator(Map.Entry::getKey, Map.Entry::getValue);
+    Sort sort = new Sort(pairs, comparator);
+    return BiStream.fromEntries(
+        StreamSupport.stream(
+                sort::spliterator,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED,
+                false)
+            .onClose(pairs::close)
+            .onClose(sort::deleteRuns));
+  }
+
+  /**
+   * Writes and reads keys or values of type {@code T} in the temporary files of {@link
+   * ExternalSorter}. The same codec must read back exactly the bytes it wrote for a value.
+   */
+  public interface Codec<T> {
+    /** Writes {@code value} to {@code out}. */
+    void write(T value, DataOutput out) throws IOException;
+
+    /** Reads back a value that was written by {@link #write}. */
+    T read(DataInput in) throws IOException;
+
+    /** Returns a codec for non-null strings, encoded in UTF-8 with no length limit. */
+    static Codec<String> strings() {
+      return new Codec<String>() {
+        @Override public void write(String value, DataOutput out) throws IOException {
+          byte[] bytes = value.getBytes(UTF_8);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+
+        @Override public String read(DataInput in) throws IOException {
+          byte[] bytes = new byte[in.readInt()];
+          in.readFully(bytes);
+          return new String(bytes, UTF_8);
+        }
+      };
+    }
+
+    /** Returns a codec for non-null {@link Integer}s. */
+    static Codec<Integer> ints() {
+      return new Codec<Integer>() {
+        @Override public void write(Integer value, DataOutput out) throws IOException {
+          out.writeInt(value);
+        }
+
+        @Override public Integer read(DataInput in) throws IOException {
+          return in.readInt();
+        }
+      };
+    }
+
+    /** Returns a codec for non-null {@link Long}s. */
+    static Codec<Long> longs() {
+      return new Codec<Long>() {
+        @Override public void write(Long value, DataOutput out) throws IOException {
+          out.writeLong(value);
+        }
+
+        @Override public Long read(DataInput in) throws IOException {
+          return in.readLong();
+        }
+      };
+    }
+
+    /** Returns a codec for non-null {@link Double}s. */
+    static Codec<Double> doubles() {
+      return new Codec<Double>() {
+        @Override public void write(Double value, DataOutput out) throws IOException {
+          out.writeDouble(value);
+        }
+
+        @Override public Double read(DataInput in) throws IOException {
+          return in.readDouble();
+        }
+      };
+    }
+  }
+
+  /** The state of one sort, from reading the input to deleting the temporary files. */
+  private final class Sort {
+    private final BiStream<? extends K, ? extends V> input;
+    private final Comparator<Map.Entry<K, V>> comparator;
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<RunReader> readers = new ArrayList<>();
+
+    Sort(BiStream<? extends K, ? extends V> input, Comparator<Map.Entry<K, V>> comparator) {
+      this.input = input;
+      this.comparator = comparator;
+    }
+
+    Spliterator<Map.Entry<K, V>> spliterator() {
+      List<Map.Entry<K, V>> buffer = new ArrayList<>();
+      long[] total = new long[1];
+      try {
+        input.forEachOrdered(
+            (k, v) -> {
+              buffer.add(BiStream.kv(k, v));
+              total[0]++;
+              if (buffer.size() >= maxPairsInMemory) {
+                buffer.sort(comparator);
+                writeRun(buffer.iterator(), buffer.size());
+                buffer.clear();
+              }
+            });
+        buffer.sort(comparator);
+        if (runFiles.isEmpty()) {
+          return buffer.spliterator();
+        }
+        while (runFiles.size() > MAX_MERGE_WIDTH) {
+          mergeEarliestRuns();
+        }
+        List<Iterator<Map.Entry<K, V>>> runs = new ArrayList<>();
+        for (Path file : runFiles) {
+          runs.add(openRun(file));
+        }
+        runs.add(buffer.iterator());
+        return Spliterators.spliterator(
+            new MergingIterator(runs, comparator, this::deleteRuns), total[0], Spliterator.ORDERED);
+      } catch (RuntimeException | Error e) {
+        deleteRuns();
+        throw e;
+      }
+    }
+
+    /** Merges the earliest runs into one, which takes their place to keep the sort stable. */
+    private void mergeEarliestRuns() {
+      List<Path> earliest = new ArrayList<>(runFiles.subList(0, MAX_MERGE_WIDTH));
+      List<Iterator<Map.Entry<K, V>>> runs = new ArrayList<>();
+      long size = 0;
+      for (Path file : earliest) {
+        RunReader reader = openRun(file);
+        size += reader.remaining;
+        runs.add(reader);
+      }
+      writeRun(new MergingIterator(runs, comparator, () -> {}), size);
+      Path merged = runFiles.remove(runFiles.size() - 1);
+      closeReaders();
+      runFiles.removeAll(earliest);
+      runFiles.add(0, merged);
+      deleteFiles(earliest);
+    }
+
+    private void writeRun(Iterator<Map.Entry<K, V>> sorted, long size) {
+      try {
+        Path file =
+            tempDirectory == null
+                ? Files.createTempFile("bistream-sort", ".run")
+                : Files.createTempFile(tempDirectory, "bistream-sort", ".run");
+        runFiles.add(file);
+        try (DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_SIZE))) {
+          out.writeLong(size);
+          while (sorted.hasNext()) {
+            Map.Entry<K, V> pair = sorted.next();
+            keyCodec.write(pair.getKey(), out);
+            valueCodec.write(pair.getValue(), out);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private RunReader openRun(Path file) {
+      try {
+        RunReader reader =
+            new RunReader(
+                new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE)));
+        readers.add(reader);
+        return reader;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void deleteRuns() {
+      closeReaders();
+      deleteFiles(runFiles);
+      runFiles.clear();
+    }
+
+    private void closeReaders() {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+      readers.clear();
+    }
+
+    private void deleteFiles(List<Path> files) {
+      for (Path file : files) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  /** Reads the pairs of one sorted run file in order. */
+  private final class RunReader implements Iterator<Map.Entry<K, V>> {
+    private final DataInputStream in;
+    long remaining;
+
+    RunReader(DataInputStream in) throws IOException {
+      this.in = in;
+      this.remaining = in.readLong();
+    }
+
+    @Override public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override public Map.Entry<K, V> next() {
+      if (remaining <= 0) {
+        throw new NoSuchElementException();
+      }
+      try {
+        K key = keyCodec.read(in);
+        V value = valueCodec.read(in);
+        remaining--;
+        return BiStream.kv(key, value);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * K-way merge of sorted runs through a heap. Ties are broken by run index, with earlier runs
+   * first, which keeps the merge stable. Invokes {@code onDone} once all runs are exhausted.
+   */
+  private final class MergingIterator implements Iterator<Map.Entry<K, V>> {
+    private final PriorityQueue<Head> heap;
+    private final Runnable onDone;
+
+    MergingIterator(
+        List<Iterator<Map.Entry<K, V>>> runs,
+        Comparator<Map.Entry<K, V>> comparator,
+        Runnable onDone) {
+      this.onDone = onDone;
+      this.heap =
+          new PriorityQueue<>(
+              Math.max(1, runs.size()),
+              (a, b) -> {
+                int result = comparator.compare(a.current, b.current);
+                return result == 0 ? Integer.compare(a.index, b.index) : result;
+              });
+      for (int i = 0; i < runs.size(); i++) {
+        Iterator<Map.Entry<K, V>> run = runs.get(i);
+        if (run.hasNext()) {
+          heap.add(new Head(run, i));
+        }
+      }
+      if (heap.isEmpty()) {
+        onDone.run();
+      }
+    }
+
+    @Override public boolean hasNext() {
+      return !heap.isEmpty();
+    }
+
+    @Override public Map.Entry<K, V> next() {
+      Head head = heap.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> pair = head.current;
+      if (head.run.hasNext()) {
+        head.current = head.run.next();
+        heap.add(head);
+      } else if (heap.isEmpty()) {
+        onDone.run();
+      }
+      return pair;
+    }
+  }
+
+  private final class Head {
+    final Iterator<Map.Entry<K, V>> run;
+    final int index;
+    Map.Entry<K, V> current;
+
+    Head(Iterator<Map.Entry<K, V>> run, int index) {
+      this.run = run;
+      this.index = index;
+      this.current = run.next();
+    }
+  }
+}
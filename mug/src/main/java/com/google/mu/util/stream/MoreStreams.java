@@ -217,6 +217,37 @@ public final class MoreStreams {
     return new DicedSpliterator<T>(spliterator, maxSize);
   }
 
+  /**
+   * Returns a lazy stream of the sliding windows of {@code windowSize} consecutive elements from
+   * {@code stream}, each window starting one element after the previous one. For example, {@code
+   * sliding(Stream.of(1, 2, 3, 4), 3)} returns {@code [[1, 2, 3], [2, 3, 4]]}, and a moving average
+   * can be computed as:
+   *
+   * <pre>{@code
+   * sliding(prices, 5).map(window -> window.stream().mapToDouble(Price::amount).average())
+   * }</pre>
+   *
+   * <p>If {@code stream} has fewer than {@code windowSize} elements, the result is empty. Only the
+   * current window is buffered, in a ring buffer, so an unbounded stream is windowed in
+   * O(windowSize) memory. Each window is a new unmodifiable {@code List}. Windows are computed
+   * sequentially even if {@code stream} is parallel.
+   *
+   * <p>For non-overlapping windows, use {@link #dice(Stream, int)}.
+   *
+   * @throws IllegalArgumentException if {@code windowSize <= 0}
+   * @since 5.3
+   */
+  public static <T> Stream<List<T>> sliding(Stream<? extends T> stream, int windowSize) {
+    requireNonNull(stream);
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize (" + windowSize + ") must be positive.");
+    }
+    return mapBySpliterator(
+        stream,
+        Spliterator.NONNULL | Spliterator.ORDERED,
+        it -> new SlidingSpliterator<T>(it, windowSize));
+  }
+
   /** @deprecated Use {@code maps.collect(flatteningMaps(toMap())} instead. */
   @Deprecated
   public static <K, V> Collector<Map<K, V>, ?, Map<K, V>> uniqueKeys() {
@@ -540,6 +571,48 @@ public final class MoreStreams {
     }
   }
 
+  private static final class SlidingSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+    private final Spliterator<? extends T> underlying;
+    private final int windowSize;
+    private final RingBuffer<T> window;
+
+    SlidingSpliterator(Spliterator<? extends T> underlying, int windowSize) {
+      this.underlying = requireNonNull(underlying);
+      this.windowSize = windowSize;
+      this.window = new RingBuffer<>(windowSize);
+    }
+
+    @Override public void accept(T element) {
+      window.add(element);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super List<T>> action) {
+      requireNonNull(action);
+      while (underlying.tryAdvance(this)) {
+        if (window.isFull()) {
+          action.accept(window.toList());
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override public Spliterator<List<T>> trySplit() {
+      return null;
+    }
+
+    @Override public long estimateSize() {
+      long remaining = underlying.estimateSize();
+      if (remaining == Long.MAX_VALUE || window.isFull()) return remaining;
+      long missing = windowSize - window.size();
+      return remaining < missing ? 0 : remaining - missing + 1;
+    }
+
+    @Override public int characteristics() {
+      return Spliterator.NONNULL | Spliterator.ORDERED;
+    }
+  }
+
   private static final class FlattenedSpliterator<T> implements Spliterator<T> {
     private final Spliterator<? extends Stream<? extends T>> blocks;
     private Spliterator<? extends T> currentBlock;
@@ -0,0 +1,212 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Double.longBitsToDouble;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.DoubleSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Spliterator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+/**
+ * A sequence of pairs whose keys are objects and whose values are primitive {@code double}s, such
+ * as id-to-count pairs. It's the {@code double} counterpart of {@link BiStream}, similar to how
+ * {@link DoubleStream} relates to {@link Stream}: values are passed from one stage to the next
+ * without ever being boxed. For example:
+ *
+ * <pre>{@code
+ * double totalDistance = ObjDoubleBiStream.from(trips, Trip::driver, Trip::miles)
+ *     .filterKeys(activeDrivers::contains)
+ *     .sum();
+ * }</pre>
+ *
+ * <p>Like {@code BiStream}, an instance can only be operated upon once, parallelism is inherited
+ * from the source stream, and {@link #close} closes the source stream.
+ *
+ * @since 5.3
+ */
+public final class ObjDoubleBiStream<K> implements AutoCloseable {
+  private final PrimitiveValuedPipeline<K> pipeline;
+
+  private ObjDoubleBiStream(PrimitiveValuedPipeline<K> pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * Returns an {@code ObjDoubleBiStream} of the pairs from {@code elements}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}.
+   */
+  public static <T, K> ObjDoubleBiStream<K> from(
+      Collection<T> elements,
+      Function<? super T, ? extends K> toKey,
+      ToDoubleFunction<? super T> toValue) {
+    return from(elements.stream(), toKey, toValue);
+  }
+
+  /**
+   * Returns an {@code ObjDoubleBiStream} of the pairs from {@code stream}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}. Each function is invoked exactly once
+   * per element.
+   */
+  public static <T, K> ObjDoubleBiStream<K> from(
+      Stream<T> stream,
+      Function<? super T, ? extends K> toKey,
+      ToDoubleFunction<? super T> toValue) {
+    requireNonNull(toValue);
+    return new ObjDoubleBiStream<>(
+        PrimitiveValuedPipeline.from(
+            stream, toKey, element -> doubleToRawLongBits(toValue.applyAsDouble(element))));
+  }
+
+  /**
+   * Returns an {@code ObjDoubleBiStream} of the pairs produced by the {@code pairs} pipeline over
+   * {@code source}, with each value mapped to {@code double} by {@code toValue}.
+   */
+  static <E, K, V> ObjDoubleBiStream<K> from(
+      Stream<E> source,
+      Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pairs,
+      ToDoubleBiFunction<? super K, ? super V> toValue) {
+    requireNonNull(toValue);
+    return new ObjDoubleBiStream<>(
+        PrimitiveValuedPipeline.from(
+            source, pairs, (k, v) -> doubleToRawLongBits(toValue.applyAsDouble(k, v))));
+  }
+
+  /** Returns a stream with only the pairs whose keys match {@code predicate}. */
+  public ObjDoubleBiStream<K> filterKeys(Predicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return new ObjDoubleBiStream<>(pipeline.filter((k, v) -> predicate.test(k)));
+  }
+
+  /** Returns a stream with only the pairs whose values match {@code predicate}. */
+  public ObjDoubleBiStream<K> filterValues(DoublePredicate predicate) {
+    requireNonNull(predicate);
+    return new ObjDoubleBiStream<>(pipeline.filter((k, v) -> predicate.test(longBitsToDouble(v))));
+  }
+
+  /** Maps each key to another key of type {@code K2}. */
+  public <K2> ObjDoubleBiStream<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    return new ObjDoubleBiStream<>(pipeline.mapKeys(keyMapper));
+  }
+
+  /** Maps each value to another {@code double} value. */
+  public ObjDoubleBiStream<K> mapValues(DoubleUnaryOperator valueMapper) {
+    requireNonNull(valueMapper);
+    return new ObjDoubleBiStream<>(
+        pipeline.mapBits(v -> doubleToRawLongBits(valueMapper.applyAsDouble(longBitsToDouble(v)))));
+  }
+
+  /** Returns a stream that invokes {@code action} on each pair as it's consumed. */
+  public ObjDoubleBiStream<K> peek(ObjDoubleConsumer<? super K> action) {
+    requireNonNull(action);
+    return new ObjDoubleBiStream<>(pipeline.peek((k, v) -> action.accept(k, longBitsToDouble(v))));
+  }
+
+  /** Returns the keys of the pairs in this stream. */
+  public Stream<K> keys() {
+    return pipeline.keys();
+  }
+
+  /** Returns the values of the pairs in this stream, without boxing them. */
+  public DoubleStream values() {
+    return pipeline.bits().mapToDouble(Double::longBitsToDouble);
+  }
+
+  /** Returns a {@link BiStream} with each value boxed into a {@link Double}. */
+  public BiStream<K, Double> boxed() {
+    return pipeline.boxed(Double::longBitsToDouble);
+  }
+
+  /**
+   * Performs {@code action} for each pair in this stream. When the stream is parallel, there is
+   * no guarantee of encounter order or of which thread {@code action} runs in.
+   */
+  public void forEach(ObjDoubleConsumer<? super K> action) {
+    requireNonNull(action);
+    pipeline.forEach((k, v) -> action.accept(k, longBitsToDouble(v)));
+  }
+
+  /** Performs {@code action} for each pair in this stream, sequentially in encounter order. */
+  public void forEachOrdered(ObjDoubleConsumer<? super K> action) {
+    requireNonNull(action);
+    pipeline.forEachOrdered((k, v) -> action.accept(k, longBitsToDouble(v)));
+  }
+
+  /**
+   * Returns the sum of the values of each distinct key. The sums are kept as primitive {@code
+   * double}s in an open-addressing hash table, and the returned map is a read-only view of it,
+   * iterated in no particular order, that boxes each sum when it's read. Like {@link
+   * BiCollectors#summingDoubleBy}, the values are added up with plain floating point addition.
+   */
+  public Map<K, Double> sumByKey() {
+    return pipeline.collect(
+        OpenHashMap.OfDouble<K>::new,
+        (sums, k, v) -> sums.add(k, longBitsToDouble(v)),
+        OpenHashMap.OfDouble::merge);
+  }
+
+  /** Returns the sum of all values in this stream. */
+  public double sum() {
+    return values().sum();
+  }
+
+  /** Returns the arithmetic mean of the values, or empty if this stream is empty. */
+  public OptionalDouble average() {
+    return values().average();
+  }
+
+  /** Returns the count, sum, min, max and average of the values in this stream. */
+  public DoubleSummaryStatistics summaryStatistics() {
+    return values().summaryStatistics();
+  }
+
+  /** Returns the number of pairs in this stream. */
+  public long count() {
+    return values().count();
+  }
+
+  /** Returns an equivalent stream that is parallel. */
+  public ObjDoubleBiStream<K> parallel() {
+    return new ObjDoubleBiStream<>(pipeline.parallel());
+  }
+
+  /** Returns an equivalent stream that is sequential. */
+  public ObjDoubleBiStream<K> sequential() {
+    return new ObjDoubleBiStream<>(pipeline.sequential());
+  }
+
+  /** Returns true if terminal operations on this stream would execute in parallel. */
+  public boolean isParallel() {
+    return pipeline.isParallel();
+  }
+
+  /** Closes the source stream, running any close handlers registered with it. */
+  @Override public void close() {
+    pipeline.close();
+  }
+}
@@ -0,0 +1,210 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A sequence of pairs whose keys are objects and whose values are primitive {@code int}s, such
+ * as id-to-count pairs. It's the {@code int} counterpart of {@link BiStream}, similar to how
+ * {@link IntStream} relates to {@link Stream}: values are passed from one stage to the next
+ * without ever being boxed. For example:
+ *
+ * <pre>{@code
+ * Stream<String> longWords = ObjIntBiStream.from(words, identity(), String::length)
+ *     .filterValues(length -> length > 10)
+ *     .keys();
+ * }</pre>
+ *
+ * <p>Like {@code BiStream}, an instance can only be operated upon once, parallelism is inherited
+ * from the source stream, and {@link #close} closes the source stream.
+ *
+ * @since 5.3
+ */
+public final class ObjIntBiStream<K> implements AutoCloseable {
+  private final PrimitiveValuedPipeline<K> pipeline;
+
+  private ObjIntBiStream(PrimitiveValuedPipeline<K> pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * Returns an {@code ObjIntBiStream} of the pairs from {@code elements}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}.
+   */
+  public static <T, K> ObjIntBiStream<K> from(
+      Collection<T> elements,
+      Function<? super T, ? extends K> toKey,
+      ToIntFunction<? super T> toValue) {
+    return from(elements.stream(), toKey, toValue);
+  }
+
+  /**
+   * Returns an {@code ObjIntBiStream} of the pairs from {@code stream}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}. Each function is invoked exactly once
+   * per element.
+   */
+  public static <T, K> ObjIntBiStream<K> from(
+      Stream<T> stream,
+      Function<? super T, ? extends K> toKey,
+      ToIntFunction<? super T> toValue) {
+    requireNonNull(toValue);
+    return new ObjIntBiStream<>(
+        PrimitiveValuedPipeline.from(stream, toKey, element -> toValue.applyAsInt(element)));
+  }
+
+  /**
+   * Returns an {@code ObjIntBiStream} of the pairs produced by the {@code pairs} pipeline over
+   * {@code source}, with each value mapped to {@code int} by {@code toValue}.
+   */
+  static <E, K, V> ObjIntBiStream<K> from(
+      Stream<E> source,
+      Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pairs,
+      ToIntBiFunction<? super K, ? super V> toValue) {
+    requireNonNull(toValue);
+    return new ObjIntBiStream<>(
+        PrimitiveValuedPipeline.from(source, pairs, (k, v) -> toValue.applyAsInt(k, v)));
+  }
+
+  /** Returns a stream with only the pairs whose keys match {@code predicate}. */
+  public ObjIntBiStream<K> filterKeys(Predicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return new ObjIntBiStream<>(pipeline.filter((k, v) -> predicate.test(k)));
+  }
+
+  /** Returns a stream with only the pairs whose values match {@code predicate}. */
+  public ObjIntBiStream<K> filterValues(IntPredicate predicate) {
+    requireNonNull(predicate);
+    return new ObjIntBiStream<>(pipeline.filter((k, v) -> predicate.test((int) v)));
+  }
+
+  /** Maps each key to another key of type {@code K2}. */
+  public <K2> ObjIntBiStream<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    return new ObjIntBiStream<>(pipeline.mapKeys(keyMapper));
+  }
+
+  /** Maps each value to another {@code int} value. */
+  public ObjIntBiStream<K> mapValues(IntUnaryOperator valueMapper) {
+    requireNonNull(valueMapper);
+    return new ObjIntBiStream<>(pipeline.mapBits(v -> valueMapper.applyAsInt((int) v)));
+  }
+
+  /** Returns a stream that invokes {@code action} on each pair as it's consumed. */
+  public ObjIntBiStream<K> peek(ObjIntConsumer<? super K> action) {
+    requireNonNull(action);
+    return new ObjIntBiStream<>(pipeline.peek((k, v) -> action.accept(k, (int) v)));
+  }
+
+  /** Returns the keys of the pairs in this stream. */
+  public Stream<K> keys() {
+    return pipeline.keys();
+  }
+
+  /** Returns the values of the pairs in this stream, without boxing them. */
+  public IntStream values() {
+    return pipeline.bits().mapToInt(v -> (int) v);
+  }
+
+  /** Returns a {@link BiStream} with each value boxed into a {@link Integer}. */
+  public BiStream<K, Integer> boxed() {
+    return pipeline.boxed(v -> (int) v);
+  }
+
+  /**
+   * Performs {@code action} for each pair in this stream. When the stream is parallel, there is
+   * no guarantee of encounter order or of which thread {@code action} runs in.
+   */
+  public void forEach(ObjIntConsumer<? super K> action) {
+    requireNonNull(action);
+    pipeline.forEach((k, v) -> action.accept(k, (int) v));
+  }
+
+  /** Performs {@code action} for each pair in this stream, sequentially in encounter order. */
+  public void forEachOrdered(ObjIntConsumer<? super K> action) {
+    requireNonNull(action);
+    pipeline.forEachOrdered((k, v) -> action.accept(k, (int) v));
+  }
+
+  /**
+   * Returns the sum of the values of each distinct key, widened to {@code long} so that it doesn't
+   * overflow. The sums are kept as primitive {@code long}s in an open-addressing hash table, and
+   * the returned map is a read-only view of it, iterated in no particular order, that boxes each
+   * sum when it's read. For example:
+   *
+   * <pre>{@code
+   * Map<String, Long> lettersByAuthor = ObjIntBiStream.from(posts, Post::author, Post::length)
+   *     .sumByKey();
+   * }</pre>
+   */
+  public Map<K, Long> sumByKey() {
+    return pipeline.collect(
+        OpenHashMap.OfLong<K>::new, OpenHashMap.OfLong::add, OpenHashMap.OfLong::merge);
+  }
+
+  /** Returns the sum of all values in this stream. */
+  public int sum() {
+    return values().sum();
+  }
+
+  /** Returns the arithmetic mean of the values, or empty if this stream is empty. */
+  public OptionalDouble average() {
+    return values().average();
+  }
+
+  /** Returns the count, sum, min, max and average of the values in this stream. */
+  public IntSummaryStatistics summaryStatistics() {
+    return values().summaryStatistics();
+  }
+
+  /** Returns the number of pairs in this stream. */
+  public long count() {
+    return values().count();
+  }
+
+  /** Returns an equivalent stream that is parallel. */
+  public ObjIntBiStream<K> parallel() {
+    return new ObjIntBiStream<>(pipeline.parallel());
+  }
+
+  /** Returns an equivalent stream that is sequential. */
+  public ObjIntBiStream<K> sequential() {
+    return new ObjIntBiStream<>(pipeline.sequential());
+  }
+
+  /** Returns true if terminal operations on this stream would execute in parallel. */
+  public boolean isParallel() {
+    return pipeline.isParallel();
+  }
+
+  /** Closes the source stream, running any close handlers registered with it. */
+  @Override public void close() {
+    pipeline.close();
+  }
+}
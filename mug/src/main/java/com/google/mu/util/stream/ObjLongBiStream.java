@@ -0,0 +1,197 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A sequence of pairs whose keys are objects and whose values are primitive {@code long}s, such
+ * as id-to-count pairs. It's the {@code long} counterpart of {@link BiStream}, similar to how
+ * {@link LongStream} relates to {@link Stream}: values are passed from one stage to the next
+ * without ever being boxed. For example:
+ *
+ * <pre>{@code
+ * long totalHits = BiStream.from(hitsByUrl)
+ *     .mapValuesToLong(AtomicLong::get)
+ *     .filterKeys(url -> url.startsWith("/api/"))
+ *     .sum();
+ * }</pre>
+ *
+ * <p>Like {@code BiStream}, an instance can only be operated upon once, parallelism is inherited
+ * from the source stream, and {@link #close} closes the source stream.
+ *
+ * @since 5.3
+ */
+public final class ObjLongBiStream<K> implements AutoCloseable {
+  private final PrimitiveValuedPipeline<K> pipeline;
+
+  private ObjLongBiStream(PrimitiveValuedPipeline<K> pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * Returns an {@code ObjLongBiStream} of the pairs from {@code elements}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}.
+   */
+  public static <T, K> ObjLongBiStream<K> from(
+      Collection<T> elements,
+      Function<? super T, ? extends K> toKey,
+      ToLongFunction<? super T> toValue) {
+    return from(elements.stream(), toKey, toValue);
+  }
+
+  /**
+   * Returns an {@code ObjLongBiStream} of the pairs from {@code stream}, with keys computed by
+   * {@code toKey} and values computed by {@code toValue}. Each function is invoked exactly once
+   * per element.
+   */
+  public static <T, K> ObjLongBiStream<K> from(
+      Stream<T> stream,
+      Function<? super T, ? extends K> toKey,
+      ToLongFunction<? super T> toValue) {
+    return new ObjLongBiStream<>(PrimitiveValuedPipeline.from(stream, toKey, toValue));
+  }
+
+  /**
+   * Returns an {@code ObjLongBiStream} of the pairs produced by the {@code pairs} pipeline over
+   * {@code source}, with each value mapped to {@code long} by {@code toValue}.
+   */
+  static <E, K, V> ObjLongBiStream<K> from(
+      Stream<E> source,
+      Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pairs,
+      ToLongBiFunction<? super K, ? super V> toValue) {
+    return new ObjLongBiStream<>(PrimitiveValuedPipeline.from(source, pairs, toValue));
+  }
+
+  /** Returns a stream with only the pairs whose keys match {@code predicate}. */
+  public ObjLongBiStream<K> filterKeys(Predicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return new ObjLongBiStream<>(pipeline.filter((k, v) -> predicate.test(k)));
+  }
+
+  /** Returns a stream with only the pairs whose values match {@code predicate}. */
+  public ObjLongBiStream<K> filterValues(LongPredicate predicate) {
+    requireNonNull(predicate);
+    return new ObjLongBiStream<>(pipeline.filter((k, v) -> predicate.test(v)));
+  }
+
+  /** Maps each key to another key of type {@code K2}. */
+  public <K2> ObjLongBiStream<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    return new ObjLongBiStream<>(pipeline.mapKeys(keyMapper));
+  }
+
+  /** Maps each value to another {@code long} value. */
+  public ObjLongBiStream<K> mapValues(LongUnaryOperator valueMapper) {
+    return new ObjLongBiStream<>(pipeline.mapBits(valueMapper));
+  }
+
+  /** Returns a stream that invokes {@code action} on each pair as it's consumed. */
+  public ObjLongBiStream<K> peek(ObjLongConsumer<? super K> action) {
+    return new ObjLongBiStream<>(pipeline.peek(action));
+  }
+
+  /** Returns the keys of the pairs in this stream. */
+  public Stream<K> keys() {
+    return pipeline.keys();
+  }
+
+  /** Returns the values of the pairs in this stream, without boxing them. */
+  public LongStream values() {
+    return pipeline.bits();
+  }
+
+  /** Returns a {@link BiStream} with each value boxed into a {@link Long}. */
+  public BiStream<K, Long> boxed() {
+    return pipeline.boxed(Long::valueOf);
+  }
+
+  /**
+   * Performs {@code action} for each pair in this stream. When the stream is parallel, there is
+   * no guarantee of encounter order or of which thread {@code action} runs in.
+   */
+  public void forEach(ObjLongConsumer<? super K> action) {
+    pipeline.forEach(action);
+  }
+
+  /** Performs {@code action} for each pair in this stream, sequentially in encounter order. */
+  public void forEachOrdered(ObjLongConsumer<? super K> action) {
+    pipeline.forEachOrdered(action);
+  }
+
+  /**
+   * Returns the sum of the values of each distinct key. The sums are kept as primitive {@code
+   * long}s in an open-addressing hash table, and the returned map is a read-only view of it,
+   * iterated in no particular order, that boxes each sum when it's read.
+   */
+  public Map<K, Long> sumByKey() {
+    return pipeline.collect(
+        OpenHashMap.OfLong<K>::new, OpenHashMap.OfLong::add, OpenHashMap.OfLong::merge);
+  }
+
+  /** Returns the sum of all values in this stream. */
+  public long sum() {
+    return values().sum();
+  }
+
+  /** Returns the arithmetic mean of the values, or empty if this stream is empty. */
+  public OptionalDouble average() {
+    return values().average();
+  }
+
+  /** Returns the count, sum, min, max and average of the values in this stream. */
+  public LongSummaryStatistics summaryStatistics() {
+    return values().summaryStatistics();
+  }
+
+  /** Returns the number of pairs in this stream. */
+  public long count() {
+    return values().count();
+  }
+
+  /** Returns an equivalent stream that is parallel. */
+  public ObjLongBiStream<K> parallel() {
+    return new ObjLongBiStream<>(pipeline.parallel());
+  }
+
+  /** Returns an equivalent stream that is sequential. */
+  public ObjLongBiStream<K> sequential() {
+    return new ObjLongBiStream<>(pipeline.sequential());
+  }
+
+  /** Returns true if terminal operations on this stream would execute in parallel. */
+  public boolean isParallel() {
+    return pipeline.isParallel();
+  }
+
+  /** Closes the source stream, running any close handlers registered with it. */
+  @Override public void close() {
+    pipeline.close();
+  }
+}
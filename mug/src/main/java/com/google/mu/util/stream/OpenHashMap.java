@@ -0,0 +1,256 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only {@link Map} view of an open-addressing hash table with linear probing, whose values
+ * are stored in a primitive array by the {@link OfLong} and {@link OfDouble} subclasses. Compared
+ * to {@link java.util.HashMap}, there is no {@code Node} object and no boxed value per key; values
+ * are only boxed when read through the {@code Map} interface.
+ *
+ * <p>Keys can be null. Keys cannot be removed, which keeps probing simple: a slot stays occupied
+ * once a key is inserted. Not thread safe.
+ */
+abstract class OpenHashMap<K, V> extends AbstractMap<K, V> {
+  private static final Object NULL_KEY = new Object();
+  private static final int MIN_CAPACITY = 8;
+
+  private Object[] keys = new Object[MIN_CAPACITY];
+  private int size;
+
+  @Override public final int size() {
+    return size;
+  }
+
+  @Override public final boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override public final V get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  @Override public final Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override public int size() {
+        return size;
+      }
+
+      @Override public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterator<Map.Entry<K, V>>() {
+          private int next = nextOccupied(0);
+
+          @Override public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          @Override public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            int index = next;
+            next = nextOccupied(index + 1);
+            return new SimpleImmutableEntry<>(keyAt(index), valueAt(index));
+          }
+        };
+      }
+    };
+  }
+
+  /** Returns the boxed value stored at {@code index}. */
+  abstract V valueAt(int index);
+
+  /**
+   * Moves the value stored at each old index {@code i} to {@code newIndexes[i]}, in a new value
+   * array of {@code newCapacity}. Indexes of empty slots are -1.
+   */
+  abstract void relocate(int[] newIndexes, int newCapacity);
+
+  /** Returns the slot index of {@code key}, or -1 if absent. */
+  final int indexOf(Object key) {
+    Object k = maskNull(key);
+    int mask = keys.length - 1;
+    for (int i = hash(k) & mask; keys[i] != null; i = (i + 1) & mask) {
+      if (k.equals(keys[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the slot index of {@code key}, inserting it first if absent. The value of a newly
+   * inserted key is the default value (zero) of the primitive value array.
+   */
+  final int insert(K key) {
+    if (size + 1 > keys.length - keys.length / 4) {
+      resize(keys.length * 2);
+    }
+    Object k = maskNull(key);
+    int mask = keys.length - 1;
+    int i = hash(k) & mask;
+    for (; keys[i] != null; i = (i + 1) & mask) {
+      if (k.equals(keys[i])) {
+        return i;
+      }
+    }
+    keys[i] = k;
+    size++;
+    return i;
+  }
+
+  /** Returns the index of the first occupied slot at or after {@code from}. */
+  final int nextOccupied(int from) {
+    int i = from;
+    while (i < keys.length && keys[i] == null) {
+      i++;
+    }
+    return i;
+  }
+
+  @SuppressWarnings("unchecked") // Only instances of K are inserted.
+  final K keyAt(int index) {
+    Object key = keys[index];
+    return key == NULL_KEY ? null : (K) key;
+  }
+
+  private void resize(int newCapacity) {
+    Object[] newKeys = new Object[newCapacity];
+    int[] newIndexes = new int[keys.length];
+    int mask = newCapacity - 1;
+    for (int i = 0; i < keys.length; i++) {
+      Object key = keys[i];
+      if (key == null) {
+        newIndexes[i] = -1;
+        continue;
+      }
+      int j = hash(key) & mask;
+      while (newKeys[j] != null) {
+        j = (j + 1) & mask;
+      }
+      newKeys[j] = key;
+      newIndexes[i] = j;
+    }
+    relocate(newIndexes, newCapacity);
+    keys = newKeys;
+  }
+
+  private static Object maskNull(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** Map with {@code long} values. */
+  static final class OfLong<K> extends OpenHashMap<K, Long> {
+    private long[] values = new long[MIN_CAPACITY];
+
+    /** Adds {@code delta} to the value of {@code key}, whose value is initially 0. */
+    void add(K key, long delta) {
+      int index = insert(key); // May reallocate the values array.
+      values[index] += delta;
+    }
+
+    /** Returns the value of {@code key}, or 0 if absent. */
+    long getLong(Object key) {
+      int index = indexOf(key);
+      return index < 0 ? 0 : values[index];
+    }
+
+    /**
+     * Adds all values from {@code that} into whichever of {@code this} and {@code that} is
+     * larger, and returns it.
+     */
+    OfLong<K> merge(OfLong<K> that) {
+      if (that.size() > size()) {
+        return that.merge(this);
+      }
+      for (int i = that.nextOccupied(0); i < that.values.length; i = that.nextOccupied(i + 1)) {
+        add(that.keyAt(i), that.values[i]);
+      }
+      return this;
+    }
+
+    @Override Long valueAt(int index) {
+      return values[index];
+    }
+
+    @Override void relocate(int[] newIndexes, int newCapacity) {
+      long[] newValues = new long[newCapacity];
+      for (int i = 0; i < newIndexes.length; i++) {
+        if (newIndexes[i] >= 0) {
+          newValues[newIndexes[i]] = values[i];
+        }
+      }
+      values = newValues;
+    }
+  }
+
+  /** Map with {@code double} values. */
+  static final class OfDouble<K> extends OpenHashMap<K, Double> {
+    private double[] values = new double[MIN_CAPACITY];
+
+    /** Adds {@code delta} to the value of {@code key}, whose value is initially 0. */
+    void add(K key, double delta) {
+      int index = insert(key); // May reallocate the values array.
+      values[index] += delta;
+    }
+
+    /** Returns the value of {@code key}, or 0 if absent. */
+    double getDouble(Object key) {
+      int index = indexOf(key);
+      return index < 0 ? 0 : values[index];
+    }
+
+    /**
+     * Adds all values from {@code that} into whichever of {@code this} and {@code that} is
+     * larger, and returns it.
+     */
+    OfDouble<K> merge(OfDouble<K> that) {
+      if (that.size() > size()) {
+        return that.merge(this);
+      }
+      for (int i = that.nextOccupied(0); i < that.values.length; i = that.nextOccupied(i + 1)) {
+        add(that.keyAt(i), that.values[i]);
+      }
+      return this;
+    }
+
+    @Override Double valueAt(int index) {
+      return values[index];
+    }
+
+    @Override void relocate(int[] newIndexes, int newCapacity) {
+      double[] newValues = new double[newCapacity];
+      for (int i = 0; i < newIndexes.length; i++) {
+        if (newIndexes[i] >= 0) {
+          newValues[newIndexes[i]] = values[i];
+        }
+      }
+      values = newValues;
+    }
+  }
+}
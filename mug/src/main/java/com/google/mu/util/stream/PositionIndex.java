@@ -0,0 +1,82 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.util.Objects;
+
+/**
+ * A read-only hash index from the elements of an array to their positions. Equal elements are
+ * chained in ascending position order, so duplicates are supported, unlike a {@code Map}.
+ *
+ * <p>The index takes two {@code int} arrays and no object per element: an open-addressing table
+ * of the first position of each distinct element, and a "next position" link per element.
+ * Elements can be null. Immutable once constructed, thus safe to publish across threads.
+ */
+final class PositionIndex {
+  private static final int MIN_CAPACITY = 2;
+
+  private final Object[] elements;
+  private final int[] heads;  // position + 1 of the first of each distinct element; 0 if empty
+  private final int[] next;  // position of the next equal element; -1 if last
+
+  /** Indexes {@code elements}, which must not be modified afterwards. */
+  PositionIndex(Object[] elements) {
+    this.elements = elements;
+    this.heads = new int[capacityFor(elements.length)];
+    this.next = new int[elements.length];
+    int mask = heads.length - 1;
+    // Back to front, so that each chain ends up in ascending order.
+    for (int position = elements.length - 1; position >= 0; position--) {
+      Object element = elements[position];
+      int slot = hash(element) & mask;
+      while (heads[slot] != 0 && !Objects.equals(element, elements[heads[slot] - 1])) {
+        slot = (slot + 1) & mask;
+      }
+      next[position] = heads[slot] - 1;
+      heads[slot] = position + 1;
+    }
+  }
+
+  /** Returns the first position of {@code element}, or -1 if absent. */
+  int first(Object element) {
+    int mask = heads.length - 1;
+    for (int slot = hash(element) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+      int position = heads[slot] - 1;
+      if (Objects.equals(element, elements[position])) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the position of the next element equal to the one at {@code position}, or -1. */
+  int next(int position) {
+    return next[position];
+  }
+
+  private static int capacityFor(int size) {
+    // At most 3/4 full, with at least one empty slot to terminate probing.
+    int capacity = MIN_CAPACITY;
+    while (capacity - capacity / 4 < size + 1) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private static int hash(Object element) {
+    int h = Objects.hashCode(element) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,511 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.Spliterator.ORDERED;
+import static java.util.function.Function.identity;
+import static java.util.stream.StreamSupport.longStream;
+
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * The fused pipeline behind {@link ObjIntBiStream}, {@link ObjLongBiStream} and {@link
+ * ObjDoubleBiStream}. Values are carried through the stages as {@code long} bits: {@code int}s
+ * are widened and {@code double}s are stored as {@link Double#doubleToRawLongBits raw bits}. Each
+ * public stream only converts at its API boundary, so values are never boxed in between.
+ */
+final class PrimitiveValuedPipeline<K> {
+  private final Stream<?> source;
+  private final Function<? super Spliterator<?>, ? extends Pairs<K>> pipeline;
+
+  private PrimitiveValuedPipeline(
+      Stream<?> source, Function<? super Spliterator<?>, ? extends Pairs<K>> pipeline) {
+    this.source = requireNonNull(source);
+    this.pipeline = requireNonNull(pipeline);
+  }
+
+  /**
+   * Returns the pairs from {@code stream}, with keys computed by {@code toKey} and value bits
+   * computed by {@code toBits}.
+   */
+  static <T, K> PrimitiveValuedPipeline<K> from(
+      Stream<T> stream, Function<? super T, ? extends K> toKey, ToLongFunction<? super T> toBits) {
+    requireNonNull(toKey);
+    requireNonNull(toBits);
+    return from(
+        stream,
+        elements -> BiSpliterator.of(elements, toKey, identity()),
+        (k, element) -> toBits.applyAsLong(element));
+  }
+
+  /**
+   * Returns the pairs produced by the {@code pairs} pipeline over {@code source}, with each value
+   * mapped to its bits by {@code toBits}.
+   */
+  static <E, K, V> PrimitiveValuedPipeline<K> from(
+      Stream<E> source,
+      Function<? super Spliterator<E>, ? extends BiSpliterator<K, V>> pairs,
+      ToLongBiFunction<? super K, ? super V> toBits) {
+    requireNonNull(pairs);
+    requireNonNull(toBits);
+    return fused(source, elements -> new FromPairs<>(pairs.apply(elements), toBits));
+  }
+
+  PrimitiveValuedPipeline<K> filter(PairPredicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return fuse(pairs -> new Filtering<>(pairs, predicate));
+  }
+
+  <K2> PrimitiveValuedPipeline<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    requireNonNull(keyMapper);
+    return fuse(pairs -> new Mapping<>(pairs, keyMapper, v -> v));
+  }
+
+  PrimitiveValuedPipeline<K> mapBits(LongUnaryOperator bitsMapper) {
+    requireNonNull(bitsMapper);
+    return fuse(pairs -> new Mapping<K, K>(pairs, k -> k, bitsMapper));
+  }
+
+  PrimitiveValuedPipeline<K> peek(ObjLongConsumer<? super K> action) {
+    requireNonNull(action);
+    return fuse(pairs -> new Peeking<>(pairs, action));
+  }
+
+  Stream<K> keys() {
+    return MoreStreams.mapBySpliterator(
+        source, ORDERED, elements -> new Keys<>(pipeline.apply(elements)));
+  }
+
+  LongStream bits() {
+    return longStream(() -> new Bits<>(spliterator()), ORDERED, source.isParallel())
+        .onClose(source::close);
+  }
+
+  <V> BiStream<K, V> boxed(LongFunction<? extends V> toValue) {
+    requireNonNull(toValue);
+    return BiStream.fused(source, elements -> new Boxed<>(pipeline.apply(elements), toValue));
+  }
+
+  void forEach(ObjLongConsumer<? super K> action) {
+    requireNonNull(action);
+    if (source.isParallel()) {
+      peek(action).bits().forEach(v -> {});
+    } else {
+      spliterator().forEachRemaining(action);
+    }
+  }
+
+  void forEachOrdered(ObjLongConsumer<? super K> action) {
+    requireNonNull(action);
+    spliterator().forEachRemaining(action);
+  }
+
+  /**
+   * Accumulates all pairs into containers created by {@code newContainer}. When the stream is
+   * parallel, each split gets its own container and the containers are merged by {@code merger}.
+   */
+  <R> R collect(
+      Supplier<R> newContainer, Accumulator<R, ? super K> accumulator, BinaryOperator<R> merger) {
+    requireNonNull(newContainer);
+    requireNonNull(accumulator);
+    requireNonNull(merger);
+    if (!source.isParallel()) {
+      R container = newContainer.get();
+      spliterator().forEachRemaining((k, v) -> accumulator.accept(container, k, v));
+      return container;
+    }
+    return MoreStreams.mapBySpliterator(
+            source,
+            0,
+            elements -> new Reducing<>(pipeline.apply(elements), newContainer, accumulator))
+        .reduce(merger)
+        .orElseGet(newContainer);
+  }
+
+  PrimitiveValuedPipeline<K> parallel() {
+    return new PrimitiveValuedPipeline<>(source.parallel(), pipeline);
+  }
+
+  PrimitiveValuedPipeline<K> sequential() {
+    return new PrimitiveValuedPipeline<>(source.sequential(), pipeline);
+  }
+
+  boolean isParallel() {
+    return source.isParallel();
+  }
+
+  void close() {
+    source.close();
+  }
+
+  private Pairs<K> spliterator() {
+    return pipeline.apply(source.spliterator());
+  }
+
+  private <K2> PrimitiveValuedPipeline<K2> fuse(Function<Pairs<K>, Pairs<K2>> stage) {
+    return new PrimitiveValuedPipeline<>(
+        source, elements -> stage.apply(pipeline.apply(elements)));
+  }
+
+  private static <E, K> PrimitiveValuedPipeline<K> fused(
+      Stream<E> source, Function<? super Spliterator<E>, ? extends Pairs<K>> pipeline) {
+    // The pipeline is only ever applied to source.spliterator(), which is a Spliterator<E>.
+    @SuppressWarnings("unchecked")
+    Function<Spliterator<?>, Pairs<K>> erased =
+        elements -> pipeline.apply((Spliterator<E>) elements);
+    return new PrimitiveValuedPipeline<>(source, erased);
+  }
+
+  @FunctionalInterface
+  interface PairPredicate<K> {
+    boolean test(K key, long bits);
+  }
+
+  @FunctionalInterface
+  interface Accumulator<R, K> {
+    void accept(R container, K key, long bits);
+  }
+
+  /** Like {@link BiSpliterator}, but with the value bits passed as a primitive {@code long}. */
+  private abstract static class Pairs<K> {
+    abstract boolean tryAdvance(ObjLongConsumer<? super K> action);
+
+    void forEachRemaining(ObjLongConsumer<? super K> action) {
+      while (tryAdvance(action)) {}
+    }
+
+    abstract Pairs<K> trySplit();
+
+    abstract long estimateSize();
+
+    abstract int characteristics();
+  }
+
+  /** A stage that receives each upstream pair and pushes zero or one pair to downstream. */
+  private abstract static class Stage<K0, K> extends Pairs<K> implements ObjLongConsumer<K0> {
+    private final Pairs<K0> upstream;
+    ObjLongConsumer<? super K> downstream;
+
+    Stage(Pairs<K0> upstream) {
+      this.upstream = upstream;
+    }
+
+    /** Returns a stage identical to this one but reading from {@code split}. */
+    abstract Pairs<K> withUpstream(Pairs<K0> split);
+
+    @Override boolean tryAdvance(ObjLongConsumer<? super K> action) {
+      downstream = requireNonNull(action);
+      return upstream.tryAdvance(this);
+    }
+
+    @Override final void forEachRemaining(ObjLongConsumer<? super K> action) {
+      downstream = requireNonNull(action);
+      upstream.forEachRemaining(this);
+    }
+
+    @Override final Pairs<K> trySplit() {
+      Pairs<K0> prefix = upstream.trySplit();
+      return prefix == null ? null : withUpstream(prefix);
+    }
+
+    @Override final long estimateSize() {
+      return upstream.estimateSize();
+    }
+
+    @Override int characteristics() {
+      return upstream.characteristics();
+    }
+  }
+
+  private static final class FromPairs<K, V> extends Pairs<K> implements BiConsumer<K, V> {
+    private final BiSpliterator<K, V> pairs;
+    private final ToLongBiFunction<? super K, ? super V> toBits;
+    private ObjLongConsumer<? super K> downstream;
+
+    FromPairs(BiSpliterator<K, V> pairs, ToLongBiFunction<? super K, ? super V> toBits) {
+      this.pairs = pairs;
+      this.toBits = toBits;
+    }
+
+    @Override public void accept(K key, V value) {
+      downstream.accept(key, toBits.applyAsLong(key, value));
+    }
+
+    @Override boolean tryAdvance(ObjLongConsumer<? super K> action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override void forEachRemaining(ObjLongConsumer<? super K> action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override Pairs<K> trySplit() {
+      BiSpliterator<K, V> prefix = pairs.trySplit();
+      return prefix == null ? null : new FromPairs<>(prefix, toBits);
+    }
+
+    @Override long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override int characteristics() {
+      return pairs.characteristics();
+    }
+  }
+
+  private static final class Filtering<K> extends Stage<K, K> {
+    private final PairPredicate<? super K> predicate;
+    private boolean matched;
+
+    Filtering(Pairs<K> upstream, PairPredicate<? super K> predicate) {
+      super(upstream);
+      this.predicate = predicate;
+    }
+
+    @Override public void accept(K key, long value) {
+      if (predicate.test(key, value)) {
+        matched = true;
+        downstream.accept(key, value);
+      }
+    }
+
+    @Override boolean tryAdvance(ObjLongConsumer<? super K> action) {
+      matched = false;
+      while (super.tryAdvance(action)) {
+        if (matched) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override Pairs<K> withUpstream(Pairs<K> split) {
+      return new Filtering<>(split, predicate);
+    }
+
+    @Override int characteristics() {
+      return super.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+  }
+
+  private static final class Peeking<K> extends Stage<K, K> {
+    private final ObjLongConsumer<? super K> action;
+
+    Peeking(Pairs<K> upstream, ObjLongConsumer<? super K> action) {
+      super(upstream);
+      this.action = action;
+    }
+
+    @Override public void accept(K key, long value) {
+      action.accept(key, value);
+      downstream.accept(key, value);
+    }
+
+    @Override Pairs<K> withUpstream(Pairs<K> split) {
+      return new Peeking<>(split, action);
+    }
+  }
+
+  private static final class Mapping<K0, K> extends Stage<K0, K> {
+    private final Function<? super K0, ? extends K> keyMapper;
+    private final LongUnaryOperator bitsMapper;
+
+    Mapping(
+        Pairs<K0> upstream,
+        Function<? super K0, ? extends K> keyMapper,
+        LongUnaryOperator bitsMapper) {
+      super(upstream);
+      this.keyMapper = keyMapper;
+      this.bitsMapper = bitsMapper;
+    }
+
+    @Override public void accept(K0 key, long value) {
+      downstream.accept(keyMapper.apply(key), bitsMapper.applyAsLong(value));
+    }
+
+    @Override Pairs<K> withUpstream(Pairs<K0> split) {
+      return new Mapping<>(split, keyMapper, bitsMapper);
+    }
+  }
+
+  private static final class Keys<K> implements Spliterator<K>, ObjLongConsumer<K> {
+    private final Pairs<K> pairs;
+    private Consumer<? super K> downstream;
+
+    Keys(Pairs<K> pairs) {
+      this.pairs = pairs;
+    }
+
+    @Override public void accept(K key, long value) {
+      downstream.accept(key);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super K> action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(Consumer<? super K> action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator<K> trySplit() {
+      Pairs<K> prefix = pairs.trySplit();
+      return prefix == null ? null : new Keys<>(prefix);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics();
+    }
+  }
+
+  private static final class Bits<K> implements Spliterator.OfLong, ObjLongConsumer<K> {
+    private final Pairs<K> pairs;
+    private LongConsumer downstream;
+
+    Bits(Pairs<K> pairs) {
+      this.pairs = pairs;
+    }
+
+    @Override public void accept(K key, long value) {
+      downstream.accept(value);
+    }
+
+    @Override public boolean tryAdvance(LongConsumer action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override public void forEachRemaining(LongConsumer action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override public Spliterator.OfLong trySplit() {
+      Pairs<K> prefix = pairs.trySplit();
+      return prefix == null ? null : new Bits<>(prefix);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return pairs.characteristics();
+    }
+  }
+
+  private static final class Boxed<K, V> extends BiSpliterator<K, V> implements ObjLongConsumer<K> {
+    private final Pairs<K> pairs;
+    private final LongFunction<? extends V> toValue;
+    private BiConsumer<? super K, ? super V> downstream;
+
+    Boxed(Pairs<K> pairs, LongFunction<? extends V> toValue) {
+      this.pairs = pairs;
+      this.toValue = toValue;
+    }
+
+    @Override public void accept(K key, long value) {
+      downstream.accept(key, toValue.apply(value));
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      return pairs.tryAdvance(this);
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      downstream = requireNonNull(action);
+      pairs.forEachRemaining(this);
+    }
+
+    @Override BiSpliterator<K, V> trySplit() {
+      Pairs<K> prefix = pairs.trySplit();
+      return prefix == null ? null : new Boxed<>(prefix, toValue);
+    }
+
+    @Override long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override int characteristics() {
+      return pairs.characteristics();
+    }
+  }
+
+  /** Accumulates all pairs of one split into a single container, which is its only element. */
+  private static final class Reducing<K, R> implements Spliterator<R> {
+    private final Pairs<K> pairs;
+    private final Supplier<R> newContainer;
+    private final Accumulator<R, ? super K> accumulator;
+    private boolean done;
+
+    Reducing(Pairs<K> pairs, Supplier<R> newContainer, Accumulator<R, ? super K> accumulator) {
+      this.pairs = pairs;
+      this.newContainer = newContainer;
+      this.accumulator = accumulator;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super R> action) {
+      requireNonNull(action);
+      if (done) {
+        return false;
+      }
+      done = true;
+      R container = newContainer.get();
+      pairs.forEachRemaining((k, v) -> accumulator.accept(container, k, v));
+      action.accept(container);
+      return true;
+    }
+
+    @Override public Spliterator<R> trySplit() {
+      if (done) {
+        return null;
+      }
+      Pairs<K> prefix = pairs.trySplit();
+      return prefix == null ? null : new Reducing<>(prefix, newContainer, accumulator);
+    }
+
+    @Override public long estimateSize() {
+      // Report the remaining pairs so that the fork-join framework keeps splitting.
+      return done ? 0 : pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return 0;
+    }
+  }
+}
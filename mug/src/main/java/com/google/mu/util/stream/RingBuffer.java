@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A fixed-capacity FIFO buffer backed by a circular array, holding the current window of a
+ * windowing operator. Adding to a full buffer overwrites the oldest element. Nulls are allowed.
+ * Not thread safe.
+ */
+final class RingBuffer<T> {
+  private final Object[] elements;
+  private int head;
+  private int size;
+
+  RingBuffer(int capacity) {
+    this.elements = new Object[capacity];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean isFull() {
+    return size == elements.length;
+  }
+
+  /** Appends {@code element}, evicting the oldest element if the buffer is full. */
+  void add(T element) {
+    if (isFull()) {
+      elements[head] = element;
+      head = next(head, 1);
+    } else {
+      elements[next(head, size)] = element;
+      size++;
+    }
+  }
+
+  /** Returns the {@code i}th oldest element, starting from 0. */
+  @SuppressWarnings("unchecked") // Only T is ever added.
+  T get(int i) {
+    return (T) elements[next(head, i)];
+  }
+
+  /** Removes the {@code n} oldest elements, or all elements if there are fewer than {@code n}. */
+  void removeFirst(int n) {
+    int removed = Math.min(n, size);
+    for (int i = 0; i < removed; i++) {
+      elements[next(head, i)] = null;
+    }
+    head = next(head, removed);
+    size -= removed;
+  }
+
+  /** Returns an unmodifiable copy of the elements, from oldest to newest. */
+  List<T> toList() {
+    List<T> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(get(i));
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  private int next(int index, int offset) {
+    int i = index + offset;
+    return i >= elements.length ? i - elements.length : i;
+  }
+}
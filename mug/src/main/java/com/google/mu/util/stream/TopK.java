@@ -0,0 +1,113 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first {@code k} elements in the order of a comparator, out of all elements added,
+ * using a bounded heap in O(n log k) time and O(k) space.
+ *
+ * <p>Equal elements are ranked by the order they were added, the same as a stable sort followed
+ * by {@code limit(k)}. Two instances are {@link #merge merged} such that the elements of the
+ * second come after those of the first, which is what parallel streams need for their combiner.
+ *
+ * <p>Once {@code k} elements are kept, the evicted slot is reused for the new element, so the heap
+ * itself doesn't grow. Callers whose input elements are reused, such as {@link
+ * BiCollectors#topK}, still copy every element before adding it. Not thread safe.
+ */
+final class TopK<T> {
+  private final int k;
+  private final Comparator<? super T> comparator;
+
+  /** The worst of the kept elements is at the head, ready to be evicted. */
+  private final PriorityQueue<Ranked<T>> heap;
+
+  /** The number of elements added so far, which is also the rank of the next element. */
+  private long added;
+
+  TopK(int k, Comparator<? super T> comparator) {
+    this.k = k;
+    this.comparator = comparator;
+    this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), this::compareDescending);
+  }
+
+  /** Throws {@link IllegalArgumentException} if {@code k} is negative. */
+  static int checkK(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k (" + k + ") cannot be negative.");
+    }
+    return k;
+  }
+
+  void add(T element) {
+    offer(element, added++);
+  }
+
+  TopK<T> merge(TopK<T> that) {
+    for (Ranked<T> ranked : that.heap) {
+      offer(ranked.element, added + ranked.rank);
+    }
+    added += that.added;
+    return this;
+  }
+
+  /** Returns the kept elements in the order of the comparator. */
+  List<T> toList() {
+    List<Ranked<T>> sorted = new ArrayList<>(heap);
+    sorted.sort(this::compareDescending);
+    List<T> list = new ArrayList<>(sorted.size());
+    for (int i = sorted.size() - 1; i >= 0; i--) {
+      list.add(sorted.get(i).element);
+    }
+    return list;
+  }
+
+  private void offer(T element, long rank) {
+    if (heap.size() < k) {
+      heap.add(new Ranked<>(element, rank));
+      return;
+    }
+    Ranked<T> worst = heap.peek();
+    if (worst == null) { // k == 0
+      return;
+    }
+    int result = comparator.compare(element, worst.element);
+    if (result < 0 || (result == 0 && rank < worst.rank)) {
+      heap.poll();
+      worst.element = element;
+      worst.rank = rank;
+      heap.add(worst);
+    }
+  }
+
+  private int compareDescending(Ranked<T> a, Ranked<T> b) {
+    int result = comparator.compare(b.element, a.element);
+    return result == 0 ? Long.compare(b.rank, a.rank) : result;
+  }
+
+  private static final class Ranked<T> {
+    T element;
+    long rank;
+
+    Ranked(T element, long rank) {
+      this.element = element;
+      this.rank = rank;
+    }
+  }
+}
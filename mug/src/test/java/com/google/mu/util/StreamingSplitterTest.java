@@ -0,0 +1,138 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class StreamingSplitterTest {
+  @Test public void split_reader_emptyInput() {
+    assertThat(split(StreamingSplitter.on(','), "")).containsExactly("");
+  }
+
+  @Test public void split_reader_noDelimiter() {
+    assertThat(split(StreamingSplitter.on(','), "abc")).containsExactly("abc");
+  }
+
+  @Test public void split_reader_trailingDelimiter() {
+    assertThat(split(StreamingSplitter.on(','), "a,b,")).containsExactly("a", "b", "").inOrder();
+  }
+
+  @Test public void split_reader_consecutiveDelimiters() {
+    assertThat(split(StreamingSplitter.on(','), ",a,,b"))
+        .containsExactly("", "a", "", "b")
+        .inOrder();
+  }
+
+  @Test public void split_reader_delimiterStraddlesBufferBoundary() {
+    StreamingSplitter splitter = StreamingSplitter.on("<->").withBufferSize(4);
+    assertThat(split(splitter, "ab<->cd<->e<-><->"))
+        .containsExactly("ab", "cd", "e", "", "")
+        .inOrder();
+  }
+
+  @Test public void split_reader_partLongerThanBuffer() {
+    StreamingSplitter splitter = StreamingSplitter.on(',').withBufferSize(2);
+    assertThat(split(splitter, "abcdefgh,ij,klmnopqrstu"))
+        .containsExactly("abcdefgh", "ij", "klmnopqrstu")
+        .inOrder();
+  }
+
+  @Test public void split_reader_isLazy() {
+    StreamingSplitter splitter = StreamingSplitter.on(',').withBufferSize(4);
+    Reader reader = new StringReader("a,b,c,d,e,f,g,h");
+    assertThat(splitter.split(reader).limit(2).collect(toList())).containsExactly("a", "b");
+  }
+
+  @Test public void split_reader_ioException() {
+    Reader reader = new Reader() {
+      @Override public int read(char[] buf, int off, int len) throws IOException {
+        throw new IOException("test");
+      }
+
+      @Override public void close() {}
+    };
+    assertThrows(
+        UncheckedIOException.class, () -> StreamingSplitter.on(',').split(reader).count());
+  }
+
+  @Test public void split_channel_utf8() {
+    StreamingSplitter splitter = StreamingSplitter.on("\u00b7").withBufferSize(3);
+    String input = "caf\u00e9\u00b7\u4e2d\u6587\u00b7x";
+    List<String> parts =
+        splitter
+            .split(Channels.newChannel(new ByteArrayInputStream(input.getBytes(UTF_8))))
+            .collect(toList());
+    assertThat(parts).containsExactly("caf\u00e9", "\u4e2d\u6587", "x").inOrder();
+  }
+
+  @Test public void split_fileChannel() throws IOException {
+    Path file = Files.createTempFile("streaming-splitter", ".txt");
+    try {
+      StringBuilder content = new StringBuilder();
+      for (int i = 0; i < 10000; i++) {
+        content.append("line").append(i).append('\n');
+      }
+      Files.write(file, content.toString().getBytes(UTF_8));
+      try (FileChannel channel = FileChannel.open(file)) {
+        List<String> lines =
+            StreamingSplitter.on('\n').withBufferSize(64).split(channel).collect(toList());
+        assertThat(lines).hasSize(10001);
+        assertThat(lines.get(9999)).isEqualTo("line9999");
+        assertThat(lines.get(10000)).isEmpty();
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test public void emptyDelimiterDisallowed() {
+    assertThrows(IllegalArgumentException.class, () -> StreamingSplitter.on(""));
+  }
+
+  @Test public void nonPositiveBufferSizeDisallowed() {
+    assertThrows(
+        IllegalArgumentException.class, () -> StreamingSplitter.on(',').withBufferSize(0));
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(StreamingSplitter.class);
+    new NullPointerTester().testAllPublicInstanceMethods(StreamingSplitter.on(','));
+  }
+
+  private static List<String> split(StreamingSplitter splitter, String input) {
+    return splitter.split(new StringReader(input)).collect(toList());
+  }
+}
@@ -1,29 +1,42 @@
 package com.google.mu.util;
 
+import static com.google.common.base.Strings.repeat;
 import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 import static com.google.common.truth.Truth8.assertThat;
 import static com.google.mu.util.Substring.BEGINNING;
 import static com.google.mu.util.Substring.END;
 import static com.google.mu.util.Substring.after;
 import static com.google.mu.util.Substring.before;
 import static com.google.mu.util.Substring.first;
+import static com.google.mu.util.Substring.firstOf;
 import static com.google.mu.util.Substring.last;
 import static com.google.mu.util.Substring.prefix;
 import static com.google.mu.util.Substring.spanningInOrder;
 import static com.google.mu.util.Substring.suffix;
 import static com.google.mu.util.Substring.upToIncluding;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Spliterator;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.testing.ClassSanityTester;
@@ -1066,6 +1079,36 @@ public class SubstringTest {
     assertThat(first("x").repeatedly().removeAllFrom("xaxbxxxcxx")).isEqualTo("abc");
   }
 
+  @Test
+  public void forEachMatch_noMatch() {
+    List<String> matches = new ArrayList<>();
+    first('f').repeatedly().forEachMatch("bar", (start, end) -> matches.add(start + "-" + end));
+    assertThat(matches).isEmpty();
+  }
+
+  @Test
+  public void forEachMatch_multipleMatches() {
+    List<String> matches = new ArrayList<>();
+    first(',').repeatedly().forEachMatch("a,b,,c", (start, end) -> matches.add(start + "-" + end));
+    assertThat(matches).containsExactly("1-2", "3-4", "4-5").inOrder();
+  }
+
+  @Test
+  public void forEachMatch_between() {
+    String input = "[x][yy]z[";
+    List<String> matches = new ArrayList<>();
+    Substring.between(first('['), first(']')).repeatedly()
+        .forEachMatch(input, (start, end) -> matches.add(input.substring(start, end)));
+    assertThat(matches).containsExactly("x", "yy").inOrder();
+  }
+
+  @Test
+  public void forEachMatch_emptyMatchesAdvance() {
+    List<String> matches = new ArrayList<>();
+    BEGINNING.repeatedly().forEachMatch("ab", (start, end) -> matches.add(start + "-" + end));
+    assertThat(matches).containsExactly("0-0");
+  }
+
   @Test
   public void replaceFrom_noMatch() {
     assertThat(first('f').replaceFrom("bar", "")).isEqualTo("bar");
@@ -1125,6 +1168,70 @@ public class SubstringTest {
     assertThat(thrown).hasMessageThat().contains("{unknown}");
   }
 
+  @Test
+  public void removeAllInto_noMatch() {
+    StringBuilder out = new StringBuilder("> ");
+    assertThat(first('f').repeatedly().removeAllInto("bar", out)).isSameAs(out);
+    assertThat(out.toString()).isEqualTo("> bar");
+  }
+
+  @Test
+  public void removeAllInto_matches() {
+    assertThat(first("x").repeatedly().removeAllInto("xaxbxxxcxx", new StringBuilder()).toString())
+        .isEqualTo("abc");
+  }
+
+  @Test
+  public void replaceAllInto_noMatch() {
+    StringBuilder out = new StringBuilder();
+    first('f').repeatedly().replaceAllInto("bar", m -> "x", out);
+    assertThat(out.toString()).isEqualTo("bar");
+  }
+
+  @Test
+  public void replaceAllInto_placeholderSubstitution() {
+    Substring.Pattern placeholder = Substring.between(before(first('{')), after(first('}')));
+    ImmutableMap<String, String> dictionary = ImmutableMap.of("{key}", "foo", "{value}", "bar");
+    StringBuilder out = new StringBuilder("reused:");
+    placeholder.repeatedly()
+        .replaceAllInto("/{key}:{value}/", m -> dictionary.get(m.toString()), out);
+    assertThat(out.toString()).isEqualTo("reused:/foo:bar/");
+  }
+
+  @Test
+  public void replaceAllInto_writer() {
+    StringWriter writer = new StringWriter();
+    first(',').repeatedly().replaceAllInto("a,b,c", m -> "; ", writer);
+    assertThat(writer.toString()).isEqualTo("a; b; c");
+  }
+
+  @Test
+  public void replaceAllInto_replacementFunctionReturnsNull() {
+    assertThrows(
+        NullPointerException.class,
+        () -> first('x').repeatedly().replaceAllInto("axb", m -> null, new StringBuilder()));
+  }
+
+  @Test
+  public void replaceAllInto_ioException() {
+    Appendable failing = new Appendable() {
+      @Override public Appendable append(CharSequence csq) throws IOException {
+        throw new IOException("test");
+      }
+
+      @Override public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        throw new IOException("test");
+      }
+
+      @Override public Appendable append(char c) throws IOException {
+        throw new IOException("test");
+      }
+    };
+    assertThrows(
+        UncheckedIOException.class,
+        () -> first('x').repeatedly().replaceAllInto("axb", m -> "y", failing));
+  }
+
   @Test
   public void replaceAllFrom_replacementFunctionReturnsNonEmpty() {
     assertThat(Substring.first("var").repeatedly().replaceAllFrom("var=x", (Function<? super Match, ? extends CharSequence>) m -> "v")).isEqualTo("v=x");
@@ -1887,6 +1994,307 @@ public class SubstringTest {
     assertThat(spanningInOrder("o", "bar", "car").in("foo bar cat")).isEmpty();
   }
 
+  @Test
+  public void compile_betweenChars() {
+    Substring.Pattern pattern = Substring.between(first('['), first(']')).compile();
+    assertThat(pattern.from("a[b]c")).hasValue("b");
+    assertThat(pattern.from("a[b")).isEmpty();
+    assertThat(pattern.from("a]b[")).isEmpty();
+    assertThat(pattern.repeatedly().from("[x][yy]z[")).containsExactly("x", "yy").inOrder();
+    assertThat(pattern.toString()).isEqualTo("between(first('['), first(']'))");
+  }
+
+  @Test
+  public void compile_beforeAndAfterChar() {
+    assertThat(before(first('/')).compile().from("foo/bar/baz")).hasValue("foo");
+    assertThat(before(first('/')).compile().repeatedly().from("foo/bar/baz"))
+        .containsExactly("foo", "bar")
+        .inOrder();
+    assertThat(after(first('/')).compile().from("foo/bar/baz")).hasValue("bar/baz");
+    assertThat(after(first('/')).compile().from("foo")).isEmpty();
+  }
+
+  @Test
+  public void compile_toEnd() {
+    assertThat(first('/').toEnd().compile().removeFrom("foo/bar")).isEqualTo("foo");
+    assertThat(first('/').toEnd().compile().from("foo")).isEmpty();
+  }
+
+  @Test
+  public void compile_nestedComposition() {
+    Substring.Pattern pattern =
+        Substring.between(first('{'), first('}')).or(before(first(';'))).or(after(first('=')));
+    Substring.Pattern compiled = pattern.compile();
+    for (String input : ImmutableList.of("{a};b", "a;b=c", "x=y", "none", "", "{;}=")) {
+      assertThat(compiled.from(input)).isEqualTo(pattern.from(input));
+      assertThat(compiled.repeatedly().from(input).collect(toList()))
+          .isEqualTo(pattern.repeatedly().from(input).collect(toList()));
+    }
+    assertThat(compiled.toString()).isEqualTo(pattern.toString());
+  }
+
+  @Test
+  public void compile_randomized_sameAsNested() {
+    Random random = new Random(42);
+    int pairs = 0;
+    for (int p = 0; p < 2000; p++) {
+      Substring.Pattern pattern = randomPattern(random, 3);
+      Substring.Pattern compiled = pattern.compile();
+      for (int i = 0; i < 30; i++, pairs++) {
+        String input = randomString(random, 12);
+        String context = pattern + " in " + input;
+        assertWithMessage(context)
+            .that(compiled.in(input).map(m -> m.index() + ":" + m))
+            .isEqualTo(pattern.in(input).map(m -> m.index() + ":" + m));
+        assertWithMessage(context)
+            .that(describeAll(compiled.repeatedly(), input))
+            .isEqualTo(describeAll(pattern.repeatedly(), input));
+      }
+    }
+    assertThat(pairs).isEqualTo(60000);
+  }
+
+  private static Substring.Pattern randomPattern(Random random, int depth) {
+    char c = randomChar(random);
+    switch (depth <= 0 ? random.nextInt(2) : random.nextInt(8)) {
+      case 0:
+        return first(c);
+      case 1:
+        return first(String.valueOf(c) + randomChar(random));
+      case 2:
+        return before(randomPattern(random, depth - 1));
+      case 3:
+        return after(randomPattern(random, depth - 1));
+      case 4:
+        return Substring.between(
+            randomPattern(random, depth - 1), randomPattern(random, depth - 1));
+      case 5:
+        return randomPattern(random, depth - 1).toEnd();
+      case 6:
+        return randomPattern(random, depth - 1).or(randomPattern(random, depth - 1));
+      default:
+        return upToIncluding(randomPattern(random, depth - 1));
+    }
+  }
+
+  private static List<String> describeAll(Substring.RepeatingPattern pattern, String input) {
+    return pattern.match(input).map(m -> m.index() + ":" + m).collect(toList());
+  }
+
+  private static String randomString(Random random, int maxLength) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = random.nextInt(maxLength + 1); i > 0; i--) {
+      builder.append(randomChar(random));
+    }
+    return builder.toString();
+  }
+
+  private static char randomChar(Random random) {
+    return "ab/[]".charAt(random.nextInt(5));
+  }
+
+  @Test
+  public void compile_leafPatternReturnsItself() {
+    Substring.Pattern pattern = first("foo");
+    assertThat(pattern.compile()).isSameAs(pattern);
+    assertThat(prefix("foo").compile()).isInstanceOf(Substring.Prefix.class);
+  }
+
+  @Test
+  public void splitView_noMatch() {
+    assertThat(first('=').splitView("foo").isPresent()).isFalse();
+    assertThat(first('=').splitThenTrimView("foo").isPresent()).isFalse();
+  }
+
+  @Test
+  public void splitView_match() {
+    assertThat(first('=').splitView(" k = v ").map((k, v) -> "[" + k + "][" + v + "]"))
+        .hasValue("[ k ][ v ]");
+    assertThat(first('=').splitView("=").map((k, v) -> k.length() + v.length())).hasValue(0);
+  }
+
+  @Test
+  public void splitThenTrimView_match() {
+    assertThat(first('=').splitThenTrimView(" k = v ").map((k, v) -> "[" + k + "][" + v + "]"))
+        .hasValue("[k][v]");
+    assertThat(first('=').splitThenTrimView("  =  ").map((k, v) -> k.length() + v.length()))
+        .hasValue(0);
+  }
+
+  @Test
+  public void splitView_partsCanBeMatchedAgain() {
+    CharSequence value =
+        first(':').splitThenTrimView("Accept: text/html; q=0.9").map((k, v) -> v).get();
+    assertThat(first(';').splitThenTrim(value).map((type, q) -> type + "," + q))
+        .hasValue("text/html,q=0.9");
+  }
+
+  @Test
+  public void beforeViewAndAfterView() {
+    Match match = first('/').in("a/bc/d").get();
+    assertThat(match.beforeView().toString()).isEqualTo("a");
+    CharSequence after = match.afterView();
+    assertThat(after.toString()).isEqualTo("bc/d");
+    assertThat(after.length()).isEqualTo(4);
+    assertThat(after.charAt(2)).isEqualTo('/');
+    assertThat(after.subSequence(1, 3).toString()).isEqualTo("c/");
+    assertThat(before(first('/')).from(after)).hasValue("bc");
+  }
+
+  @Test
+  public void charSequenceInput_stringBuilder() {
+    StringBuilder builder = new StringBuilder("name = joe; age = 10");
+    assertThat(first('=').in(builder).get().before()).isEqualTo("name ");
+    assertThat(first('=').in(builder).get().fullString()).isEqualTo("name = joe; age = 10");
+    assertThat(before(first(';')).from(builder)).hasValue("name = joe");
+    assertThat(first('=').splitThenTrim(builder).map((k, v) -> k + ":" + v))
+        .hasValue("name:joe; age = 10");
+    assertThat(first(';').repeatedly().splitThenTrim(builder).map(Match::toString))
+        .containsExactly("name = joe", "age = 10")
+        .inOrder();
+  }
+
+  @Test
+  public void charSequenceInput_charBufferWithPosition() {
+    CharBuffer buffer = CharBuffer.wrap("ignored: k1=v1,k2=v2");
+    buffer.position(9);
+    assertThat(first(',').repeatedly().from(buffer)).containsExactly(",");
+    assertThat(first(',').repeatedly().split(buffer).map(Match::toString))
+        .containsExactly("k1=v1", "k2=v2")
+        .inOrder();
+    assertThat(Substring.between(first('='), first(',')).from(buffer)).hasValue("v1");
+    assertThat(last("=").in(buffer).get().index()).isEqualTo(8);
+    assertThat(prefix("k1").from(buffer)).hasValue("k1");
+    assertThat(suffix("v2").in(buffer).get().before()).isEqualTo("k1=v1,k2=");
+    assertThat(firstOf(ImmutableList.of("k2", "v1")).from(buffer)).hasValue("v1");
+    assertThat(first(Pattern.compile("k(\\d)"), 1).from(buffer)).hasValue("1");
+  }
+
+  @Test
+  public void stringSignatures_keptForBinaryCompatibility() throws Exception {
+    assertThat(Substring.Pattern.class.getMethod("in", String.class).getReturnType())
+        .isEqualTo(Optional.class);
+    for (String name : ImmutableList.of("match", "split", "splitThenTrim")) {
+      assertThat(Substring.RepeatingPattern.class.getMethod(name, String.class).getReturnType())
+          .isEqualTo(Stream.class);
+    }
+    assertThat(first('/').repeatedly().match("a/b").map(Match::index))
+        .containsExactly(1);
+    assertThat(first('/').repeatedly().splitThenTrim(" a / b ").map(Match::toString))
+        .containsExactly("a", "b")
+        .inOrder();
+  }
+
+  @Test
+  public void charSequenceInput_longLiteral() {
+    String boundary = repeat("--boundary", 8);
+    StringBuilder body = new StringBuilder("preamble").append(boundary).append("part");
+    assertThat(first(boundary).in(body).get().after()).isEqualTo("part");
+  }
+
+  @Test
+  public void first_longLiteral_noMatch() {
+    String boundary = repeat("--boundary", 8);
+    assertThat(first(boundary).from(repeat("--boundar", 20))).isEmpty();
+    assertThat(first(boundary).from("")).isEmpty();
+  }
+
+  @Test
+  public void first_longLiteral_match() {
+    String boundary = repeat("--boundary", 8);
+    String body = "preamble" + boundary + "part1" + boundary + "part2";
+    assertThat(first(boundary).in(body).get().before()).isEqualTo("preamble");
+    assertThat(first(boundary).repeatedly().split(body).map(Match::toString))
+        .containsExactly("preamble", "part1", "part2")
+        .inOrder();
+  }
+
+  @Test
+  public void first_longLiteral_nonAsciiCharsWithSameLowByte() {
+    String needle = repeat("\u0161a", 40);  // '\u0161' and 'a' share the low byte.
+    assertThat(first(needle).in("\u0161\u0161" + needle).get().index()).isEqualTo(2);
+    assertThat(first(needle).in("aa" + needle).get().index()).isEqualTo(2);
+  }
+
+  @Test
+  public void spanningInOrder_longLiterals() {
+    String open = repeat("<", 70);
+    String close = repeat(">", 70);
+    assertThat(spanningInOrder(open, close).from("x" + open + "y" + close + "z"))
+        .hasValue(open + "y" + close);
+  }
+
+  @Test
+  public void firstOf_noCandidate() {
+    assertThat(firstOf(ImmutableList.of()).from("foo")).isEmpty();
+  }
+
+  @Test
+  public void firstOf_noMatch() {
+    assertThat(firstOf(ImmutableList.of("bar", "baz")).from("foo")).isEmpty();
+  }
+
+  @Test
+  public void firstOf_leftmostMatchWins() {
+    Substring.Pattern pattern = firstOf(ImmutableList.of("bar", "oo", "f"));
+    assertThat(pattern.from("a foo bar")).hasValue("f");
+    assertThat(pattern.in("a foo bar").get().before()).isEqualTo("a ");
+    assertThat(pattern.in("a foo bar").get().after()).isEqualTo("oo bar");
+  }
+
+  @Test
+  public void firstOf_sameIndex_earlierCandidateWins() {
+    assertThat(firstOf(ImmutableList.of("foo", "foobar")).from("xfoobar")).hasValue("foo");
+    assertThat(firstOf(ImmutableList.of("foobar", "foo")).from("xfoobar")).hasValue("foobar");
+  }
+
+  @Test
+  public void firstOf_overlappingCandidates() {
+    assertThat(firstOf(ImmutableList.of("cd", "abcdef")).from("xabcdefg")).hasValue("abcdef");
+    assertThat(firstOf(ImmutableList.of("abcdef", "bcd")).from("xabcdeg")).hasValue("bcd");
+  }
+
+  @Test
+  public void firstOf_emptyCandidate() {
+    assertThat(firstOf(ImmutableList.of("foo", "")).in("foo").get().index()).isEqualTo(0);
+    assertThat(firstOf(ImmutableList.of("foo", "")).from("foo")).hasValue("foo");
+    assertThat(firstOf(ImmutableList.of("", "foo")).from("foo")).hasValue("");
+  }
+
+  @Test
+  public void firstOf_nonAsciiCandidates() {
+    assertThat(firstOf(ImmutableList.of("caf\u00e9", "na\u00efve")).from("a na\u00efve caf\u00e9"))
+        .hasValue("na\u00efve");
+  }
+
+  @Test
+  public void firstOf_repeatedly() {
+    assertThat(
+            firstOf(ImmutableList.of("ERROR", "WARN", "FATAL"))
+                .repeatedly()
+                .from("WARN: disk full; ERROR: write failed; FATAL"))
+        .containsExactly("WARN", "ERROR", "FATAL")
+        .inOrder();
+  }
+
+  @Test
+  public void firstOf_between() {
+    Substring.Pattern quote = firstOf(ImmutableList.of("'", "\""));
+    assertThat(Substring.between(quote, quote).from("say \"hi' there\"")).hasValue("hi");
+  }
+
+  @Test
+  public void firstOf_beforeAndAfter() {
+    Substring.Pattern separator = firstOf(ImmutableList.of("; ", ", "));
+    assertThat(before(separator).from("a, b; c")).hasValue("a");
+    assertThat(after(separator).from("a, b; c")).hasValue("b; c");
+  }
+
+  @Test
+  public void firstOf_toString() {
+    assertThat(firstOf(ImmutableList.of("a", "bc")).toString()).isEqualTo("firstOf('a', 'bc')");
+  }
+
   @Test public void testRegexTopLevelGroups_noGroup() {
     assertThat(Substring.topLevelGroups(java.util.regex.Pattern.compile("f+")).from("fff"))
         .containsExactly("fff");
@@ -0,0 +1,159 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static com.google.mu.util.Utf8Substring.after;
+import static com.google.mu.util.Utf8Substring.before;
+import static com.google.mu.util.Utf8Substring.between;
+import static com.google.mu.util.Utf8Substring.first;
+import static com.google.mu.util.Utf8Substring.last;
+import static com.google.mu.util.Utf8Substring.prefix;
+import static com.google.mu.util.Utf8Substring.suffix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.Utf8Substring.Match;
+
+@RunWith(JUnit4.class)
+public class Utf8SubstringTest {
+  @Test public void first_char() {
+    assertThat(first('=').in(bytes("k=v")).get().index()).isEqualTo(1);
+    assertThat(first('=').split(bytes("k=v")).map((k, v) -> k + ":" + v)).hasValue("k:v");
+    assertThat(first('=').in(bytes("kv"))).isEmpty();
+  }
+
+  @Test public void first_char_nonAscii() {
+    assertThrows(IllegalArgumentException.class, () -> first('\u00e9'));
+  }
+
+  @Test public void first_string() {
+    assertThat(before(first("->")).from(bytes("caf\u00e9->bar"))).hasValue("caf\u00e9");
+    assertThat(after(first("\u00e9")).from(bytes("caf\u00e9->bar"))).hasValue("->bar");
+    assertThat(first("->").in(bytes("caf\u00e9->bar")).get().index()).isEqualTo(5);
+  }
+
+  @Test public void last_charAndString() {
+    assertThat(after(last('/')).from(bytes("/usr/local/bin"))).hasValue("bin");
+    assertThat(before(last("//")).from(bytes("a//b//c"))).hasValue("a//b");
+    assertThat(last('x').in(bytes("abc"))).isEmpty();
+  }
+
+  @Test public void prefixAndSuffix() {
+    assertThat(after(prefix("http://")).from(bytes("http://google.com"))).hasValue("google.com");
+    assertThat(prefix("https://").in(bytes("http://google.com"))).isEmpty();
+    assertThat(before(suffix(".txt")).from(bytes("r\u00e9sum\u00e9.txt"))).hasValue("r\u00e9sum\u00e9");
+    assertThat(suffix(".txt").in(bytes("a.txt.gz"))).isEmpty();
+  }
+
+  @Test public void between_chars() {
+    assertThat(between(first('['), first(']')).from(bytes("id=[\u4e2d\u6587] x"))).hasValue("\u4e2d\u6587");
+  }
+
+  @Test public void or() {
+    Utf8Substring.Pattern separator = first(';').or(first(','));
+    assertThat(before(separator).from(bytes("a,b"))).hasValue("a");
+    assertThat(before(separator).from(bytes("a;b,c"))).hasValue("a");
+  }
+
+  @Test public void repeatedly_from() {
+    assertThat(between(first('['), first(']')).repeatedly().from(bytes("[a][\u00e9]x[")))
+        .containsExactly("a", "\u00e9")
+        .inOrder();
+  }
+
+  @Test public void repeatedly_split() {
+    assertThat(first(',').repeatedly().split(bytes("a,\u00e9,,b")).map(Match::toString))
+        .containsExactly("a", "\u00e9", "", "b")
+        .inOrder();
+    assertThat(first(',').repeatedly().split(bytes("")).map(Match::toString))
+        .containsExactly("");
+  }
+
+  @Test public void repeatedly_split_emptyDelimiterDisallowed() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> Utf8Substring.BEGINNING.repeatedly().split(bytes("abc")));
+  }
+
+  @Test public void byteBuffer_matchesFromPositionToLimit() {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes("skip:k1=v1;tail"));
+    buffer.position(5).limit(10);
+    assertThat(first('=').split(buffer).map((k, v) -> k + ":" + v)).hasValue("k1:v1");
+    assertThat(first('=').in(buffer).get().index()).isEqualTo(2);
+    assertThat(after(first(';')).from(buffer)).isEmpty();
+    assertThat(buffer.position()).isEqualTo(5);
+    assertThat(buffer.limit()).isEqualTo(10);
+  }
+
+  @Test public void directByteBuffer() {
+    byte[] bytes = bytes("k1=v1,k2=\u00e9");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    assertThat(first(',').repeatedly().split(buffer).map(Match::toString))
+        .containsExactly("k1=v1", "k2=\u00e9")
+        .inOrder();
+  }
+
+  @Test public void directByteBuffer_decodesBeforeAndAfter() {
+    byte[] bytes = bytes("skip:\u00e9=v1;tail");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    buffer.position(5);
+    Match match = first('=').in(buffer).get();
+    assertThat(match.before()).isEqualTo("\u00e9");
+    assertThat(match.after()).isEqualTo("v1;tail");
+    assertThat(match.toString()).isEqualTo("=");
+    assertThat(buffer.position()).isEqualTo(5);
+  }
+
+  @Test public void readOnlyByteBuffer() {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes("k1=\u00e9")).asReadOnlyBuffer();
+    assertThat(first('=').split(buffer).map((k, v) -> k + ":" + v)).hasValue("k1:\u00e9");
+  }
+
+  @Test public void match_viewAccessors() {
+    Match match = between(first('['), first(']')).in(bytes("ab[cd]ef")).get();
+    assertThat(match.index()).isEqualTo(3);
+    assertThat(match.length()).isEqualTo(2);
+    assertThat(match.byteAt(1)).isEqualTo((byte) 'd');
+    assertThat(match.before()).isEqualTo("ab[");
+    assertThat(match.after()).isEqualTo("]ef");
+    ByteBuffer slice = match.toByteBuffer();
+    assertThat(slice.isReadOnly()).isTrue();
+    assertThat(slice.remaining()).isEqualTo(2);
+    assertThat(slice.get(0)).isEqualTo((byte) 'c');
+    assertThrows(IndexOutOfBoundsException.class, () -> match.byteAt(2));
+  }
+
+  @Test public void testNulls() {
+    NullPointerTester tester =
+        new NullPointerTester().setDefault(Utf8Substring.Pattern.class, first('a'));
+    tester.testAllPublicStaticMethods(Utf8Substring.class);
+    tester.testAllPublicInstanceMethods(first('a'));
+  }
+
+  private static byte[] bytes(String string) {
+    return string.getBytes(UTF_8);
+  }
+}
@@ -67,6 +67,22 @@ public class ShortestPathTest {
     assertThat(paths.get(1).stream().toMap()).isEqualTo(ImmutableMap.of("foo", 0D, "bar", 10D));
   }
 
+  @Test public void distances() {
+    addEdge("foo", "bar", 10);
+    addEdge("bar", "baz", 5);
+    ShortestPath<String> path =
+        shortestPathsFrom("foo", this::neighbors).skip(2).findFirst().get();
+    assertThat(path.distances().boxed().toMap())
+        .containsExactly("foo", 0D, "bar", 10D, "baz", 15D);
+    assertThat(path.distances().keys().collect(toList()))
+        .containsExactly("foo", "bar", "baz")
+        .inOrder();
+    assertThat(path.distances().values().max().getAsDouble()).isEqualTo(15D);
+    assertThat(path.distances().filterValues(d -> d >= 10).keys().collect(toList()))
+        .containsExactly("bar", "baz")
+        .inOrder();
+  }
+
   @Test public void threeNodesList() {
     addEdge("foo", "bar", 10);
     addEdge("bar", "baz", 5);
@@ -16,14 +16,22 @@ package com.google.mu.util.stream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.mu.util.stream.BiCollection.toBiCollection;
+import static com.google.mu.util.stream.BiStream.kv;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -85,6 +93,103 @@ public class BiCollectionTest {
         .inOrder();
   }
 
+  @Test public void toBiCollection_parallel() {
+    BiCollection<Integer, String> biCollection =
+        IntStream.range(0, 10000)
+            .boxed()
+            .parallel()
+            .collect(toBiCollection(i -> i, Object::toString));
+    assertThat(biCollection.size()).isEqualTo(10000);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(biCollection.left(i)).isEqualTo(i);
+      assertThat(biCollection.right(i)).isEqualTo(Integer.toString(i));
+    }
+  }
+
+  @Test public void toBiCollection_empty() {
+    assertThat(Stream.empty().collect(toBiCollection(x -> x, x -> x)))
+        .isSameAs(BiCollection.of());
+  }
+
+  @Test public void leftAndRight() {
+    BiCollection<String, Integer> biCollection = BiCollection.of("a", 1, "b", 2);
+    assertThat(biCollection.left(0)).isEqualTo("a");
+    assertThat(biCollection.right(0)).isEqualTo(1);
+    assertThat(biCollection.left(1)).isEqualTo("b");
+    assertThat(biCollection.right(1)).isEqualTo(2);
+    assertThrows(IndexOutOfBoundsException.class, () -> biCollection.left(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> biCollection.right(-1));
+  }
+
+  @Test public void stream_isSized() {
+    Spliterator<String> lefts = BiCollection.of("a", 1, "b", 2).stream().keys().spliterator();
+    assertThat(lefts.getExactSizeIfKnown()).isEqualTo(2);
+  }
+
+  @Test public void stream_parallel() {
+    BiCollection<Integer, Integer> biCollection =
+        IntStream.range(0, 10000).boxed().collect(toBiCollection(i -> i, i -> i * 2));
+    assertThat(biCollection.stream().parallel().mapToLong((l, r) -> r).sum())
+        .isEqualTo(9999L * 10000);
+    assertThat(biCollection.stream().parallel().keys().collect(toList()))
+        .containsExactlyElementsIn(IntStream.range(0, 10000).boxed().collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void stream_reStreamable() {
+    BiCollection<String, Integer> biCollection = BiCollection.of("a", 1, "b", 2);
+    assertKeyValues(biCollection).containsExactly("a", 1, "b", 2).inOrder();
+    assertKeyValues(biCollection).containsExactly("a", 1, "b", 2).inOrder();
+  }
+
+  @Test public void testHashCode_sameAsEntryList() {
+    assertThat(BiCollection.of().hashCode()).isEqualTo(ImmutableList.of().hashCode());
+    assertThat(BiCollection.of("a", 1, null, 2).hashCode())
+        .isEqualTo(asList(kv("a", 1), kv(null, 2)).hashCode());
+  }
+
+  @Test public void get_duplicateLefts() {
+    BiCollection<String, Integer> biCollection = BiCollection.of("k", 1, "j", 2, "k", 3);
+    assertThat(biCollection.get("k")).containsExactly(1, 3).inOrder();
+    assertThat(biCollection.get("j")).containsExactly(2);
+    assertThat(biCollection.get("x")).isEmpty();
+  }
+
+  @Test public void get_nullLeft() {
+    BiCollection<String, Integer> biCollection = BiCollection.of(null, 1, "a", 2, null, 3);
+    assertThat(biCollection.get(null)).containsExactly(1, 3).inOrder();
+    assertThat(BiCollection.of("a", 1).get(null)).isEmpty();
+  }
+
+  @Test public void get_empty() {
+    assertThat(BiCollection.of().get("a")).isEmpty();
+  }
+
+  @Test public void get_resultIsUnmodifiable() {
+    List<Integer> rights = BiCollection.of("a", 1).get("a");
+    assertThrows(UnsupportedOperationException.class, () -> rights.add(2));
+  }
+
+  @Test public void get_sameAsFilterKeys() {
+    BiCollection<Integer, Integer> biCollection =
+        IntStream.range(0, 10000).boxed().collect(toBiCollection(i -> i % 97, i -> i));
+    for (int left = 0; left < 100; left++) {
+      int key = left;
+      assertThat(biCollection.get(key))
+          .containsExactlyElementsIn(
+              biCollection.stream().filterKeys(k -> k == key).values().collect(toList()))
+          .inOrder();
+    }
+  }
+
+  @Test public void get_concurrentFirstLookups() {
+    BiCollection<Integer, Integer> biCollection =
+        IntStream.range(0, 1000).boxed().collect(toBiCollection(i -> i % 10, i -> i));
+    assertThat(
+            IntStream.range(0, 1000).parallel().map(i -> biCollection.get(i % 10).size()).sum())
+        .isEqualTo(100000);
+  }
+
   @Test public void testBuilder_add() {
     assertKeyValues(BiStream.builder().add("one", 1).build().collect(BiCollection::toBiCollection))
         .containsExactlyEntriesIn(ImmutableMultimap.of("one", 1))
@@ -94,7 +199,7 @@ public class BiCollectionTest {
   @Test public void testNulls() {
     NullPointerTester tester = new NullPointerTester();
     asList(BiCollection.class.getDeclaredMethods()).stream()
-        .filter(m -> m.getName().equals("of"))
+        .filter(m -> m.getName().equals("of") || m.getName().equals("get"))
         .forEach(tester::ignore);
     tester.testAllPublicStaticMethods(BiCollection.class);
     tester.testAllPublicInstanceMethods(BiCollection.of());
@@ -15,15 +15,34 @@
 package com.google.mu.util.stream;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.mu.util.stream.BiCollectors.countingBy;
+import static com.google.mu.util.stream.BiCollectors.countingByConcurrent;
 import static com.google.mu.util.stream.BiCollectors.groupingBy;
+import static com.google.mu.util.stream.BiCollectors.groupingByConcurrent;
+import static com.google.mu.util.stream.BiCollectors.summingDoubleBy;
+import static com.google.mu.util.stream.BiCollectors.summingLongBy;
+import static com.google.mu.util.stream.BiCollectors.summingLongByConcurrent;
+import static com.google.mu.util.stream.BiCollectors.toConcurrentMap;
 import static com.google.mu.util.stream.BiCollectors.toMap;
+import static com.google.mu.util.stream.BiCollectors.topK;
+import static com.google.mu.util.stream.BiCollectors.topKByKeys;
+import static com.google.mu.util.stream.BiCollectors.topKByValues;
 import static com.google.mu.util.stream.BiStream.biStream;
 import static com.google.mu.util.stream.BiStreamTest.assertKeyValues;
+import static java.util.Arrays.asList;
 import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.summingInt;
 import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collector.Characteristics;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,6 +52,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.mu.function.BiComparator;
 import com.google.mu.util.BiOptional;
 
 @RunWith(JUnit4.class)
@@ -253,6 +273,219 @@ public class BiCollectorsTest {
         .inOrder();
   }
 
+  @Test public void testCountingBy() {
+    ImmutableList<Town> towns =
+        ImmutableList.of(new Town("WA", 100), new Town("WA", 50), new Town("IL", 200));
+    Map<String, Long> counts =
+        BiStream.from(towns, Town::getState, town -> town).collect(countingBy(s -> s));
+    assertThat(counts).containsExactly("WA", 2L, "IL", 1L);
+  }
+
+  @Test public void testCountingBy_nullGroup() {
+    Map<String, Long> counts =
+        BiStream.of("a", 1, "b", 2, "c", 3).collect(countingBy(k -> k.equals("b") ? k : null));
+    assertThat(counts).containsExactly("b", 1L, null, 2L);
+    assertThat(counts.get(null)).isEqualTo(2L);
+    assertThat(counts.get("x")).isNull();
+  }
+
+  @Test public void testCountingBy_readOnly() {
+    Map<String, Long> counts = BiStream.of("a", 1).collect(countingBy(k -> k));
+    assertThrows(UnsupportedOperationException.class, () -> counts.put("b", 1L));
+    assertThrows(UnsupportedOperationException.class, () -> counts.remove("a"));
+    assertThrows(UnsupportedOperationException.class, () -> counts.keySet().clear());
+    assertThat(counts).containsExactly("a", 1L);
+  }
+
+  @Test public void testSummingLongBy() {
+    ImmutableList<Town> towns =
+        ImmutableList.of(new Town("WA", 100), new Town("WA", 50), new Town("IL", 200));
+    assertThat(
+            BiStream.from(towns, Town::getState, town -> town)
+                .collect(summingLongBy(s -> s, Town::getPopulation)))
+        .containsExactly("WA", 150L, "IL", 200L);
+  }
+
+  @Test public void testSummingLongBy_highCardinality_parallel() {
+    Map<Integer, Long> sums =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 30000, i -> i)
+            .parallel()
+            .collect(summingLongBy(k -> k, v -> v));
+    Map<Integer, Long> expected =
+        IntStream.range(0, 100000)
+            .boxed()
+            .collect(Collectors.groupingBy(i -> i % 30000, Collectors.summingLong(i -> i)));
+    assertThat(sums).hasSize(30000);
+    assertThat(sums).isEqualTo(expected);
+    assertThat(sums.hashCode()).isEqualTo(expected.hashCode());
+  }
+
+  @Test public void testSummingDoubleBy() {
+    ImmutableList<Town> towns =
+        ImmutableList.of(new Town("WA", 100), new Town("WA", 50), new Town("IL", 200));
+    assertThat(
+            BiStream.from(towns, Town::getState, town -> town)
+                .collect(summingDoubleBy(s -> s, town -> town.getPopulation() / 2D)))
+        .containsExactly("WA", 75D, "IL", 100D);
+  }
+
+  @Test public void testSummingDoubleBy_empty() {
+    assertThat(BiStream.<String, Integer>empty().collect(summingDoubleBy(k -> k, v -> v)))
+        .isEmpty();
+  }
+
+  @Test public void testToConcurrentMap() {
+    ConcurrentMap<String, Integer> map = BiStream.of("a", 1, "b", 2).collect(toConcurrentMap());
+    assertThat(map).containsExactly("a", 1, "b", 2);
+  }
+
+  @Test public void testToConcurrentMap_duplicateKeys() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> BiStream.of("a", 1, "a", 2).collect(toConcurrentMap()));
+  }
+
+  @Test public void testToConcurrentMap_withMerger_parallel() {
+    ConcurrentMap<Integer, Integer> map =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 100, i -> 1)
+            .parallel()
+            .collect(toConcurrentMap(Integer::sum));
+    assertThat(map).hasSize(100);
+    assertThat(map.values()).containsExactlyElementsIn(nCopies(100, 1000));
+  }
+
+  @Test public void testToConcurrentMap_isConcurrent() {
+    assertThat(
+            BiCollectors.<String, Integer>toConcurrentMap()
+                .<Map.Entry<String, Integer>>splitting(Map.Entry::getKey, Map.Entry::getValue)
+                .characteristics())
+        .containsAllOf(Characteristics.CONCURRENT, Characteristics.UNORDERED);
+  }
+
+  @Test public void testCountingByConcurrent() {
+    ImmutableList<Town> towns =
+        ImmutableList.of(new Town("WA", 100), new Town("WA", 50), new Town("IL", 200));
+    Map<String, Long> counts =
+        BiStream.from(towns, Town::getState, town -> town).collect(countingByConcurrent(s -> s));
+    assertThat(counts).containsExactly("WA", 2L, "IL", 1L);
+  }
+
+  @Test public void testCountingByConcurrent_parallel() {
+    Map<Integer, Long> counts =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 7, i -> i)
+            .parallel()
+            .collect(countingByConcurrent(k -> k));
+    assertThat(counts).hasSize(7);
+    assertThat(counts.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(100000);
+    assertThat(counts)
+        .isEqualTo(
+            IntStream.range(0, 100000)
+                .boxed()
+                .collect(Collectors.groupingBy(i -> i % 7, Collectors.counting())));
+  }
+
+  @Test public void testCountingByConcurrent_isConcurrent() {
+    assertThat(
+            BiCollectors.<String, Integer, String>countingByConcurrent(k -> k)
+                .<Map.Entry<String, Integer>>splitting(Map.Entry::getKey, Map.Entry::getValue)
+                .characteristics())
+        .containsExactly(Characteristics.CONCURRENT, Characteristics.UNORDERED);
+  }
+
+  @Test public void testCountingByConcurrent_nullGroup() {
+    assertThrows(
+        NullPointerException.class,
+        () -> BiStream.of("a", 1).collect(countingByConcurrent(k -> null)));
+  }
+
+  @Test public void testSummingLongByConcurrent_highCardinality_parallel() {
+    Map<Integer, Long> sums =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 30000, i -> i)
+            .parallel()
+            .collect(summingLongByConcurrent(k -> k, v -> v));
+    Map<Integer, Long> expected =
+        IntStream.range(0, 100000)
+            .boxed()
+            .collect(Collectors.groupingBy(i -> i % 30000, Collectors.summingLong(i -> i)));
+    assertThat(sums).isEqualTo(expected);
+  }
+
+  @Test public void testGroupingByConcurrent_withCollector() {
+    ConcurrentMap<String, List<Integer>> groups =
+        BiStream.of("a", 1, "b", 2, "a", 3).collect(groupingByConcurrent(k -> k, toList()));
+    assertThat(groups).containsExactly("a", asList(1, 3), "b", asList(2));
+  }
+
+  @Test public void testGroupingByConcurrent_withCollector_parallel() {
+    ConcurrentMap<Integer, Long> groups =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 10, i -> i)
+            .parallel()
+            .collect(groupingByConcurrent(k -> k, Collectors.counting()));
+    assertThat(groups.values()).containsExactlyElementsIn(nCopies(10, 10000L));
+  }
+
+  @Test public void testGroupingByConcurrent_withReducer_parallel() {
+    ConcurrentMap<Integer, Integer> sums =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i % 10, i -> 1)
+            .parallel()
+            .collect(groupingByConcurrent(k -> k, Integer::sum));
+    assertThat(sums.values()).containsExactlyElementsIn(nCopies(10, 10000));
+  }
+
+  @Test public void testGroupingByConcurrent_withReducer_isConcurrent() {
+    assertThat(
+            BiCollectors.<String, Integer, String>groupingByConcurrent(k -> k, Integer::sum)
+                .<Map.Entry<String, Integer>>splitting(Map.Entry::getKey, Map.Entry::getValue)
+                .characteristics())
+        .containsAllOf(Characteristics.CONCURRENT, Characteristics.UNORDERED);
+  }
+
+  @Test public void testTopK() {
+    assertKeyValues(
+            BiStream.of("a", 3, "b", 5, "c", 1)
+                .collect(topK(2, BiComparator.comparingValue(Comparator.reverseOrder()))))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("b", 5, "a", 3))
+        .inOrder();
+  }
+
+  @Test public void testTopKByKeys() {
+    assertKeyValues(
+            BiStream.of("b", 1, "c", 2, "a", 3).collect(topKByKeys(2, Comparator.naturalOrder())))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("a", 3, "b", 1))
+        .inOrder();
+  }
+
+  @Test public void testTopKByValues_parallel() {
+    BiStream<Integer, Integer> top =
+        BiStream.from(IntStream.range(0, 100000).boxed(), i -> i, i -> -i)
+            .parallel()
+            .collect(topKByValues(3, Comparator.naturalOrder()));
+    assertKeyValues(top)
+        .containsExactlyEntriesIn(
+            ImmutableListMultimap.of(99999, -99999, 99998, -99998, 99997, -99997))
+        .inOrder();
+  }
+
+  @Test public void testTopKByValues_zippedStreams() {
+    BiStream<String, Integer> top =
+        BiStream.zip(Stream.of("a", "b", "c", "d"), Stream.of(3, 1, 2, 5))
+            .collect(topKByValues(2, Comparator.naturalOrder()));
+    assertKeyValues(top).containsExactly("b", 1, "c", 2).inOrder();
+  }
+
+  @Test public void testTopKByValues_fusedPipeline() {
+    BiStream<String, Integer> top =
+        BiStream.from(ImmutableMap.of("a", 3, "b", 1, "c", 2, "d", 5))
+            .mapValues(v -> v * 10)
+            .filter((k, v) -> !k.equals("b"))
+            .collect(topKByValues(2, Comparator.naturalOrder()));
+    assertKeyValues(top).containsExactly("c", 20, "a", 30).inOrder();
+  }
+
+  @Test public void testTopK_negative() {
+    assertThrows(IllegalArgumentException.class, () -> topKByKeys(-1, Comparator.naturalOrder()));
+  }
+
   private static final class Town {
     private final String state;
     private final int population;
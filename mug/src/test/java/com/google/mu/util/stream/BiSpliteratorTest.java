@@ -0,0 +1,283 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(JUnit4.class)
+public class BiSpliteratorTest {
+  @Test public void of_tryAdvance() {
+    BiSpliterator<String, Integer> pairs =
+        BiSpliterator.of(asList(1, 2).spliterator(), Object::toString, identity());
+    List<String> result = new ArrayList<>();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k + "=" + v))).isTrue();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k + "=" + v))).isTrue();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k + "=" + v))).isFalse();
+    assertThat(result).containsExactly("1=1", "2=2").inOrder();
+  }
+
+  @Test public void of_forEachRemaining() {
+    BiSpliterator<String, Integer> pairs =
+        BiSpliterator.of(asList(1, 2, 3).spliterator(), Object::toString, i -> i * 10);
+    assertThat(toList(pairs)).containsExactly("1=10", "2=20", "3=30").inOrder();
+  }
+
+  @Test public void of_functionsInvokedOncePerElement() {
+    List<Integer> keyed = new ArrayList<>();
+    List<Integer> valued = new ArrayList<>();
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(
+            asList(1, 2).spliterator(),
+            i -> {
+              keyed.add(i);
+              return i;
+            },
+            i -> {
+              valued.add(i);
+              return i;
+            });
+    assertThat(toList(pairs.filter((k, v) -> true).map((k, v) -> k, (k, v) -> v)))
+        .containsExactly("1=1", "2=2")
+        .inOrder();
+    assertThat(keyed).containsExactly(1, 2).inOrder();
+    assertThat(valued).containsExactly(1, 2).inOrder();
+  }
+
+  @Test public void of_sizedSourceIsSized() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2, 3).spliterator(), identity(), identity());
+    assertThat(pairs.estimateSize()).isEqualTo(3);
+    assertThat(pairs.characteristics() & Spliterator.SIZED).isEqualTo(Spliterator.SIZED);
+  }
+
+  @Test public void ofArrays_readsRange() {
+    BiSpliterator<String, Integer> pairs =
+        BiSpliterator.ofArrays(new Object[] {"a", "b", "c", "d"}, new Object[] {1, 2, 3, 4}, 1, 3);
+    assertThat(pairs.estimateSize()).isEqualTo(2);
+    assertThat(toList(pairs)).containsExactly("b=2", "c=3").inOrder();
+    assertThat(pairs.estimateSize()).isEqualTo(0);
+  }
+
+  @Test public void ofArrays_split() {
+    BiSpliterator<String, Integer> pairs =
+        BiSpliterator.ofArrays(new Object[] {"a", "b", "c"}, new Object[] {1, 2, 3}, 0, 3);
+    BiSpliterator<String, Integer> prefix = pairs.trySplit();
+    assertThat(prefix.characteristics() & Spliterator.SUBSIZED).isEqualTo(Spliterator.SUBSIZED);
+    assertThat(toList(prefix)).containsExactly("a=1");
+    assertThat(toList(pairs)).containsExactly("b=2", "c=3").inOrder();
+  }
+
+  @Test public void filter() {
+    BiSpliterator<Integer, String> pairs =
+        BiSpliterator.of(asList(1, 2, 3, 4).spliterator(), identity(), Object::toString)
+            .filter((k, v) -> k % 2 == 0);
+    assertThat(toList(pairs)).containsExactly("2=2", "4=4").inOrder();
+  }
+
+  @Test public void filter_tryAdvanceSkipsUnmatchedPairs() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2, 3).spliterator(), identity(), identity())
+            .filter((k, v) -> k > 1);
+    List<Integer> result = new ArrayList<>();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k))).isTrue();
+    assertThat(result).containsExactly(2);
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k))).isTrue();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k))).isFalse();
+    assertThat(result).containsExactly(2, 3).inOrder();
+  }
+
+  @Test public void filter_isNotSized() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2, 3).spliterator(), identity(), identity())
+            .filter((k, v) -> true);
+    assertThat(pairs.characteristics() & Spliterator.SIZED).isEqualTo(0);
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), i -> i * 2)
+            .peek((k, v) -> peeked.add(k + ":" + v));
+    assertThat(toList(pairs)).containsExactly("1=2", "2=4").inOrder();
+    assertThat(peeked).containsExactly("1:2", "2:4").inOrder();
+  }
+
+  @Test public void map() {
+    BiSpliterator<String, Integer> pairs =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), identity())
+            .map((k, v) -> "k" + k, (k, v) -> k + v);
+    assertThat(toList(pairs)).containsExactly("k1=2", "k2=4").inOrder();
+  }
+
+  @Test public void trySplit_preservesStages() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2, 3, 4).spliterator(), identity(), identity())
+            .map((k, v) -> k, (k, v) -> v * 10)
+            .filter((k, v) -> k != 3);
+    BiSpliterator<Integer, Integer> prefix = pairs.trySplit();
+    assertThat(toList(prefix)).containsExactly("1=10", "2=20").inOrder();
+    assertThat(toList(pairs)).containsExactly("4=40");
+  }
+
+  @Test public void mapToObj() {
+    Spliterator<String> spliterator =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), identity())
+            .mapToObj((k, v) -> k + "+" + v);
+    List<String> result = new ArrayList<>();
+    spliterator.forEachRemaining(result::add);
+    assertThat(result).containsExactly("1+1", "2+2").inOrder();
+  }
+
+  @Test public void mapToInt() {
+    Spliterator.OfInt spliterator =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), identity())
+            .mapToInt((k, v) -> k + v);
+    List<Integer> result = new ArrayList<>();
+    spliterator.forEachRemaining((int i) -> result.add(i));
+    assertThat(result).containsExactly(2, 4).inOrder();
+  }
+
+  @Test public void pairs_reusesPairPerSplit() {
+    Spliterator<BiSpliterator.Pair<Integer, String>> spliterator =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), Object::toString).pairs();
+    List<String> result = new ArrayList<>();
+    List<Object> instances = new ArrayList<>();
+    spliterator.forEachRemaining(
+        pair -> {
+          result.add(pair.key() + "=" + pair.value());
+          instances.add(pair);
+        });
+    assertThat(result).containsExactly("1=1", "2=2").inOrder();
+    assertThat(instances.get(0)).isSameAs(instances.get(1));
+  }
+
+  @Test public void join_tryAdvanceThenForEachRemaining() {
+    Map<Integer, List<String>> index = ImmutableMap.of(1, asList("x", "y", "z"));
+    BiSpliterator<Integer, String> pairs =
+        BiSpliterator.of(asList(1, 2, 1).spliterator(), identity(), i -> "v" + i)
+            .join(index, (v, r) -> v + r, false);
+    List<String> result = new ArrayList<>();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k + "=" + v))).isTrue();
+    assertThat(result).containsExactly("1=v1x");
+    assertThat(toList(pairs))
+        .containsExactly("1=v1y", "1=v1z", "1=v1x", "1=v1y", "1=v1z")
+        .inOrder();
+    assertThat(pairs.tryAdvance((k, v) -> result.add(k + "=" + v))).isFalse();
+  }
+
+  @Test public void join_keepUnmatched() {
+    Map<Integer, List<String>> index = ImmutableMap.of(1, asList("x"));
+    BiSpliterator<Integer, String> pairs =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), i -> "v" + i)
+            .join(index, (v, r) -> v + r, true);
+    assertThat(toList(pairs)).containsExactly("1=v1x", "2=v2null").inOrder();
+  }
+
+  @Test public void join_notSized() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.of(asList(1, 2).spliterator(), identity(), identity())
+            .join(ImmutableMap.of(), (v, r) -> v, false);
+    assertThat(pairs.characteristics() & Spliterator.SIZED).isEqualTo(0);
+  }
+
+  @Test public void mergeSorted_interleaves() {
+    BiSpliterator<Integer, String> pairs =
+        BiSpliterator.mergeSorted(
+            asList(
+                BiSpliterator.of(asList(1, 4, 6).spliterator(), identity(), i -> "a"),
+                BiSpliterator.of(asList(2, 3, 7).spliterator(), identity(), i -> "b")),
+            Comparator.naturalOrder(),
+            null);
+    assertThat(pairs.estimateSize()).isEqualTo(6);
+    assertThat(toList(pairs))
+        .containsExactly("1=a", "2=b", "3=b", "4=a", "6=a", "7=b")
+        .inOrder();
+    assertThat(pairs.estimateSize()).isEqualTo(0);
+  }
+
+  @Test public void mergeSorted_combinesEqualKeys() {
+    BiSpliterator<Integer, String> pairs =
+        BiSpliterator.mergeSorted(
+            asList(
+                BiSpliterator.of(asList(1, 2, 2).spliterator(), identity(), i -> "a"),
+                BiSpliterator.of(asList(2, 3).spliterator(), identity(), i -> "b")),
+            Comparator.naturalOrder(),
+            String::concat);
+    assertThat(toList(pairs)).containsExactly("1=a", "2=aab", "3=b").inOrder();
+  }
+
+  @Test public void mergeSorted_notSplittable() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.mergeSorted(
+            asList(BiSpliterator.of(asList(1, 2).spliterator(), identity(), identity())),
+            Comparator.naturalOrder(),
+            null);
+    assertThat(pairs.trySplit()).isNull();
+    assertThat(pairs.characteristics()).isEqualTo(Spliterator.ORDERED);
+  }
+
+  @Test public void adjacentPairs_estimatedSize() {
+    BiSpliterator<Integer, Integer> pairs =
+        BiSpliterator.adjacentPairs(asList(1, 2, 3).spliterator());
+    assertThat(pairs.estimateSize()).isEqualTo(2);
+    assertThat(pairs.characteristics() & Spliterator.SIZED).isEqualTo(Spliterator.SIZED);
+    assertThat(pairs.trySplit()).isNull();
+    assertThat(toList(pairs)).containsExactly("1=2", "2=3").inOrder();
+    assertThat(pairs.estimateSize()).isEqualTo(0);
+  }
+
+  @Test public void slidingWindows_estimatedSize() {
+    Spliterator<Long> windows =
+        BiSpliterator.of(asList(1, 2, 3, 4).spliterator(), identity(), identity())
+            .windows(3, 1, BiCollectors.counting());
+    assertThat(windows.estimateSize()).isEqualTo(2);
+    assertThat(windows.tryAdvance(w -> {})).isTrue();
+    assertThat(windows.estimateSize()).isEqualTo(1);
+    assertThat(windows.tryAdvance(w -> {})).isTrue();
+    assertThat(windows.estimateSize()).isEqualTo(0);
+    assertThat(windows.tryAdvance(w -> {})).isFalse();
+  }
+
+  @Test public void tumblingWindows_estimatedSize() {
+    Spliterator<Long> windows =
+        BiSpliterator.of(asList(1, 2, 3, 4, 5).spliterator(), identity(), identity())
+            .windows(2, 2, BiCollectors.counting());
+    assertThat(windows.estimateSize()).isEqualTo(3);
+    List<Long> sizes = new ArrayList<>();
+    windows.forEachRemaining(sizes::add);
+    assertThat(sizes).containsExactly(2L, 2L, 1L).inOrder();
+    assertThat(windows.estimateSize()).isEqualTo(0);
+  }
+
+  private static List<String> toList(BiSpliterator<?, ?> pairs) {
+    List<String> result = new ArrayList<>();
+    pairs.forEachRemaining((k, v) -> result.add(k + "=" + v));
+    return result;
+  }
+}
@@ -1014,6 +1014,27 @@ public class BiStreamInvariantsTest {
         return BiStream.zip(Stream.of(k1, k2, k3), Stream.of(v1, v2, v3));
       }
     },
+    FROM_ZIPPED_STREAMS {
+      @Override
+      <K, V> BiStream<K, V> newBiStream() {
+        return BiStream.zip(Stream.empty(), Stream.empty());
+      }
+
+      @Override
+      <K, V> BiStream<K, V> newBiStream(K key, V value) {
+        return BiStream.zip(Stream.of(key), Stream.of(value));
+      }
+
+      @Override
+      <K, V> BiStream<K, V> newBiStream(K k1, V v1, K k2, V v2) {
+        return BiStream.zip(Stream.of(k1, k2), Stream.of(v1, v2));
+      }
+
+      @Override
+      <K, V> BiStream<K, V> newBiStream(K k1, V v1, K k2, V v2, K k3, V v3) {
+        return BiStream.zip(Stream.of(k1, k2, k3), Stream.of(v1, v2, v3));
+      }
+    },
     ;
 
     abstract <K, V> BiStream<K, V> newBiStream();
@@ -1036,7 +1057,7 @@ public class BiStreamInvariantsTest {
     PARALLEL_THEN_SEQUENTIAL {
       @Override
       <K, V> BiStream<K, V> wrap(BiStream<K, V> stream) {
-        return BiStream.fromEntries(stream.mapToEntry().parallel().sequential());
+        return stream.parallel().sequential();
       }
     },
     INVERSE_OF_INVERSE {
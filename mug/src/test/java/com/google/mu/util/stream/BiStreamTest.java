@@ -27,11 +27,15 @@ import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -56,6 +60,7 @@ import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.truth.IterableSubject;
 import com.google.common.truth.MultimapSubject;
+import com.google.mu.function.BiComparator;
 import com.google.mu.util.BiOptional;
 import com.google.mu.util.Substring;
 
@@ -163,6 +168,80 @@ public class BiStreamTest {
         .inOrder();
   }
 
+  @Test public void testConsecutiveRunsFrom_sequential_estimatesSizeFromInput() {
+    Spliterator<?> runs =
+        BiStream.consecutiveRunsFrom(asList(1, 1, 2).stream()).mapToEntry().spliterator();
+    assertThat(runs.estimateSize()).isEqualTo(3);
+    assertThat(runs.tryAdvance(run -> {})).isTrue();
+    assertThat(runs.estimateSize()).isEqualTo(1);
+    assertThat(runs.tryAdvance(run -> {})).isTrue();
+    assertThat(runs.estimateSize()).isEqualTo(0);
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_sameAsSequential() {
+    BiStream<Integer, Long> sequential =
+        BiStream.consecutiveRunsFrom(IntStream.range(0, 100000).map(i -> i / 37 % 5).boxed());
+    BiStream<Integer, Long> parallel =
+        BiStream.consecutiveRunsFrom(
+            IntStream.range(0, 100000).map(i -> i / 37 % 5).boxed().parallel());
+    assertThat(parallel.isParallel()).isTrue();
+    assertThat(parallel.mapToObj((k, v) -> k + ":" + v).collect(toList()))
+        .containsExactlyElementsIn(sequential.mapToObj((k, v) -> k + ":" + v).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_runSpansAllSegments() {
+    assertKeyValues(BiStream.consecutiveRunsFrom(Collections.nCopies(100000, 'x').parallelStream()))
+        .containsExactly('x', 100000L);
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_runsStitchedInOrder() {
+    List<List<Integer>> runs =
+        BiStream.consecutiveRunsFrom(
+                IntStream.range(0, 10000).boxed().parallel(), i -> i / 1000, toList())
+            .values()
+            .collect(toList());
+    assertThat(runs).hasSize(10);
+    for (int i = 0; i < 10; i++) {
+      assertThat(runs.get(i))
+          .containsExactlyElementsIn(
+              IntStream.range(i * 1000, i * 1000 + 1000).boxed().collect(toList()))
+          .inOrder();
+    }
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_sized() {
+    Spliterator<?> runs =
+        BiStream.consecutiveRunsFrom(Stream.of(1, 1, 2, 2, 1).parallel())
+            .mapToEntry()
+            .spliterator();
+    assertThat(runs.hasCharacteristics(Spliterator.SIZED)).isTrue();
+    assertThat(runs.estimateSize()).isEqualTo(3);
+  }
+
+  @Test public void testConsecutiveRunsFrom_sequential_closeClosesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<Integer> source = Stream.of(1, 1, 2).onClose(() -> closed.set(true));
+    try (BiStream<Integer, Long> runs = BiStream.consecutiveRunsFrom(source)) {
+      assertThat(closed.get()).isFalse();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_closeClosesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<Integer> source = Stream.of(1, 1, 2).parallel().onClose(() -> closed.set(true));
+    try (BiStream<Integer, Long> runs = BiStream.consecutiveRunsFrom(source)) {
+      assertKeyValues(runs).containsExactly(1, 2L, 2, 1L).inOrder();
+      assertThat(closed.get()).isFalse();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testConsecutiveRunsFrom_parallel_empty() {
+    assertKeyValues(BiStream.consecutiveRunsFrom(Stream.empty().parallel())).isEmpty();
+  }
+
   @Test public void testZip_bothEmpty() {
     assertKeyValues(BiStream.zip(ImmutableList.of(), ImmutableList.of())).isEmpty();
   }
@@ -228,6 +307,554 @@ public class BiStreamTest {
     assertThat(zipped).containsExactly("1:one", "2:two", "3:three").inOrder();
   }
 
+  @Test public void testZip_randomAccessLists_parallel() {
+    List<Integer> numbers = IntStream.range(0, 10000).boxed().collect(toList());
+    List<String> names = numbers.stream().map(Object::toString).collect(toList());
+    BiStream<Integer, String> zipped = BiStream.zip(numbers, names).parallel();
+    assertThat(zipped.isParallel()).isTrue();
+    assertThat(zipped.mapToObj((i, s) -> i + ":" + s).collect(toList()))
+        .containsExactlyElementsIn(numbers.stream().map(i -> i + ":" + i).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testZip_randomAccessLists_parallelCollect() {
+    List<Integer> numbers = IntStream.range(0, 10000).boxed().collect(toList());
+    List<Integer> squares = numbers.stream().map(i -> i * i).collect(toList());
+    Map<Integer, Integer> map = BiStream.zip(numbers, squares).parallel().collect(toMap());
+    assertThat(map).hasSize(10000);
+    assertThat(map).containsEntry(99, 9801);
+  }
+
+  @Test public void testZip_randomAccessLists_isSplittable() {
+    Spliterator<String> spliterator =
+        BiStream.zip(asList(1, 2, 3, 4), asList("a", "b", "c", "d"))
+            .parallel()
+            .mapToObj((i, s) -> i + s)
+            .spliterator();
+    assertThat(spliterator.estimateSize()).isEqualTo(4);
+    Spliterator<String> prefix = spliterator.trySplit();
+    assertThat(prefix.estimateSize()).isEqualTo(2);
+    assertThat(spliterator.estimateSize()).isEqualTo(2);
+  }
+
+  @Test public void testZip_randomAccessLists_unevenSizes_parallel() {
+    List<Integer> numbers = IntStream.range(0, 1000).boxed().collect(toList());
+    assertThat(BiStream.zip(numbers, numbers.subList(0, 10)).parallel().count()).isEqualTo(10);
+    assertThat(BiStream.zip(numbers.subList(0, 10), numbers).parallel().count()).isEqualTo(10);
+  }
+
+  @Test public void testZip_randomAccessLists_lateBinding() {
+    List<Integer> numbers = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    BiStream<Integer, String> zipped = BiStream.zip(numbers, names);
+    numbers.add(1);
+    names.add("one");
+    assertKeyValues(zipped).containsExactly(1, "one");
+  }
+
+  @Test public void testZip_streams_parallel() {
+    List<Integer> numbers = IntStream.range(0, 10000).boxed().collect(toList());
+    BiStream<Integer, Integer> zipped = BiStream.zip(numbers.stream(), numbers.stream()).parallel();
+    assertThat(zipped.isParallel()).isTrue();
+    assertThat(zipped.mapToObj(Integer::sum).collect(toList()))
+        .containsExactlyElementsIn(numbers.stream().map(i -> i * 2).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testParallel_fromMap() {
+    Map<Integer, Integer> map =
+        IntStream.range(0, 10000).boxed().collect(Collectors.toMap(i -> i, i -> i));
+    BiStream<Integer, Integer> stream = BiStream.from(map).parallel();
+    assertThat(stream.isParallel()).isTrue();
+    assertThat(stream.mapValues(v -> v + 1).collect(toMap())).hasSize(10000);
+  }
+
+  @Test public void testParallel_preservesEncounterOrderForCollectIntoContainer() {
+    List<Integer> numbers = IntStream.range(0, 1000).boxed().collect(toList());
+    List<Integer> collected =
+        BiStream.zip(numbers, numbers).parallel().collect(new ArrayList<>(), (l, k, v) -> l.add(k));
+    assertThat(collected).containsExactlyElementsIn(numbers).inOrder();
+  }
+
+  @Test public void testSequential() {
+    BiStream<Integer, String> stream = BiStream.of(1, "one", 2, "two").parallel().sequential();
+    assertThat(stream.isParallel()).isFalse();
+    assertSequential(stream.mapToObj((i, s) -> i + s)).containsExactly("1one", "2two").inOrder();
+  }
+
+  @Test public void testIsParallel_defaultsToFalse() {
+    assertThat(BiStream.of(1, "one").isParallel()).isFalse();
+    assertThat(BiStream.zip(Stream.of(1), Stream.of("one")).isParallel()).isFalse();
+    assertThat(BiStream.zip(asList(1), asList("one")).isParallel()).isFalse();
+  }
+
+  @Test public void testFusedPipeline_mapValuesThenFilter() {
+    Map<String, Integer> map = ImmutableMap.of("one", 1, "two", 2, "three", 3);
+    assertKeyValues(BiStream.from(map).mapValues(v -> v * 10).filter((k, v) -> v > 10))
+        .containsExactly("two", 20, "three", 30)
+        .inOrder();
+  }
+
+  @Test public void testFusedPipeline_chainedStages() {
+    Map<String, Integer> map = ImmutableMap.of("one", 1, "two", 2, "three", 3);
+    List<String> peeked = new ArrayList<>();
+    Map<Integer, Integer> result =
+        BiStream.from(map)
+            .mapKeys(String::length)
+            .filter((k, v) -> v != 2)
+            .peek((k, v) -> peeked.add(k + ":" + v))
+            .mapValues((k, v) -> k * v)
+            .filterKeys(k -> k > 0)
+            .toMap();
+    assertThat(result).containsExactly(3, 3, 5, 15);
+    assertThat(peeked).containsExactly("3:1", "5:3").inOrder();
+  }
+
+  @Test public void testFusedPipeline_inverse() {
+    BiStream<String, Integer> stream =
+        BiStream.from(ImmutableMap.of("one", 1)).mapValues(v -> v + 1).peek((k, v) -> {});
+    assertKeyValues(stream.inverse()).containsExactly(2, "one");
+  }
+
+  @Test public void testFusedPipeline_primitiveStreams() {
+    BiStream<String, Integer> filtered =
+        BiStream.from(ImmutableMap.of("a", 1, "bb", 2))
+            .mapValues(v -> v * 2)
+            .filter((k, v) -> true);
+    assertThat(filtered.mapToInt((k, v) -> k.length() + v).sum()).isEqualTo(9);
+  }
+
+  @Test public void testFusedPipeline_parallel() {
+    Map<Integer, Integer> map =
+        IntStream.range(0, 10000).boxed().collect(Collectors.toMap(i -> i, i -> i));
+    BiStream<Integer, Integer> stream =
+        BiStream.from(map).mapValues(v -> v * 2).filter((k, v) -> k % 2 == 0).parallel();
+    assertThat(stream.isParallel()).isTrue();
+    Map<Integer, Integer> result = stream.collect(toMap());
+    assertThat(result).hasSize(5000);
+    assertThat(result).containsEntry(100, 200);
+  }
+
+  @Test public void testDistinctKeys() {
+    assertKeyValues(
+            BiStream.zip(asList(1, 2, 1, 3), asList("one", "two", "uno", "three")).distinctKeys())
+        .containsExactly(1, "one", 2, "two", 3, "three")
+        .inOrder();
+  }
+
+  @Test public void testDistinctKeys_nullKey() {
+    assertKeyValues(BiStream.of(null, "a", 1, "b", null, "c").distinctKeys())
+        .containsExactly(null, "a", 1, "b")
+        .inOrder();
+  }
+
+  @Test public void testDistinctKeys_parallel() {
+    Map<Integer, Integer> result =
+        BiStream.from(IntStream.range(0, 100000).boxed().parallel(), i -> i % 1000, i -> i)
+            .distinctKeys()
+            .collect(toMap());
+    assertThat(result).hasSize(1000);
+    BiStream.from(result).forEach((k, v) -> assertThat(v % 1000).isEqualTo(k));
+  }
+
+  @Test public void testDistinctBy() {
+    assertKeyValues(
+            BiStream.zip(asList("a", "b", "a", "a"), asList(1, 2, 2, 1))
+                .distinctBy((k, v) -> k + v))
+        .containsExactly("a", 1, "b", 2, "a", 2)
+        .inOrder();
+  }
+
+  @Test public void testDistinctBy_isLazy() {
+    List<Integer> evaluated = new ArrayList<>();
+    BiStream<Integer, Integer> stream =
+        BiStream.from(Stream.of(1, 2, 1, 3), identity(), identity())
+            .distinctBy((k, v) -> { evaluated.add(k); return k; });
+    assertThat(evaluated).isEmpty();
+    assertThat(stream.limit(2).keys().collect(toList())).containsExactly(1, 2).inOrder();
+    assertThat(evaluated).containsExactly(1, 2).inOrder();
+  }
+
+  @Test public void testDistinctBy_recentMemory() {
+    assertKeyValues(
+            BiStream.from(Stream.of(1, 2, 1, 3, 4, 1, 4), identity(), Object::toString)
+                .distinctBy((k, v) -> k, DistinctMemory.recent(2)))
+        .containsExactly(1, "1", 2, "2", 3, "3", 4, "4", 1, "1")
+        .inOrder();
+  }
+
+  @Test public void testDistinctBy_approximateMemory() {
+    long count =
+        BiStream.from(IntStream.range(0, 20000).boxed(), i -> i % 5000, i -> i)
+            .distinctBy((k, v) -> k, DistinctMemory.approximate(5000, 0.01))
+            .count();
+    assertThat(count).isAtMost(5000L);
+    assertThat(count).isAtLeast(4800L);
+  }
+
+  @Test public void testDistinctBy_splitAfterTraversalStarted() {
+    Spliterator<Integer> spliterator =
+        BiStream.from(IntStream.range(0, 1000).boxed().collect(toList()), i -> i % 10, i -> i)
+            .distinctKeys()
+            .keys()
+            .spliterator();
+    List<Integer> keys = new ArrayList<>();
+    spliterator.tryAdvance(keys::add);
+    Spliterator<Integer> prefix = spliterator.trySplit();
+    assertThat(prefix).isNotNull();
+    prefix.forEachRemaining(keys::add);
+    spliterator.forEachRemaining(keys::add);
+    assertThat(keys).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  @Test public void testDistinctBy_nullChecks() {
+    assertThrows(NullPointerException.class, () -> BiStream.of(1, 2).distinctBy(null));
+    assertThrows(
+        NullPointerException.class, () -> BiStream.of(1, 2).distinctBy((k, v) -> k, null));
+  }
+
+  @Test public void testFusedPipeline_collectorRetainsElements() {
+    assertThat(
+            BiStream.from(asList("a", "bb", "ccc"), s -> s, String::length)
+                .filter((k, v) -> true)
+                .collect(retainingToStrings()))
+        .containsExactly("a=1", "bb=2", "ccc=3")
+        .inOrder();
+  }
+
+  @Test public void testFusedPipeline_collectToBiStream() {
+    assertThat(
+            BiStream.from(asList("a", "bb", "ccc"), s -> s, String::length)
+                .filter((k, v) -> true)
+                .mapValues(v -> v * 10)
+                .collect(BiStream::toBiStream)
+                .toMap())
+        .containsExactly("a", 10, "bb", 20, "ccc", 30);
+  }
+
+  @Test public void testFusedPipeline_parallel_collectorRetainsElements() {
+    List<String> keys = IntStream.range(0, 1000).mapToObj(i -> "k" + i).collect(toList());
+    assertThat(
+            BiStream.from(keys.parallelStream(), s -> s, String::length)
+                .filter((k, v) -> true)
+                .mapValues(v -> v + 1)
+                .collect(retainingToStrings()))
+        .isEqualTo(keys.stream().map(k -> k + "=" + (k.length() + 1)).collect(toList()));
+  }
+
+  @Test public void testFusedPipeline_closeClosesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<Integer> source = Stream.of(1, 2).onClose(() -> closed.set(true));
+    try (BiStream<Integer, Integer> stream =
+        BiStream.from(source, identity(), identity()).filter((k, v) -> true)) {
+      assertThat(closed.get()).isFalse();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testMergeSorted_interleaves() {
+    BiStream<Integer, String> merged =
+        BiStream.mergeSorted(
+            Comparator.naturalOrder(),
+            BiStream.of(1, "a", 4, "a", 6, "a"),
+            BiStream.of(2, "b", 3, "b"),
+            BiStream.of(5, "c"));
+    assertKeyValues(merged)
+        .containsExactlyEntriesIn(
+            ImmutableListMultimap.builder()
+                .put(1, "a").put(2, "b").put(3, "b").put(4, "a").put(5, "c").put(6, "a")
+                .build())
+        .inOrder();
+  }
+
+  @Test public void testMergeSorted_equalKeysInInputOrder() {
+    assertKeyValues(
+            BiStream.mergeSorted(
+                Comparator.naturalOrder(), BiStream.of(1, "a", 2, "a"), BiStream.of(1, "b")))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of(1, "a", 1, "b", 2, "a"))
+        .inOrder();
+  }
+
+  @Test public void testMergeSorted_noInputs() {
+    assertKeyValues(BiStream.<String, Integer>mergeSorted(Comparator.naturalOrder())).isEmpty();
+  }
+
+  @Test public void testMergeSorted_reverseOrder() {
+    assertKeyValues(
+            BiStream.mergeSorted(
+                Comparator.reverseOrder(), BiStream.of(3, "a", 1, "a"), BiStream.of(2, "b")))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of(3, "a", 2, "b", 1, "a"))
+        .inOrder();
+  }
+
+  @Test public void testMergeSorted_combiningEqualKeys() {
+    BiStream<String, Integer> merged =
+        BiStream.mergeSorted(
+            Comparator.naturalOrder(),
+            Integer::sum,
+            asList(
+                BiStream.of("a", 1, "b", 2), BiStream.of("b", 10, "c", 3), BiStream.of("b", 100)));
+    assertKeyValues(merged)
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("a", 1, "b", 112, "c", 3))
+        .inOrder();
+  }
+
+  @Test public void testMergeSorted_infiniteInputs() {
+    BiStream<Integer, String> evens =
+        BiStream.from(Stream.iterate(0, i -> i + 2), identity(), i -> "even");
+    BiStream<Integer, String> odds =
+        BiStream.from(Stream.iterate(1, i -> i + 2), identity(), i -> "odd");
+    assertThat(BiStream.mergeSorted(Comparator.naturalOrder(), evens, odds).keys().limit(5))
+        .containsExactly(0, 1, 2, 3, 4)
+        .inOrder();
+  }
+
+  @Test public void testMergeSorted_lazy() {
+    AtomicBoolean consumed = new AtomicBoolean();
+    BiStream<String, Integer> merged =
+        BiStream.mergeSorted(
+            Comparator.naturalOrder(), BiStream.of("a", 1).peek((k, v) -> consumed.set(true)));
+    assertThat(consumed.get()).isFalse();
+    assertThat(merged.keys()).containsExactly("a");
+    assertThat(consumed.get()).isTrue();
+  }
+
+  @Test public void testMergeSorted_parallelCollect() {
+    Map<Integer, String> merged =
+        BiStream.<Integer, String>mergeSorted(
+                Comparator.naturalOrder(),
+                BiStream.from(IntStream.range(0, 1000).boxed(), i -> i * 2, i -> "even"),
+                BiStream.from(IntStream.range(0, 1000).boxed(), i -> i * 2 + 1, i -> "odd"))
+            .parallel()
+            .collect(toMap());
+    assertThat(merged).hasSize(2000);
+  }
+
+  @Test public void testMergeSorted_closeClosesAllInputs() {
+    AtomicBoolean firstClosed = new AtomicBoolean();
+    AtomicBoolean secondClosed = new AtomicBoolean();
+    BiStream.<Integer, Integer>mergeSorted(
+            Comparator.naturalOrder(),
+            BiStream.from(Stream.of(1).onClose(() -> firstClosed.set(true)), identity(), i -> i),
+            BiStream.from(Stream.of(2).onClose(() -> secondClosed.set(true)), identity(), i -> i))
+        .close();
+    assertThat(firstClosed.get()).isTrue();
+    assertThat(secondClosed.get()).isTrue();
+  }
+
+  @Test public void testTopKByValues() {
+    BiStream<String, Integer> scores =
+        BiStream.of("a", 3, "b", 5, "c", 1).append("d", 4).append("e", 2);
+    assertKeyValues(scores.topKByValues(2, Comparator.reverseOrder()))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("b", 5, "d", 4))
+        .inOrder();
+  }
+
+  @Test public void testTopKByKeys_kGreaterThanSize() {
+    assertKeyValues(BiStream.of("b", 2, "a", 1).topKByKeys(10, Comparator.naturalOrder()))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("a", 1, "b", 2))
+        .inOrder();
+  }
+
+  @Test public void testTopK_zero() {
+    assertKeyValues(BiStream.of("a", 1).topKByKeys(0, Comparator.naturalOrder())).isEmpty();
+  }
+
+  @Test public void testTopK_negative() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BiStream.of("a", 1).topKByKeys(-1, Comparator.naturalOrder()));
+  }
+
+  @Test public void testTopK_biComparator() {
+    BiComparator<String, Integer> byValueThenKey =
+        BiComparator.<Integer>comparingValue(Comparator.naturalOrder())
+            .then(BiComparator.<String>comparingKey(Comparator.reverseOrder()));
+    assertKeyValues(BiStream.of("a", 1, "b", 1, "c", 0).topK(2, byValueThenKey))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("c", 0, "b", 1))
+        .inOrder();
+  }
+
+  @Test public void testTopK_tiesKeepEncounterOrder() {
+    BiStream<String, Integer> pairs =
+        BiStream.of("a", 1, "b", 0, "c", 1).append("d", 0).append("e", 1);
+    assertKeyValues(pairs.topKByValues(4, Comparator.naturalOrder()))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of("b", 0, "d", 0, "a", 1, "c", 1))
+        .inOrder();
+  }
+
+  @Test public void testTopK_parallel_sameAsSortedThenLimit() {
+    List<Integer> expected =
+        BiStream.from(IntStream.range(0, 10000).boxed(), i -> i, i -> i % 97)
+            .sortedByValues(Comparator.naturalOrder())
+            .limit(50)
+            .keys()
+            .collect(toList());
+    List<Integer> actual =
+        BiStream.from(IntStream.range(0, 10000).boxed(), i -> i, i -> i % 97)
+            .parallel()
+            .topKByValues(50, Comparator.naturalOrder())
+            .keys()
+            .collect(toList());
+    assertThat(actual).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test public void testTopKByValues_zippedStreams() {
+    assertKeyValues(
+            BiStream.zip(Stream.of("a", "b", "c", "d"), Stream.of(3, 1, 2, 5))
+                .topKByValues(2, Comparator.naturalOrder()))
+        .containsExactly("b", 1, "c", 2)
+        .inOrder();
+  }
+
+  @Test public void testTopKByValues_fusedPipeline() {
+    Map<String, Integer> map = new LinkedHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put("k" + i, i);
+    }
+    assertKeyValues(
+            BiStream.from(map)
+                .mapValues(v -> 100 - v)
+                .filter((k, v) -> v % 2 == 0)
+                .topKByValues(3, Comparator.naturalOrder()))
+        .containsExactly("k98", 2, "k96", 4, "k94", 6)
+        .inOrder();
+  }
+
+  @Test public void testTopK_lazy() {
+    AtomicBoolean consumed = new AtomicBoolean();
+    BiStream<String, Integer> top =
+        BiStream.of("a", 1).peek((k, v) -> consumed.set(true)).topKByKeys(1, String::compareTo);
+    assertThat(consumed.get()).isFalse();
+    assertThat(top.keys()).containsExactly("a");
+    assertThat(consumed.get()).isTrue();
+  }
+
+  @Test public void testTopK_closeClosesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    BiStream.from(Stream.of("a").onClose(() -> closed.set(true)), k -> k, k -> 1)
+        .topKByKeys(1, String::compareTo)
+        .close();
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testInnerJoin_biStream() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 3, "c").append(1, "d");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 3, "y", 1, "z").append(4, "w");
+    assertKeyValues(left.innerJoin(right, (l, r) -> l + r))
+        .containsExactly(1, "ax", 1, "az", 3, "cy", 1, "dx", 1, "dz")
+        .inOrder();
+  }
+
+  @Test public void testInnerJoin_biStream_oneAtATime() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 1, "c");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 1, "y", 1, "z");
+    Iterator<String> joined =
+        left.innerJoin(right, (l, r) -> l + r).mapToObj((k, v) -> k + v).iterator();
+    List<String> result = new ArrayList<>();
+    joined.forEachRemaining(result::add);
+    assertThat(result).containsExactly("1ax", "1ay", "1az", "1cx", "1cy", "1cz").inOrder();
+  }
+
+  @Test public void testInnerJoin_biStream_limitWithinMatches() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 1, "b");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 1, "y", 1, "z");
+    assertKeyValues(left.innerJoin(right, (l, r) -> l + r).limit(4))
+        .containsExactly(1, "ax", 1, "ay", 1, "az", 1, "bx")
+        .inOrder();
+  }
+
+  @Test public void testInnerJoin_biStream_nullKeys() {
+    BiStream<String, String> left = BiStream.of(null, "a", "k", "b");
+    BiStream<String, String> right = BiStream.of(null, "x");
+    assertKeyValues(left.innerJoin(right, (l, r) -> l + r)).containsExactly(null, "ax");
+  }
+
+  @Test public void testInnerJoin_biStream_rightLoadedLazily() {
+    List<String> loaded = new ArrayList<>();
+    BiStream<Integer, String> right = BiStream.of(1, "x").peek((k, v) -> loaded.add(v));
+    BiStream<Integer, String> joined =
+        BiStream.of(1, "a").innerJoin(right, (l, r) -> l + r);
+    assertThat(loaded).isEmpty();
+    assertKeyValues(joined).containsExactly(1, "ax");
+    assertThat(loaded).containsExactly("x");
+  }
+
+  @Test public void testInnerJoin_biStream_parallel() {
+    BiStream<Integer, Integer> left =
+        BiStream.from(IntStream.range(0, 10000).boxed(), i -> i % 100, i -> i).parallel();
+    BiStream<Integer, Integer> right =
+        BiStream.from(IntStream.range(0, 50).boxed(), i -> i, i -> 1);
+    assertThat(left.innerJoin(right, (l, r) -> l * r).mapToLong((k, v) -> v).sum())
+        .isEqualTo(IntStream.range(0, 10000).filter(i -> i % 100 < 50).asLongStream().sum());
+  }
+
+  @Test public void testInnerJoin_biStream_closeClosesBothSides() {
+    AtomicBoolean leftClosed = new AtomicBoolean();
+    AtomicBoolean rightClosed = new AtomicBoolean();
+    BiStream<Integer, Integer> left =
+        BiStream.from(Stream.of(1).onClose(() -> leftClosed.set(true)), identity(), identity());
+    BiStream<Integer, Integer> right =
+        BiStream.from(Stream.of(1).onClose(() -> rightClosed.set(true)), identity(), identity());
+    try (BiStream<Integer, Integer> joined = left.innerJoin(right, Integer::sum)) {
+      assertThat(joined.toMap()).containsExactly(1, 2);
+    }
+    assertThat(leftClosed.get()).isTrue();
+    assertThat(rightClosed.get()).isTrue();
+  }
+
+  @Test public void testInnerJoin_map() {
+    Map<Integer, String> right = ImmutableMap.of(1, "x", 3, "y");
+    assertKeyValues(BiStream.of(1, "a", 2, "b", 3, "c").innerJoin(right, (l, r) -> l + r))
+        .containsExactly(1, "ax", 3, "cy")
+        .inOrder();
+  }
+
+  @Test public void testInnerJoin_map_nullValue() {
+    Map<Integer, String> right = new HashMap<>();
+    right.put(1, null);
+    assertKeyValues(BiStream.of(1, "a", 2, "b").innerJoin(right, (l, r) -> l + r))
+        .containsExactly(1, "anull");
+  }
+
+  @Test public void testLeftJoin_biStream() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 3, "c");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 3, "y", 3, "z");
+    assertKeyValues(left.leftJoin(right, (l, r) -> l + r))
+        .containsExactly(1, "ax", 2, "bnull", 3, "cy", 3, "cz")
+        .inOrder();
+  }
+
+  @Test public void testLeftJoin_biStream_emptyRight() {
+    assertKeyValues(BiStream.of(1, "a").leftJoin(BiStream.empty(), (l, r) -> l + r))
+        .containsExactly(1, "anull");
+  }
+
+  @Test public void testLeftJoin_map() {
+    Map<Integer, String> right = ImmutableMap.of(1, "x");
+    assertKeyValues(BiStream.of(1, "a", 2, "b").leftJoin(right, (l, r) -> l + r))
+        .containsExactly(1, "ax", 2, "bnull")
+        .inOrder();
+  }
+
+  @Test public void testSemiJoin_biStream() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 3, "c").append(1, "d");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 1, "y", 3, "z");
+    assertKeyValues(left.semiJoin(right))
+        .containsExactly(1, "a", 3, "c", 1, "d")
+        .inOrder();
+  }
+
+  @Test public void testSemiJoin_map() {
+    Map<Integer, String> right = ImmutableMap.of(2, "x");
+    assertKeyValues(BiStream.of(1, "a", 2, "b").semiJoin(right)).containsExactly(2, "b");
+  }
+
+  @Test public void testJoin_fromZip() {
+    BiStream<String, Integer> left = BiStream.zip(Stream.of("a", "b"), Stream.of(1, 2));
+    assertKeyValues(left.innerJoin(BiStream.of("b", 10), Integer::sum)).containsExactly("b", 12);
+  }
+
   @Test public void testZip_mapToObj_bothLeftAndRightClosedUponClosing() {
     AtomicBoolean leftClosed = new AtomicBoolean();
     AtomicBoolean rightClosed = new AtomicBoolean();
@@ -829,12 +1456,226 @@ public class BiStreamTest {
     assertThat(stream).containsExactly("null:1", "1:2", "2:3", "3:null").inOrder();
   }
 
+  @Test public void testAdjacentPairsFrom() {
+    assertKeyValues(BiStream.adjacentPairsFrom(Stream.of(1, 2, 3, 4)))
+        .containsExactlyEntriesIn(ImmutableListMultimap.of(1, 2, 2, 3, 3, 4))
+        .inOrder();
+  }
+
+  @Test public void testAdjacentPairsFrom_fewerThanTwoElements() {
+    assertKeyValues(BiStream.adjacentPairsFrom(Stream.empty())).isEmpty();
+    assertKeyValues(BiStream.adjacentPairsFrom(Stream.of(1))).isEmpty();
+  }
+
+  @Test public void testAdjacentPairsFrom_nulls() {
+    assertThat(BiStream.adjacentPairsFrom(Stream.of(null, 1, null)).mapToObj((a, b) -> a + ":" + b))
+        .containsExactly("null:1", "1:null")
+        .inOrder();
+  }
+
+  @Test public void testAdjacentPairsFrom_infiniteStream() {
+    assertThat(
+            BiStream.adjacentPairsFrom(indexesFrom(1)).mapToObj((a, b) -> a * b).limit(3))
+        .containsExactly(2, 6, 12)
+        .inOrder();
+  }
+
+  @Test public void testAdjacentPairsFrom_deltas() {
+    assertThat(
+            BiStream.adjacentPairsFrom(Stream.of(1, 4, 9, 16))
+                .mapToInt((prev, next) -> next - prev)
+                .boxed())
+        .containsExactly(3, 5, 7)
+        .inOrder();
+  }
+
+  @Test public void testAdjacentPairsFrom_parallel() {
+    assertThat(
+            BiStream.adjacentPairsFrom(IntStream.range(0, 1000).boxed().parallel())
+                .filter((a, b) -> b != a + 1)
+                .count())
+        .isEqualTo(0);
+    assertThat(BiStream.adjacentPairsFrom(IntStream.range(0, 1000).boxed()).parallel().count())
+        .isEqualTo(999);
+  }
+
+  @Test public void testSliding() {
+    assertThat(
+            BiStream.of("a", 1, "b", 2, "c", 3)
+                .append("d", 4)
+                .sliding(2, BiCollectors.summingInt((k, v) -> v)))
+        .containsExactly(3, 5, 7)
+        .inOrder();
+  }
+
+  @Test public void testSliding_windowCollectorSeesPairsInOrder() {
+    assertThat(BiStream.of("a", 1, "b", 2, "c", 3).sliding(2, windowToStrings()))
+        .containsExactly(asList("a=1", "b=2"), asList("b=2", "c=3"))
+        .inOrder();
+  }
+
+  @Test public void testSliding_fewerPairsThanWindow() {
+    assertThat(BiStream.of("a", 1).sliding(2, BiCollectors.counting())).isEmpty();
+  }
+
+  @Test public void testSliding_infiniteStream() {
+    assertThat(
+            BiStream.from(indexesFrom(0), i -> i, i -> i * i)
+                .sliding(3, BiCollectors.summingInt((k, v) -> v))
+                .limit(2))
+        .containsExactly(5, 14)
+        .inOrder();
+  }
+
+  @Test public void testSliding_invalidWindowSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BiStream.of("a", 1).sliding(0, BiCollectors.counting()));
+  }
+
+  @Test public void testSliding_collectorRetainsElements() {
+    assertThat(BiStream.of("a", 1, "b", 2, "c", 3).sliding(2, retainingToStrings()))
+        .containsExactly(asList("a=1", "b=2"), asList("b=2", "c=3"))
+        .inOrder();
+  }
+
+  @Test public void testTumbling_collectorRetainsElements() {
+    assertThat(
+            BiStream.zip(Stream.of("a", "b", "c"), Stream.of(1, 2, 3))
+                .tumbling(2, retainingToStrings()))
+        .containsExactly(asList("a=1", "b=2"), asList("c=3"))
+        .inOrder();
+  }
+
+  @Test public void testTumbling() {
+    assertThat(
+            BiStream.of("a", 1, "b", 2, "c", 3)
+                .append("d", 4)
+                .append("e", 5)
+                .tumbling(2, windowToStrings()))
+        .containsExactly(asList("a=1", "b=2"), asList("c=3", "d=4"), asList("e=5"))
+        .inOrder();
+  }
+
+  @Test public void testTumbling_exactMultiple() {
+    assertThat(
+            BiStream.of("a", 1, "b", 2, "c", 3)
+                .append("d", 4)
+                .tumbling(2, BiCollectors.summingInt((k, v) -> v)))
+        .containsExactly(3, 7)
+        .inOrder();
+  }
+
+  @Test public void testTumbling_empty() {
+    assertThat(BiStream.empty().tumbling(2, BiCollectors.counting())).isEmpty();
+  }
+
+  @Test public void testTumbling_fromMap_parallel() {
+    Map<Integer, Integer> map = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, i);
+    }
+    assertThat(BiStream.from(map).parallel().tumbling(100, BiCollectors.counting()))
+        .containsExactlyElementsIn(Collections.nCopies(10, 100L));
+  }
+
+  @Test public void testTumbling_invalidWindowSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BiStream.of("a", 1).tumbling(-1, BiCollectors.counting()));
+  }
+
+  /** Keeps the input elements and only reads them when the collector finishes. */
+  private static BiCollector<String, Integer, List<String>> retainingToStrings() {
+    return new BiCollector<String, Integer, List<String>>() {
+      @Override
+      public <E> Collector<E, ?, List<String>> splitting(
+          Function<E, String> toKey, Function<E, Integer> toValue) {
+        return Collectors.collectingAndThen(
+            toList(),
+            elements ->
+                elements.stream()
+                    .map(e -> toKey.apply(e) + "=" + toValue.apply(e))
+                    .collect(toList()));
+      }
+    };
+  }
+
+  private static BiCollector<String, Integer, List<String>> windowToStrings() {
+    return new BiCollector<String, Integer, List<String>>() {
+      @Override
+      public <E> Collector<E, ?, List<String>> splitting(
+          Function<E, String> toKey, Function<E, Integer> toValue) {
+        return Collectors.mapping(e -> toKey.apply(e) + "=" + toValue.apply(e), toList());
+      }
+    };
+  }
+
   @Test public void testBuilder_cannotAddAfterBuild() {
     BiStream.Builder<String, String> builder = BiStream.builder();
     assertKeyValues(builder.build()).isEmpty();
     assertThrows(IllegalStateException.class, () -> builder.add("foo", "bar"));
   }
 
+  @Test public void testBuilder_cannotBuildTwice() {
+    BiStream.Builder<String, String> builder = BiStream.builder();
+    builder.build();
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
+  @Test public void testBuilder_growsBeyondInitialCapacity() {
+    BiStream.Builder<Integer, String> builder = BiStream.builder();
+    for (int i = 0; i < 1000; i++) {
+      builder.add(i, Integer.toString(i));
+    }
+    assertThat(builder.size()).isEqualTo(1000);
+    Map<Integer, String> built = builder.build().collect(toMap());
+    assertThat(built).hasSize(1000);
+    assertThat(built).containsEntry(999, "999");
+  }
+
+  @Test public void testBuilder_nullKeysAndValues() {
+    assertKeyValues(BiStream.<String, String>builder().add(null, "a").add("b", null).build())
+        .containsExactly(null, "a", "b", null)
+        .inOrder();
+  }
+
+  @Test public void testBuilder_isSized() {
+    BiStream<Integer, Integer> built =
+        BiStream.<Integer, Integer>builder().add(1, 2).add(3, 4).build();
+    Spliterator<Integer> keys = built.keys().spliterator();
+    assertThat(keys.hasCharacteristics(Spliterator.SIZED)).isTrue();
+    assertThat(keys.getExactSizeIfKnown()).isEqualTo(2);
+  }
+
+  @Test public void testBuilder_parallel() {
+    BiStream.Builder<Integer, Integer> builder = BiStream.builder();
+    for (int i = 0; i < 10000; i++) {
+      builder.add(i, i * 2);
+    }
+    BiStream<Integer, Integer> stream = builder.build().parallel();
+    assertThat(stream.isParallel()).isTrue();
+    assertThat(stream.keys().collect(toList()))
+        .containsExactlyElementsIn(IntStream.range(0, 10000).boxed().collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testBuilder_clearBeforeBuild() {
+    BiStream.Builder<String, Integer> builder = BiStream.builder();
+    builder.add("one", 1).add("two", 2);
+    assertThat(builder.clear().size()).isEqualTo(0);
+    assertKeyValues(builder.add("three", 3).build()).containsExactly("three", 3);
+  }
+
+  @Test public void testBuilder_clearAfterBuild_reusesBuilder() {
+    BiStream.Builder<String, Integer> builder = BiStream.builder();
+    BiStream<String, Integer> first = builder.add("one", 1).build();
+    builder.clear().add("two", 2);
+    BiStream<String, Integer> second = builder.build();
+    assertKeyValues(first).containsExactly("one", 1);
+    assertKeyValues(second).containsExactly("two", 2);
+  }
+
   @Test public void testCollect_mutableReduction() {
     ImmutableMap<String, Integer> result = BiStream.of("one", 1, "two", 2)
         .collect(
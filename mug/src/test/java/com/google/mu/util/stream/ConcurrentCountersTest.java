@@ -0,0 +1,89 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.EqualsTester;
+
+@RunWith(JUnit4.class)
+public class ConcurrentCountersTest {
+  @Test public void empty() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    assertThat(counters).isEmpty();
+    assertThat(counters.get("a")).isNull();
+    assertThat(counters.get(null)).isNull();
+    assertThat(counters.containsKey(null)).isFalse();
+  }
+
+  @Test public void add() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    counters.add("a", 1);
+    counters.add("b", 2);
+    counters.add("a", 3);
+    assertThat(counters).containsExactly("a", 4L, "b", 2L);
+    assertThat(counters.get("a")).isEqualTo(4L);
+    assertThat(counters.containsKey("b")).isTrue();
+    assertThat(counters.containsKey("c")).isFalse();
+  }
+
+  @Test public void add_nullKey() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    assertThrows(NullPointerException.class, () -> counters.add(null, 1));
+  }
+
+  @Test public void add_concurrently() {
+    ConcurrentCounters<Integer> counters = new ConcurrentCounters<>();
+    IntStream.range(0, 100000).parallel().forEach(i -> counters.add(i % 10, 1));
+    assertThat(counters).hasSize(10);
+    for (int i = 0; i < 10; i++) {
+      assertThat(counters.get(i)).isEqualTo(10000L);
+    }
+  }
+
+  @Test public void merge() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    counters.add("a", 1);
+    ConcurrentCounters<String> other = new ConcurrentCounters<>();
+    other.add("a", 2);
+    other.add("b", 3);
+    assertThat(counters.merge(other)).isSameAs(counters);
+    assertThat(counters).containsExactly("a", 3L, "b", 3L);
+  }
+
+  @Test public void readOnly() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    counters.add("a", 1);
+    assertThrows(UnsupportedOperationException.class, () -> counters.put("b", 1L));
+    assertThrows(UnsupportedOperationException.class, () -> counters.entrySet().clear());
+  }
+
+  @Test public void testEquals() {
+    ConcurrentCounters<String> counters = new ConcurrentCounters<>();
+    counters.add("a", 1);
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("a", 1L);
+    new EqualsTester().addEqualityGroup(counters, expected).testEquals();
+  }
+}
@@ -0,0 +1,78 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collector;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConsecutiveRunsTest {
+  @Test public void sequential() {
+    assertThat(runs("aabbba")).containsExactly("a=aa", "b=bbb", "a=a").inOrder();
+  }
+
+  @Test public void merge_boundaryRunStitched() {
+    assertThat(runs("aab", "bba")).containsExactly("a=aa", "b=bbb", "a=a").inOrder();
+  }
+
+  @Test public void merge_noSharedBoundary() {
+    assertThat(runs("aab", "aab")).containsExactly("a=aa", "b=b", "a=aa", "b=b").inOrder();
+  }
+
+  @Test public void merge_runSpansThreeSegments() {
+    assertThat(runs("ab", "b", "bc")).containsExactly("a=a", "b=bbb", "c=c").inOrder();
+  }
+
+  @Test public void merge_emptySegments() {
+    assertThat(runs("", "aa", "", "a", "")).containsExactly("a=aaa");
+    assertThat(runs("", "")).isEmpty();
+  }
+
+  /** Groups each of {@code segments} separately, then merges them from left to right. */
+  private static List<String> runs(String... segments) {
+    Collector<Character, Object, List<Map.Entry<Character, String>>> collector =
+        erase(ConsecutiveRuns.collector((Character c) -> c, mapping(String::valueOf, joining())));
+    BiConsumer<Object, Character> accumulator = collector.accumulator();
+    BinaryOperator<Object> combiner = collector.combiner();
+    Object merged = null;
+    for (String segment : segments) {
+      Object container = collector.supplier().get();
+      for (char c : segment.toCharArray()) {
+        accumulator.accept(container, c);
+      }
+      merged = merged == null ? container : combiner.apply(merged, container);
+    }
+    return collector.finisher().apply(merged).stream()
+        .map(run -> run.getKey() + "=" + run.getValue())
+        .collect(toList());
+  }
+
+  @SuppressWarnings("unchecked") // The container type is only passed back to the same collector.
+  private static <T, R> Collector<T, Object, R> erase(Collector<T, ?, R> collector) {
+    return (Collector<T, Object, R>) collector;
+  }
+}
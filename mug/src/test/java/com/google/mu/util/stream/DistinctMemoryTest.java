@@ -0,0 +1,109 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DistinctMemoryTest {
+  @Test public void unbounded() {
+    DistinctMemory.Seen seen = DistinctMemory.unbounded().newSeen();
+    assertThat(seen.add("a")).isTrue();
+    assertThat(seen.add("b")).isTrue();
+    assertThat(seen.add("a")).isFalse();
+    assertThat(seen.add(null)).isTrue();
+    assertThat(seen.add(null)).isFalse();
+  }
+
+  @Test public void unbounded_concurrent() {
+    DistinctMemory.Seen seen = DistinctMemory.unbounded().newConcurrentSeen();
+    assertThat(seen.add("a")).isTrue();
+    assertThat(seen.add("a")).isFalse();
+    assertThat(seen.add(null)).isTrue();
+    assertThat(seen.add(null)).isFalse();
+    assertThat(IntStream.range(0, 10000).parallel().filter(i -> seen.add(i % 100)).count())
+        .isEqualTo(100);
+  }
+
+  @Test public void recent_forgetsLeastRecentlySeen() {
+    DistinctMemory.Seen seen = DistinctMemory.recent(2).newSeen();
+    assertThat(seen.add(1)).isTrue();
+    assertThat(seen.add(2)).isTrue();
+    assertThat(seen.add(1)).isFalse();  // 1 is now more recent than 2
+    assertThat(seen.add(3)).isTrue();  // evicts 2
+    assertThat(seen.add(1)).isFalse();
+    assertThat(seen.add(2)).isTrue();
+  }
+
+  @Test public void recent_concurrent() {
+    DistinctMemory.Seen seen = DistinctMemory.recent(1000).newConcurrentSeen();
+    assertThat(IntStream.range(0, 10000).parallel().filter(i -> seen.add(i % 100)).count())
+        .isEqualTo(100);
+  }
+
+  @Test public void recent_invalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.recent(0));
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.recent(-1));
+  }
+
+  @Test public void approximate_noFalseNegatives() {
+    DistinctMemory.Seen seen = DistinctMemory.approximate(1000, 0.01).newSeen();
+    IntStream.range(0, 1000).forEach(seen::add);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(seen.add(i)).isFalse();
+    }
+  }
+
+  @Test public void approximate_falsePositiveRateWithinBound() {
+    DistinctMemory.Seen seen = DistinctMemory.approximate(10000, 0.01).newSeen();
+    IntStream.range(0, 5000).forEach(seen::add);
+    long falsePositives = IntStream.range(5000, 10000).filter(i -> !seen.add(i)).count();
+    assertThat(falsePositives).isLessThan(100L);
+  }
+
+  @Test public void approximate_concurrent() {
+    DistinctMemory.Seen seen = DistinctMemory.approximate(1000, 0.001).newConcurrentSeen();
+    assertThat(IntStream.range(0, 100000).parallel().filter(i -> seen.add(i % 100)).count())
+        .isEqualTo(100);
+  }
+
+  @Test public void approximate_bitIndexCoversFiltersBeyondIntRange() {
+    long bits = 1L << 40;
+    assertThat(DistinctMemory.BloomFilter.bit(1, 1L << 36, 16, bits)).isEqualTo(1);
+    assertThat(DistinctMemory.BloomFilter.bit(5, 1L << 35, 3, bits)).isEqualTo(3 * (1L << 35) + 5);
+    assertThat(DistinctMemory.BloomFilter.bit(-1, 0, 1, bits)).isEqualTo(bits - 1);
+    assertThat(
+            LongStream.range(0, 1000)
+                .map(i -> DistinctMemory.BloomFilter.bit(i * 0x9e3779b97f4a7c15L, i, 1, bits))
+                .max()
+                .getAsLong())
+        .isGreaterThan((long) Integer.MAX_VALUE);
+  }
+
+  @Test public void approximate_invalidParameters() {
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.approximate(0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.approximate(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.approximate(10, 1));
+    assertThrows(IllegalArgumentException.class, () -> DistinctMemory.approximate(10, Double.NaN));
+  }
+}
@@ -0,0 +1,226 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.reverseOrder;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.function.BiComparator;
+import com.google.mu.util.stream.ExternalSorter.Codec;
+
+@RunWith(JUnit4.class)
+public class ExternalSorterTest {
+  private Path tempDir;
+
+  @Before public void createTempDir() throws IOException {
+    tempDir = Files.createTempDirectory("external-sorter-test");
+  }
+
+  @After public void deleteTempDir() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      files.forEach(file -> file.toFile().delete());
+    }
+    Files.delete(tempDir);
+  }
+
+  @Test public void sortedByKeys_empty() throws IOException {
+    assertThat(sorter(2).sortedByKeys(BiStream.<String, Long>empty(), naturalOrder()).toMap())
+        .isEmpty();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test public void sortedByKeys_fitsInMemory() throws IOException {
+    BiStream<String, Long> sorted =
+        sorter(10).sortedByKeys(BiStream.of("c", 3L, "a", 1L, "b", 2L), naturalOrder());
+    assertThat(sorted.keys()).containsExactly("a", "b", "c").inOrder();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test public void sortedByKeys_spillsToDisk() throws IOException {
+    BiStream<String, Long> sorted =
+        sorter(2)
+            .sortedByKeys(
+                BiStream.of("e", 5L, "c", 3L, "a", 1L).append("d", 4L).append("b", 2L),
+                naturalOrder());
+    assertThat(sorted.mapToObj((k, v) -> k + v))
+        .containsExactly("a1", "b2", "c3", "d4", "e5")
+        .inOrder();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test public void sortedByValues_spillsToDisk() {
+    assertThat(
+            sorter(1)
+                .sortedByValues(BiStream.of("a", 1L, "b", 3L, "c", 2L), reverseOrder())
+                .keys())
+        .containsExactly("b", "c", "a")
+        .inOrder();
+  }
+
+  @Test public void sorted_biComparator() {
+    BiComparator<String, Long> byValueThenKey =
+        BiComparator.<Long>comparingValue(naturalOrder())
+            .then(BiComparator.<String>comparingKey(reverseOrder()));
+    assertThat(
+            sorter(2)
+                .sorted(BiStream.of("a", 1L, "b", 1L, "c", 0L), byValueThenKey)
+                .keys())
+        .containsExactly("c", "b", "a")
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_stableAcrossRuns() {
+    BiStream.Builder<String, Long> builder = BiStream.builder();
+    for (long i = 0; i < 100; i++) {
+      builder.add(i % 2 == 0 ? "even" : "odd", i);
+    }
+    List<Long> evens = new ArrayList<>();
+    List<Long> odds = new ArrayList<>();
+    sorter(7)
+        .sortedByKeys(builder.build(), naturalOrder())
+        .forEachOrdered((k, v) -> (k.equals("even") ? evens : odds).add(v));
+    assertThat(evens).hasSize(50);
+    assertThat(odds).hasSize(50);
+    assertThat(evens).containsExactlyElementsIn(sortedCopy(evens)).inOrder();
+    assertThat(odds).containsExactlyElementsIn(sortedCopy(odds)).inOrder();
+  }
+
+  @Test public void sortedByKeys_manyRuns_mergedInPasses() throws IOException {
+    Random random = new Random(1);
+    List<Long> keys = new ArrayList<>();
+    BiStream.Builder<Long, String> builder = BiStream.builder();
+    for (int i = 0; i < 1000; i++) {
+      long key = random.nextInt(500);
+      keys.add(key);
+      builder.add(key, "v" + i);
+    }
+    keys.sort(naturalOrder());
+    ExternalSorter<Long, String> sorter =
+        ExternalSorter.using(Codec.longs(), Codec.strings())
+            .withMaxPairsInMemory(3)
+            .withTempDirectory(tempDir);
+    assertThat(sorter.sortedByKeys(builder.build(), naturalOrder()).keys())
+        .containsExactlyElementsIn(keys)
+        .inOrder();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test public void sortedByKeys_lazy() throws IOException {
+    AtomicBoolean consumed = new AtomicBoolean();
+    BiStream<String, Long> sorted =
+        sorter(1)
+            .sortedByKeys(
+                BiStream.of("b", 2L, "a", 1L).peek((k, v) -> consumed.set(true)),
+                naturalOrder());
+    assertThat(consumed.get()).isFalse();
+    assertThat(tempFiles()).isEmpty();
+    assertThat(sorted.keys()).containsExactly("a", "b").inOrder();
+    assertThat(consumed.get()).isTrue();
+  }
+
+  @Test public void close_partiallyConsumed_deletesTempFiles() throws IOException {
+    AtomicBoolean inputClosed = new AtomicBoolean();
+    try (BiStream<String, Long> sorted =
+        sorter(1)
+            .sortedByKeys(
+                BiStream.from(
+                    Stream.of("c", "a", "b").onClose(() -> inputClosed.set(true)),
+                    k -> k,
+                    k -> 1L),
+                naturalOrder())) {
+      assertThat(sorted.keys().findFirst()).hasValue("a");
+    }
+    assertThat(inputClosed.get()).isTrue();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test public void collect_downstreamCollectorsUnchanged() {
+    Map<String, Long> map =
+        sorter(1)
+            .sortedByKeys(BiStream.of("b", 2L, "a", 1L), naturalOrder())
+            .collect(BiCollectors.toMap());
+    assertThat(map).containsExactly("a", 1L, "b", 2L);
+  }
+
+  @Test public void codecs_roundTrip() {
+    assertThat(
+            ExternalSorter.using(Codec.ints(), Codec.doubles())
+                .withMaxPairsInMemory(1)
+                .withTempDirectory(tempDir)
+                .sortedByKeys(BiStream.of(2, 2.5, -1, -0.5), naturalOrder())
+                .toMap())
+        .containsExactly(-1, -0.5, 2, 2.5);
+    assertThat(
+            ExternalSorter.using(Codec.strings(), Codec.strings())
+                .withMaxPairsInMemory(1)
+                .withTempDirectory(tempDir)
+                .sortedByKeys(BiStream.of("\u4f60\u597d", "", "a", "b"), naturalOrder())
+                .keys())
+        .containsExactly("a", "\u4f60\u597d")
+        .inOrder();
+  }
+
+  @Test public void withMaxPairsInMemory_invalid() {
+    ExternalSorter<String, Long> sorter = ExternalSorter.using(Codec.strings(), Codec.longs());
+    assertThrows(IllegalArgumentException.class, () -> sorter.withMaxPairsInMemory(0));
+    assertThrows(IllegalArgumentException.class, () -> sorter.withMaxPairsInMemory(-1));
+  }
+
+  @Test public void testNulls() {
+    NullPointerTester tester = new NullPointerTester().setDefault(BiStream.class, BiStream.empty());
+    tester.testAllPublicStaticMethods(ExternalSorter.class);
+    tester.testAllPublicInstanceMethods(ExternalSorter.using(Codec.strings(), Codec.longs()));
+  }
+
+  private ExternalSorter<String, Long> sorter(int maxPairsInMemory) {
+    return ExternalSorter.using(Codec.strings(), Codec.longs())
+        .withMaxPairsInMemory(maxPairsInMemory)
+        .withTempDirectory(tempDir);
+  }
+
+  private static List<Long> sortedCopy(List<Long> list) {
+    List<Long> copy = new ArrayList<>(list);
+    copy.sort(naturalOrder());
+    return copy;
+  }
+
+  private List<Path> tempFiles() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> list = Files.list(tempDir)) {
+      list.forEach(files::add);
+    }
+    return files;
+  }
+}
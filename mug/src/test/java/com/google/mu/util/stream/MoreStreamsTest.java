@@ -140,6 +140,64 @@ public class MoreStreamsTest {
         .hasSize(1000);
   }
 
+  @Test public void sliding_empty() {
+    assertThat(MoreStreams.sliding(Stream.empty(), 2)).isEmpty();
+  }
+
+  @Test public void sliding_fewerElementsThanWindow() {
+    assertThat(MoreStreams.sliding(Stream.of(1, 2), 3)).isEmpty();
+  }
+
+  @Test public void sliding_windowOfOne() {
+    assertThat(MoreStreams.sliding(Stream.of(1, 2, 3), 1))
+        .containsExactly(asList(1), asList(2), asList(3))
+        .inOrder();
+  }
+
+  @Test public void sliding_overlappingWindows() {
+    assertThat(MoreStreams.sliding(Stream.of(1, 2, 3, 4, 5), 3))
+        .containsExactly(asList(1, 2, 3), asList(2, 3, 4), asList(3, 4, 5))
+        .inOrder();
+  }
+
+  @Test public void sliding_nullElements() {
+    assertThat(MoreStreams.sliding(Stream.of(null, 1, null), 2))
+        .containsExactly(asList(null, 1), asList(1, null))
+        .inOrder();
+  }
+
+  @Test public void sliding_windowsAreUnmodifiableCopies() {
+    List<List<Integer>> windows = MoreStreams.sliding(Stream.of(1, 2, 3), 2).collect(toList());
+    assertThat(windows).containsExactly(asList(1, 2), asList(2, 3)).inOrder();
+    assertThrows(UnsupportedOperationException.class, () -> windows.get(0).add(3));
+  }
+
+  @Test public void sliding_infiniteStream() {
+    assertThat(MoreStreams.sliding(indexesFrom(0), 2).limit(3))
+        .containsExactly(asList(0, 1), asList(1, 2), asList(2, 3))
+        .inOrder();
+  }
+
+  @Test public void sliding_parallelStream() {
+    assertThat(
+            MoreStreams.sliding(IntStream.range(0, 1000).boxed().parallel(), 10)
+                .map(window -> window.get(0))
+                .collect(toList()))
+        .containsExactlyElementsIn(IntStream.range(0, 991).boxed().collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void sliding_estimatedSize() {
+    assertThat(MoreStreams.sliding(asList(1, 2, 3, 4).stream(), 3).spliterator().estimateSize())
+        .isEqualTo(2);
+    assertThat(MoreStreams.sliding(asList(1, 2).stream(), 3).spliterator().estimateSize())
+        .isEqualTo(0);
+  }
+
+  @Test public void sliding_invalidWindowSize() {
+    assertThrows(IllegalArgumentException.class, () -> MoreStreams.sliding(Stream.of(1), 0));
+  }
+
   @Test public void diceParallelStream() {
     assertThat(MoreStreams.dice(IntStream.range(1, 8).boxed().parallel(), 2)
             .flatMap(List::stream).collect(toList()))
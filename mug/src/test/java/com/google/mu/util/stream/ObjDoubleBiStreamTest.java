@@ -0,0 +1,152 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ObjDoubleBiStreamTest {
+  @Test public void from_stream() {
+    assertThat(toMap(ObjDoubleBiStream.from(Stream.of("a", "bb"), identity(), String::length)))
+        .containsExactly("a", 1D, "bb", 2D)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToDouble() {
+    assertThat(
+            BiStream.from(ImmutableMap.of("a", 1, "b", 2))
+                .mapValuesToDouble(v -> v / 4D)
+                .sum())
+        .isEqualTo(0.75);
+  }
+
+  @Test public void mapValuesToDouble_biFunction() {
+    assertThat(toMap(BiStream.of("a", 1, "bb", 2).mapValuesToDouble((k, v) -> k.length() * v)))
+        .containsExactly("a", 1D, "bb", 4D)
+        .inOrder();
+  }
+
+  @Test public void filterKeysAndValues() {
+    assertThat(toMap(scores().filterKeys(k -> !k.equals("c")).filterValues(v -> v > 0)))
+        .containsExactly("a", 0.5);
+  }
+
+  @Test public void mapKeysAndValues() {
+    assertThat(toMap(scores().mapKeys(String::toUpperCase).mapValues(v -> v * 2)))
+        .containsExactly("A", 1D, "B", -3D, "C", 5D)
+        .inOrder();
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    scores().peek((k, v) -> peeked.add(k + v)).forEachOrdered((k, v) -> {});
+    assertThat(peeked).containsExactly("a0.5", "b-1.5", "c2.5").inOrder();
+  }
+
+  @Test public void keysAndValues() {
+    assertThat(scores().filterValues(v -> v > 0).keys().collect(toList()))
+        .containsExactly("a", "c")
+        .inOrder();
+    assertThat(scores().values().max().getAsDouble()).isEqualTo(2.5);
+  }
+
+  @Test public void boxed() {
+    assertThat(scores().boxed().toMap()).containsExactly("a", 0.5, "b", -1.5, "c", 2.5);
+  }
+
+  @Test public void aggregations() {
+    assertThat(scores().sum()).isEqualTo(1.5);
+    assertThat(scores().count()).isEqualTo(3);
+    assertThat(scores().average().getAsDouble()).isEqualTo(0.5);
+    DoubleSummaryStatistics stats = scores().summaryStatistics();
+    assertThat(stats.getMin()).isEqualTo(-1.5);
+    assertThat(stats.getMax()).isEqualTo(2.5);
+  }
+
+  @Test public void sumByKey() {
+    assertThat(scores().mapKeys(k -> k.equals("c") ? "a" : k).sumByKey())
+        .containsExactly("a", 3D, "b", -1.5);
+  }
+
+  @Test public void sumByKey_parallel() {
+    assertThat(
+            ObjDoubleBiStream.from(IntStream.range(0, 10000).boxed(), i -> i % 2, i -> 0.5)
+                .parallel()
+                .sumByKey())
+        .containsExactly(0, 2500D, 1, 2500D);
+  }
+
+  @Test public void values_preserveSpecialDoubles() {
+    assertThat(
+            ObjDoubleBiStream.from(
+                    asList(-0D, Double.NaN, Double.NEGATIVE_INFINITY), identity(), d -> d)
+                .mapValues(d -> d)
+                .values()
+                .boxed()
+                .collect(toList()))
+        .containsExactly(-0D, Double.NaN, Double.NEGATIVE_INFINITY)
+        .inOrder();
+  }
+
+  @Test public void parallel() {
+    ObjDoubleBiStream<Integer> stream =
+        ObjDoubleBiStream.from(IntStream.rangeClosed(1, 10000).boxed(), identity(), i -> i)
+            .parallel();
+    assertThat(stream.isParallel()).isTrue();
+    assertThat(stream.sum()).isEqualTo(10000D * 10001 / 2);
+  }
+
+  @Test public void close_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    ObjDoubleBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), identity(), s -> 1)
+        .close();
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(ObjDoubleBiStream.class);
+    new NullPointerTester().testAllPublicInstanceMethods(scores());
+  }
+
+  private static ObjDoubleBiStream<String> scores() {
+    return ObjDoubleBiStream.from(
+        asList("a", "b", "c"), identity(), k -> k.equals("b") ? -1.5 : k.equals("a") ? 0.5 : 2.5);
+  }
+
+  private static <K> Map<K, Double> toMap(ObjDoubleBiStream<K> stream) {
+    Map<K, Double> map = new LinkedHashMap<>();
+    stream.forEachOrdered(map::put);
+    return map;
+  }
+}
@@ -0,0 +1,147 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ObjIntBiStreamTest {
+  @Test public void from_stream() {
+    assertThat(toMap(ObjIntBiStream.from(Stream.of("a", "bb"), identity(), String::length)))
+        .containsExactly("a", 1, "bb", 2)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToInt() {
+    assertThat(
+            toMap(
+                BiStream.from(ImmutableMap.of("a", "x", "b", "yy"))
+                    .mapValuesToInt(String::length)
+                    .mapKeys(String::toUpperCase)))
+        .containsExactly("A", 1, "B", 2)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToInt_biFunction() {
+    assertThat(BiStream.of("a", 1, "bb", 2).mapValuesToInt((k, v) -> k.length() + v).sum())
+        .isEqualTo(6);
+  }
+
+  @Test public void filterKeysAndValues() {
+    assertThat(toMap(lengths().filterKeys(w -> !w.startsWith("b")).filterValues(n -> n > 1)))
+        .containsExactly("ccc", 3);
+  }
+
+  @Test public void mapValues() {
+    assertThat(lengths().mapValues(n -> n * n).values().boxed().collect(toList()))
+        .containsExactly(1, 4, 9)
+        .inOrder();
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    lengths().peek((k, v) -> peeked.add(k + v)).forEach((k, v) -> {});
+    assertThat(peeked).containsExactly("a1", "bb2", "ccc3").inOrder();
+  }
+
+  @Test public void keys() {
+    assertThat(lengths().filterValues(n -> n > 1).keys().collect(toList()))
+        .containsExactly("bb", "ccc")
+        .inOrder();
+  }
+
+  @Test public void boxed() {
+    assertThat(lengths().boxed().toMap()).containsExactly("a", 1, "bb", 2, "ccc", 3);
+  }
+
+  @Test public void aggregations() {
+    assertThat(lengths().sum()).isEqualTo(6);
+    assertThat(lengths().count()).isEqualTo(3);
+    assertThat(lengths().average().getAsDouble()).isEqualTo(2D);
+    IntSummaryStatistics stats = lengths().summaryStatistics();
+    assertThat(stats.getMin()).isEqualTo(1);
+    assertThat(stats.getMax()).isEqualTo(3);
+  }
+
+  @Test public void sumByKey() {
+    assertThat(
+            ObjIntBiStream.from(asList("a", "bb", "cc", "a"), String::length, String::length)
+                .sumByKey())
+        .containsExactly(1, 2L, 2, 4L);
+  }
+
+  @Test public void sumByKey_doesNotOverflow() {
+    assertThat(
+            ObjIntBiStream.from(asList("a", "b"), s -> "k", s -> Integer.MAX_VALUE).sumByKey())
+        .containsExactly("k", 2L * Integer.MAX_VALUE);
+  }
+
+  @Test public void sumByKey_parallel() {
+    assertThat(
+            ObjIntBiStream.from(IntStream.range(0, 10000).boxed(), i -> i % 3, i -> 1)
+                .parallel()
+                .sumByKey())
+        .containsExactly(0, 3334L, 1, 3333L, 2, 3333L);
+  }
+
+  @Test public void parallel() {
+    ObjIntBiStream<Integer> stream =
+        ObjIntBiStream.from(IntStream.rangeClosed(1, 10000).boxed(), identity(), i -> i % 3)
+            .parallel();
+    assertThat(stream.isParallel()).isTrue();
+    assertThat(stream.filterKeys(i -> i % 3 == 2).count()).isEqualTo(3333);
+  }
+
+  @Test public void close_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    ObjIntBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), identity(), s -> 1)
+        .close();
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(ObjIntBiStream.class);
+    new NullPointerTester().testAllPublicInstanceMethods(lengths());
+  }
+
+  private static ObjIntBiStream<String> lengths() {
+    return ObjIntBiStream.from(asList("a", "bb", "ccc"), identity(), String::length);
+  }
+
+  private static <K> Map<K, Integer> toMap(ObjIntBiStream<K> stream) {
+    Map<K, Integer> map = new LinkedHashMap<>();
+    stream.forEachOrdered(map::put);
+    return map;
+  }
+}
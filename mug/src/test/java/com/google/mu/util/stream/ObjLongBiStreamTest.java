@@ -0,0 +1,272 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ObjLongBiStreamTest {
+  @Test public void from_collection() {
+    assertThat(toMap(ObjLongBiStream.from(asList("a", "bb"), identity(), String::length)))
+        .containsExactly("a", 1L, "bb", 2L)
+        .inOrder();
+  }
+
+  @Test public void from_stream_functionsInvokedOncePerElement() {
+    List<String> keyed = new ArrayList<>();
+    List<String> valued = new ArrayList<>();
+    ObjLongBiStream<String> stream =
+        ObjLongBiStream.from(
+            Stream.of("a", "bb"),
+            s -> {
+              keyed.add(s);
+              return s;
+            },
+            s -> {
+              valued.add(s);
+              return s.length();
+            });
+    assertThat(toMap(stream.filterKeys(k -> true).filterValues(v -> true)))
+        .containsExactly("a", 1L, "bb", 2L);
+    assertThat(keyed).containsExactly("a", "bb").inOrder();
+    assertThat(valued).containsExactly("a", "bb").inOrder();
+  }
+
+  @Test public void mapValuesToLong_fromMap() {
+    Map<String, AtomicLong> hits = new LinkedHashMap<>();
+    hits.put("/api/a", new AtomicLong(3));
+    hits.put("/home", new AtomicLong(5));
+    hits.put("/api/b", new AtomicLong(4));
+    assertThat(
+            BiStream.from(hits)
+                .mapValuesToLong(AtomicLong::get)
+                .filterKeys(url -> url.startsWith("/api/"))
+                .sum())
+        .isEqualTo(7);
+  }
+
+  @Test public void mapValuesToLong_biFunction() {
+    assertThat(toMap(BiStream.of("a", 1, "bb", 2).mapValuesToLong((k, v) -> k.length() * 10 + v)))
+        .containsExactly("a", 11L, "bb", 22L)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToLong_afterFusedStages() {
+    assertThat(
+            toMap(
+                BiStream.from(ImmutableMap.of("a", 1, "b", 2, "c", 3))
+                    .filterValues(v -> v != 2)
+                    .mapKeys(k -> k.toUpperCase())
+                    .mapValuesToLong(v -> v * 100L)))
+        .containsExactly("A", 100L, "C", 300L)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToLong_fromZip() {
+    assertThat(toMap(BiStream.zip(Stream.of("a", "b"), Stream.of(1, 2)).mapValuesToLong(v -> v)))
+        .containsExactly("a", 1L, "b", 2L)
+        .inOrder();
+  }
+
+  @Test public void mapValuesToLong_fromEntries() {
+    assertThat(
+            BiStream.from(ImmutableMap.of("a", 1, "b", 2))
+                .sortedByKeys(String::compareTo)
+                .mapValuesToLong(v -> v)
+                .sum())
+        .isEqualTo(3);
+  }
+
+  @Test public void filterKeys() {
+    assertThat(toMap(counts().filterKeys(k -> !k.equals("b"))))
+        .containsExactly("a", 1L, "c", 3L)
+        .inOrder();
+  }
+
+  @Test public void filterValues() {
+    assertThat(toMap(counts().filterValues(v -> v >= 2)))
+        .containsExactly("b", 2L, "c", 3L)
+        .inOrder();
+  }
+
+  @Test public void mapKeys() {
+    assertThat(toMap(counts().mapKeys(String::toUpperCase)))
+        .containsExactly("A", 1L, "B", 2L, "C", 3L)
+        .inOrder();
+  }
+
+  @Test public void mapValues() {
+    assertThat(toMap(counts().mapValues(v -> -v)))
+        .containsExactly("a", -1L, "b", -2L, "c", -3L)
+        .inOrder();
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    assertThat(counts().peek((k, v) -> peeked.add(k + v)).filterValues(v -> v > 1).count())
+        .isEqualTo(2);
+    assertThat(peeked).containsExactly("a1", "b2", "c3").inOrder();
+  }
+
+  @Test public void keys() {
+    assertThat(counts().filterValues(v -> v % 2 == 1).keys().collect(toList()))
+        .containsExactly("a", "c")
+        .inOrder();
+  }
+
+  @Test public void values() {
+    assertThat(counts().values().boxed().collect(toList())).containsExactly(1L, 2L, 3L).inOrder();
+  }
+
+  @Test public void boxed() {
+    assertThat(counts().boxed().filterValues(v -> v > 1).toMap())
+        .containsExactly("b", 2L, "c", 3L);
+  }
+
+  @Test public void forEachOrdered() {
+    List<String> result = new ArrayList<>();
+    counts().forEachOrdered((k, v) -> result.add(k + v));
+    assertThat(result).containsExactly("a1", "b2", "c3").inOrder();
+  }
+
+  @Test public void sum() {
+    assertThat(counts().sum()).isEqualTo(6);
+    assertThat(counts().filterKeys(k -> false).sum()).isEqualTo(0);
+  }
+
+  @Test public void average() {
+    assertThat(counts().average().getAsDouble()).isEqualTo(2D);
+    assertThat(counts().filterKeys(k -> false).average().isPresent()).isFalse();
+  }
+
+  @Test public void summaryStatistics() {
+    LongSummaryStatistics stats = counts().summaryStatistics();
+    assertThat(stats.getCount()).isEqualTo(3);
+    assertThat(stats.getMin()).isEqualTo(1);
+    assertThat(stats.getMax()).isEqualTo(3);
+  }
+
+  @Test public void count() {
+    assertThat(counts().count()).isEqualTo(3);
+  }
+
+  @Test public void sumByKey() {
+    assertThat(counts().mapKeys(k -> k.equals("c") ? "a" : k).sumByKey())
+        .containsExactly("a", 4L, "b", 2L);
+  }
+
+  @Test public void sumByKey_empty() {
+    assertThat(counts().filterValues(v -> v > 10).sumByKey()).isEmpty();
+  }
+
+  @Test public void sumByKey_nullKey() {
+    assertThat(counts().mapKeys(k -> k.equals("b") ? null : k).sumByKey())
+        .containsExactly("a", 1L, null, 2L, "c", 3L);
+  }
+
+  @Test public void sumByKey_parallel() {
+    assertThat(
+            ObjLongBiStream.from(LongStream.rangeClosed(1, 10000).boxed(), i -> i % 2, i -> i)
+                .parallel()
+                .sumByKey())
+        .containsExactly(0L, 5000L * 5001, 1L, 5000L * 5000);
+  }
+
+  @Test public void parallel() {
+    ObjLongBiStream<Long> stream =
+        ObjLongBiStream.from(LongStream.rangeClosed(1, 10000).boxed(), identity(), i -> i)
+            .parallel();
+    assertThat(stream.isParallel()).isTrue();
+    assertThat(stream.filterValues(v -> v % 2 == 0).mapValues(v -> v / 2).sum())
+        .isEqualTo(5000L * 5001 / 2);
+  }
+
+  @Test public void parallel_forEach() {
+    Map<Long, Long> result = new ConcurrentHashMap<>();
+    ObjLongBiStream.from(LongStream.rangeClosed(1, 1000).boxed(), identity(), i -> i * 2)
+        .parallel()
+        .forEach(result::put);
+    assertThat(result).hasSize(1000);
+    assertThat(result.get(500L)).isEqualTo(1000L);
+  }
+
+  @Test public void parallel_keysPreserveEncounterOrder() {
+    assertThat(
+            ObjLongBiStream.from(LongStream.range(0, 1000).boxed(), identity(), i -> i)
+                .parallel()
+                .keys()
+                .collect(toList()))
+        .isEqualTo(LongStream.range(0, 1000).boxed().collect(toList()));
+  }
+
+  @Test public void sequential() {
+    ObjLongBiStream<String> stream = counts().parallel().sequential();
+    assertThat(stream.isParallel()).isFalse();
+    assertThat(stream.sum()).isEqualTo(6);
+  }
+
+  @Test public void close_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (ObjLongBiStream<String> stream =
+        ObjLongBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), identity(), s -> 1)) {
+      assertThat(stream.mapValues(v -> v + 1).sum()).isEqualTo(2);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void values_closeClosesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    ObjLongBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), identity(), s -> 1)
+        .values()
+        .close();
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(ObjLongBiStream.class);
+    new NullPointerTester().testAllPublicInstanceMethods(counts());
+  }
+
+  private static ObjLongBiStream<String> counts() {
+    return ObjLongBiStream.from(asList("a", "b", "c"), identity(), s -> s.charAt(0) - 'a' + 1);
+  }
+
+  private static <K> Map<K, Long> toMap(ObjLongBiStream<K> stream) {
+    Map<K, Long> map = new LinkedHashMap<>();
+    stream.forEachOrdered(map::put);
+    return map;
+  }
+}
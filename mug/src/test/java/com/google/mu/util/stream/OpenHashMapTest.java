@@ -0,0 +1,133 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.EqualsTester;
+
+@RunWith(JUnit4.class)
+public class OpenHashMapTest {
+  @Test public void ofLong_empty() {
+    OpenHashMap.OfLong<String> map = new OpenHashMap.OfLong<>();
+    assertThat(map).isEmpty();
+    assertThat(map.get("a")).isNull();
+    assertThat(map.getLong("a")).isEqualTo(0);
+    assertThat(map.containsKey(null)).isFalse();
+  }
+
+  @Test public void ofLong_add() {
+    OpenHashMap.OfLong<String> map = new OpenHashMap.OfLong<>();
+    map.add("a", 1);
+    map.add("b", 2);
+    map.add("a", 10);
+    assertThat(map).containsExactly("a", 11L, "b", 2L);
+    assertThat(map.getLong("a")).isEqualTo(11);
+    assertThat(map.containsKey("b")).isTrue();
+    assertThat(map.containsKey("c")).isFalse();
+  }
+
+  @Test public void ofLong_nullKey() {
+    OpenHashMap.OfLong<String> map = new OpenHashMap.OfLong<>();
+    map.add(null, 3);
+    map.add("a", 1);
+    map.add(null, 4);
+    assertThat(map).containsExactly(null, 7L, "a", 1L);
+    assertThat(map.getLong(null)).isEqualTo(7);
+  }
+
+  @Test public void ofLong_collidingKeys() {
+    OpenHashMap.OfLong<CollidingKey> map = new OpenHashMap.OfLong<>();
+    for (int i = 0; i < 100; i++) {
+      map.add(new CollidingKey(i), i);
+    }
+    assertThat(map).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(map.getLong(new CollidingKey(i))).isEqualTo(i);
+    }
+  }
+
+  @Test public void ofLong_merge() {
+    OpenHashMap.OfLong<String> small = new OpenHashMap.OfLong<>();
+    small.add("a", 1);
+    OpenHashMap.OfLong<String> large = new OpenHashMap.OfLong<>();
+    large.add("a", 10);
+    large.add("b", 20);
+    assertThat(small.merge(large)).isSameAs(large);
+    assertThat(large).containsExactly("a", 11L, "b", 20L);
+  }
+
+  @Test public void ofLong_randomizedAgainstHashMap() {
+    Random random = new Random(42);
+    OpenHashMap.OfLong<Integer> map = new OpenHashMap.OfLong<>();
+    Map<Integer, Long> expected = new HashMap<>();
+    for (int i = 0; i < 50000; i++) {
+      int key = random.nextInt(5000) - 2500;
+      long delta = random.nextInt(100);
+      map.add(key, delta);
+      expected.merge(key, delta, Long::sum);
+    }
+    assertThat(map).isEqualTo(expected);
+    new EqualsTester().addEqualityGroup(map, expected).testEquals();
+  }
+
+  @Test public void ofDouble_add() {
+    OpenHashMap.OfDouble<String> map = new OpenHashMap.OfDouble<>();
+    map.add("a", 1.5);
+    map.add(null, 2);
+    map.add("a", 0.25);
+    assertThat(map).containsExactly("a", 1.75, null, 2D);
+    assertThat(map.getDouble("a")).isEqualTo(1.75);
+    assertThat(map.getDouble("b")).isEqualTo(0D);
+  }
+
+  @Test public void ofDouble_merge() {
+    OpenHashMap.OfDouble<Integer> left = new OpenHashMap.OfDouble<>();
+    OpenHashMap.OfDouble<Integer> right = new OpenHashMap.OfDouble<>();
+    for (int i = 0; i < 1000; i++) {
+      left.add(i, 1);
+      right.add(i + 500, 2);
+    }
+    OpenHashMap.OfDouble<Integer> merged = left.merge(right);
+    assertThat(merged).hasSize(1500);
+    assertThat(merged.getDouble(0)).isEqualTo(1D);
+    assertThat(merged.getDouble(700)).isEqualTo(3D);
+    assertThat(merged.getDouble(1400)).isEqualTo(2D);
+  }
+
+  private static final class CollidingKey {
+    private final int id;
+
+    CollidingKey(int id) {
+      this.id = id;
+    }
+
+    @Override public int hashCode() {
+      return 1;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+    }
+  }
+}
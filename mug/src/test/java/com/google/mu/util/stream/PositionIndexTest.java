@@ -0,0 +1,83 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PositionIndexTest {
+  @Test public void empty() {
+    PositionIndex index = new PositionIndex(new Object[0]);
+    assertThat(index.first("a")).isEqualTo(-1);
+    assertThat(index.first(null)).isEqualTo(-1);
+  }
+
+  @Test public void distinctElements() {
+    PositionIndex index = new PositionIndex(new Object[] {"a", "b", "c"});
+    assertThat(index.first("a")).isEqualTo(0);
+    assertThat(index.first("b")).isEqualTo(1);
+    assertThat(index.first("c")).isEqualTo(2);
+    assertThat(index.first("d")).isEqualTo(-1);
+    assertThat(index.next(1)).isEqualTo(-1);
+  }
+
+  @Test public void duplicates_chainedInOrder() {
+    PositionIndex index = new PositionIndex(new Object[] {"a", "b", "a", null, "a", null});
+    assertThat(positionsOf(index, "a")).containsExactly(0, 2, 4).inOrder();
+    assertThat(positionsOf(index, "b")).containsExactly(1);
+    assertThat(positionsOf(index, null)).containsExactly(3, 5).inOrder();
+  }
+
+  @Test public void collidingHashCodes() {
+    // "Aa" and "BB" have the same hash code.
+    PositionIndex index = new PositionIndex(new Object[] {"Aa", "BB", "Aa", "BB"});
+    assertThat(positionsOf(index, "Aa")).containsExactly(0, 2).inOrder();
+    assertThat(positionsOf(index, "BB")).containsExactly(1, 3).inOrder();
+  }
+
+  @Test public void randomized_sameAsLinearScan() {
+    Random random = new Random(1);
+    Object[] elements = new Object[5000];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = random.nextInt(700);
+    }
+    PositionIndex index = new PositionIndex(elements);
+    for (int key = -10; key < 710; key++) {
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < elements.length; i++) {
+        if (elements[i].equals(key)) {
+          expected.add(i);
+        }
+      }
+      assertThat(positionsOf(index, key)).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  private static List<Integer> positionsOf(PositionIndex index, Object element) {
+    List<Integer> positions = new ArrayList<>();
+    for (int i = index.first(element); i >= 0; i = index.next(i)) {
+      positions.add(i);
+    }
+    return positions;
+  }
+}
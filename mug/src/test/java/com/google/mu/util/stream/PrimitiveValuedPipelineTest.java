@@ -0,0 +1,96 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PrimitiveValuedPipelineTest {
+  @Test public void bits_roundTrip() {
+    assertThat(
+            PrimitiveValuedPipeline.from(Stream.of(-1L, Long.MAX_VALUE), identity(), v -> v)
+                .bits()
+                .boxed()
+                .collect(toList()))
+        .containsExactly(-1L, Long.MAX_VALUE)
+        .inOrder();
+  }
+
+  @Test public void stagesAreFused() {
+    List<String> pairs = new ArrayList<>();
+    PrimitiveValuedPipeline.from(asList("a", "bb", "ccc").stream(), identity(), String::length)
+        .filter((k, v) -> v != 2)
+        .mapKeys(String::toUpperCase)
+        .mapBits(v -> v * 10)
+        .peek((k, v) -> pairs.add(k + v))
+        .forEachOrdered((k, v) -> {});
+    assertThat(pairs).containsExactly("A10", "CCC30").inOrder();
+  }
+
+  @Test public void boxed() {
+    assertThat(
+            PrimitiveValuedPipeline.from(Stream.of("a", "bb"), identity(), String::length)
+                .boxed(v -> "#" + v)
+                .toMap())
+        .containsExactly("a", "#1", "bb", "#2");
+  }
+
+  @Test public void collect_sequential() {
+    List<String> collected =
+        PrimitiveValuedPipeline.from(Stream.of("a", "bb"), identity(), String::length)
+            .collect(
+                ArrayList::new,
+                (list, k, v) -> list.add(k + v),
+                (a, b) -> {
+                  throw new AssertionError();
+                });
+    assertThat(collected).containsExactly("a1", "bb2").inOrder();
+  }
+
+  @Test public void collect_parallelMergesSplits() {
+    Map<Integer, Long> sums =
+        PrimitiveValuedPipeline.from(IntStream.range(0, 100000).boxed(), i -> i % 2, i -> 1)
+            .parallel()
+            .collect(
+                OpenHashMap.OfLong<Integer>::new,
+                OpenHashMap.OfLong::add,
+                OpenHashMap.OfLong::merge);
+    assertThat(sums).containsExactly(0, 50000L, 1, 50000L);
+  }
+
+  @Test public void collect_parallelEmpty() {
+    Map<Integer, Long> sums =
+        PrimitiveValuedPipeline.from(Stream.<Integer>empty(), identity(), i -> i)
+            .parallel()
+            .collect(
+                OpenHashMap.OfLong<Integer>::new,
+                OpenHashMap.OfLong::add,
+                OpenHashMap.OfLong::merge);
+    assertThat(sums).isEmpty();
+  }
+}
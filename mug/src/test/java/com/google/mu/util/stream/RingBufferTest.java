@@ -0,0 +1,85 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RingBufferTest {
+  @Test public void empty() {
+    RingBuffer<String> buffer = new RingBuffer<>(2);
+    assertThat(buffer.isEmpty()).isTrue();
+    assertThat(buffer.isFull()).isFalse();
+    assertThat(buffer.toList()).isEmpty();
+  }
+
+  @Test public void add_untilFull() {
+    RingBuffer<String> buffer = new RingBuffer<>(2);
+    buffer.add("a");
+    assertThat(buffer.isFull()).isFalse();
+    buffer.add("b");
+    assertThat(buffer.isFull()).isTrue();
+    assertThat(buffer.size()).isEqualTo(2);
+    assertThat(buffer.toList()).containsExactly("a", "b").inOrder();
+  }
+
+  @Test public void add_whenFull_evictsOldest() {
+    RingBuffer<String> buffer = new RingBuffer<>(3);
+    for (String s : new String[] {"a", "b", "c", "d", "e"}) {
+      buffer.add(s);
+    }
+    assertThat(buffer.toList()).containsExactly("c", "d", "e").inOrder();
+    assertThat(buffer.get(0)).isEqualTo("c");
+    assertThat(buffer.get(2)).isEqualTo("e");
+  }
+
+  @Test public void removeFirst_wrapsAround() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(3);
+    for (int i = 0; i < 10; i++) {
+      buffer.add(i);
+      if (buffer.isFull()) {
+        buffer.removeFirst(2);
+      }
+    }
+    assertThat(buffer.toList()).containsExactly(8, 9).inOrder();
+  }
+
+  @Test public void removeFirst_moreThanSize() {
+    RingBuffer<String> buffer = new RingBuffer<>(3);
+    buffer.add("a");
+    buffer.removeFirst(5);
+    assertThat(buffer.isEmpty()).isTrue();
+    buffer.add("b");
+    assertThat(buffer.toList()).containsExactly("b");
+  }
+
+  @Test public void nulls() {
+    RingBuffer<String> buffer = new RingBuffer<>(2);
+    buffer.add(null);
+    buffer.add("a");
+    assertThat(buffer.toList()).containsExactly(null, "a").inOrder();
+  }
+
+  @Test public void toList_unmodifiable() {
+    RingBuffer<String> buffer = new RingBuffer<>(1);
+    buffer.add("a");
+    assertThrows(UnsupportedOperationException.class, () -> buffer.toList().add("b"));
+  }
+}
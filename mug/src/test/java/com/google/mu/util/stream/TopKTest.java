@@ -0,0 +1,101 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.reverseOrder;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TopKTest {
+  @Test public void empty() {
+    assertThat(new TopK<String>(3, naturalOrder()).toList()).isEmpty();
+  }
+
+  @Test public void zero() {
+    TopK<String> top = new TopK<>(0, naturalOrder());
+    top.add("a");
+    assertThat(top.toList()).isEmpty();
+  }
+
+  @Test public void fewerThanK() {
+    TopK<String> top = new TopK<>(3, naturalOrder());
+    top.add("b");
+    top.add("a");
+    assertThat(top.toList()).containsExactly("a", "b").inOrder();
+  }
+
+  @Test public void evictsWorst() {
+    TopK<Integer> top = new TopK<>(2, reverseOrder());
+    for (int i : new int[] {3, 1, 4, 1, 5, 9, 2, 6}) {
+      top.add(i);
+    }
+    assertThat(top.toList()).containsExactly(9, 6).inOrder();
+  }
+
+  @Test public void ties_earlierWins() {
+    TopK<String> top = new TopK<>(2, comparingLength());
+    top.add("bbb");
+    top.add("a1");
+    top.add("a2");
+    top.add("a3");
+    assertThat(top.toList()).containsExactly("a1", "a2").inOrder();
+  }
+
+  @Test public void merge_rightComesAfterLeft() {
+    TopK<String> left = new TopK<>(3, comparingLength());
+    left.add("x");
+    left.add("long");
+    TopK<String> right = new TopK<>(3, comparingLength());
+    right.add("y");
+    right.add("z");
+    assertThat(left.merge(right).toList()).containsExactly("x", "y", "z").inOrder();
+  }
+
+  @Test public void merge_randomSplits_sameAsStableSort() {
+    Random random = new Random(1);
+    List<Integer> input = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      input.add(random.nextInt(50));
+    }
+    List<Integer> expected = input.stream().sorted().limit(20).collect(toList());
+    for (int split = 0; split <= input.size(); split += 100) {
+      TopK<Integer> left = new TopK<>(20, naturalOrder());
+      TopK<Integer> right = new TopK<>(20, naturalOrder());
+      input.subList(0, split).forEach(left::add);
+      input.subList(split, input.size()).forEach(right::add);
+      assertThat(left.merge(right).toList()).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  @Test public void checkK() {
+    assertThat(TopK.checkK(0)).isEqualTo(0);
+    assertThat(TopK.checkK(5)).isEqualTo(5);
+  }
+
+  private static Comparator<String> comparingLength() {
+    return Comparator.comparingInt(String::length);
+  }
+}